@@ -0,0 +1,70 @@
+package com.trading;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link FragmentationHandler#defragment(ByteBuffer, PacketConsumer)}: reassembly,
+ * inflate and inner packet split for one WebSocket payload per operation. Payloads are
+ * replayed in a loop, so the stream wraps back onto a frame boundary.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DefragmentBenchmark {
+    @Param({"1", "16", "64"})
+    public int packetsPerBlock;
+
+    // 0 delivers whole outer frames; otherwise payloads are cut at random up to this size
+    @Param({"0", "512", "4096"})
+    public int maxChunk;
+
+    private FragmentationHandler handler;
+    private ByteBuffer[] payloads;
+    private int next;
+    private long sink;
+    private final PacketConsumer consumer = (buffer, offset, length) -> sink += length + buffer[offset];
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SyntheticFeed feed = new SyntheticFeed(42);
+        List<byte[]> chunks = feed.payloads(256, packetsPerBlock, maxChunk);
+        payloads = new ByteBuffer[chunks.size()];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = ByteBuffer.wrap(chunks.get(i));
+        }
+        handler = new FragmentationHandler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        handler.dispose();
+    }
+
+    @Benchmark
+    public long defragment() {
+        ByteBuffer payload = payloads[next];
+        next = next + 1 == payloads.length ? 0 : next + 1;
+        payload.clear();
+        handler.defragment(payload, consumer);
+        return sink;
+    }
+}
@@ -0,0 +1,74 @@
+package com.trading;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Outbound touchline subscription for {@code instruments} tokens: the String based
+ * request passed to {@link FragmentationHandler#fragmentData(byte[])}, against
+ * {@link RequestEncoder}, which the client uses for every request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodeBenchmark {
+    @Param({"1", "50", "500"})
+    public int instruments;
+
+    private long[] keys;
+    private FragmentationHandler handler;
+    private RequestEncoder encoder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new long[instruments];
+        for (int i = 0; i < instruments; i++) {
+            keys[i] = InstrumentIndex.key(1, 1_000 + i * 7);
+        }
+        handler = new FragmentationHandler();
+        encoder = new RequestEncoder();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        handler.dispose();
+        encoder.end();
+    }
+
+    @Benchmark
+    public byte[] fragmentData() throws Exception {
+        StringBuilder tokens = new StringBuilder();
+        for (long key : keys) {
+            tokens.append(String.format("1=%d$7=%d|", InstrumentIndex.mktSegId(key), InstrumentIndex.token(key)));
+        }
+        String request = "63=FT3.0|64=" + MessageTypes.TOUCHLINE + "|65=84|66=10:15:30|200=0|" + tokens + "230=1";
+        return handler.fragmentData(request.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public ByteBuffer requestEncoder() throws Exception {
+        return encoder.begin(MessageTypes.TOUCHLINE, 84, System.currentTimeMillis())
+                .field(200, 0)
+                .instruments(keys, keys.length)
+                .field(230, 1)
+                .frame();
+    }
+}
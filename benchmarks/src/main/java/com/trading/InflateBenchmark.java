@@ -0,0 +1,71 @@
+package com.trading;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ZLIBCompressor}: inflating one outer frame into the reusable buffer, against
+ * {@code uncompress}, which copies the result into a new array.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InflateBenchmark {
+    private static final int HEADER_LENGTH = 6;
+
+    @Param({"1", "16", "64", "256"})
+    public int packetsPerBlock;
+
+    private ZLIBCompressor compressor;
+    private byte[][] blocks;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticFeed feed = new SyntheticFeed(42);
+        blocks = new byte[64][];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = feed.block(packetsPerBlock);
+        }
+        compressor = new ZLIBCompressor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        compressor.end();
+    }
+
+    @Benchmark
+    public int inflate() throws Exception {
+        byte[] block = nextBlock();
+        return compressor.inflate(block, HEADER_LENGTH, block.length - HEADER_LENGTH);
+    }
+
+    @Benchmark
+    public byte[] uncompress() throws Exception {
+        byte[] block = nextBlock();
+        return compressor.uncompress(block, HEADER_LENGTH, block.length - HEADER_LENGTH);
+    }
+
+    private byte[] nextBlock() {
+        byte[] block = blocks[next];
+        next = (next + 1) & (blocks.length - 1);
+        return block;
+    }
+}
@@ -0,0 +1,85 @@
+package com.trading;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The whole receive path of {@link ODINMarketFeedClient}: one WebSocket payload per
+ * operation through reassembly, header peek, touchline decode and the tick callback,
+ * either inline or handed to a dispatcher. With a dispatcher the score is the read
+ * thread's cost, bounded by how fast the callback threads drain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseReceivedBenchmark {
+    @Param({"1", "16", "64"})
+    public int packetsPerBlock;
+
+    @Param({"0", "4096"})
+    public int maxChunk;
+
+    @Param({"inline", "ring", "partitioned"})
+    public String dispatch;
+
+    private ODINMarketFeedClient client;
+    private ByteBuffer[] payloads;
+    private int next;
+    private volatile long sink;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SyntheticFeed feed = new SyntheticFeed(42);
+        List<byte[]> chunks = feed.payloads(256, packetsPerBlock, maxChunk);
+        payloads = new ByteBuffer[chunks.size()];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = ByteBuffer.wrap(chunks.get(i));
+        }
+
+        client = new ODINMarketFeedClient();
+        client.setOnTick(tick -> sink = tick.getLtp());
+        switch (dispatch) {
+            case "ring":
+                client.enableDispatcher(1 << 14, RingBufferDispatcher.WaitStrategy.YIELD,
+                        RingBufferDispatcher.OverflowPolicy.BLOCK);
+                break;
+            case "partitioned":
+                client.enablePartitionedDispatch(4, 1 << 12, RingBufferDispatcher.WaitStrategy.YIELD,
+                        RingBufferDispatcher.OverflowPolicy.BLOCK);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.dispose();
+    }
+
+    @Benchmark
+    public void responseReceived() {
+        ByteBuffer payload = payloads[next];
+        next = next + 1 == payloads.length ? 0 : next + 1;
+        payload.clear();
+        client.responseReceived(payload);
+    }
+}
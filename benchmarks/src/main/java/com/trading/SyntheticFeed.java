@@ -0,0 +1,183 @@
+package com.trading;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+// Generates FT3.0 traffic shaped like the live feed, so every benchmark runs offline:
+//   outer frame  = [flag 5][5 digit length] + zlib(inner packets)
+//   inner packet = [flag 5][5 digit length] + "63=FT3.0|64=206|...|50=" + 64 byte touchline
+// The generator is seeded, so a given parameter set always produces the same bytes.
+//
+// Setting -Dodin.bench.capture=<path> replaces the generated stream with a recorded one:
+// a FrameJournal directory or file, as written by ODINMarketFeedClient.enableCapture.
+// With maxChunk 0 the recorded payloads are replayed as they arrived; otherwise they are
+// joined and re-split like the generated stream, since reassembly does not care where
+// frames were cut.
+final class SyntheticFeed {
+    static final String CAPTURE_PROPERTY = "odin.bench.capture";
+
+    private static final int[] SEGMENTS = {1, 2, 3, 4, 13};
+    private static final byte COMPRESSION_FLAG = 5;
+    private static final int HEADER_LENGTH = 6;
+
+    private final Random random;
+    private final NseTimestampCodec codec = new NseTimestampCodec();
+
+    SyntheticFeed(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * One touchline packet without its header: the ASCII tags followed by the binary
+     * {@code |50=} block.
+     */
+    byte[] touchline(int mktSegId, int token) {
+        byte[] head = ("63=FT3.0|64=" + MessageTypes.TOUCHLINE + "|65=84|66=10:15:30|50=")
+                .getBytes(StandardCharsets.US_ASCII);
+        int lut = (int) codec.toNseSeconds(System.currentTimeMillis());
+        int ltp = 10_000 + random.nextInt(500_000);
+        ByteBuffer block = ByteBuffer.allocate(head.length + TouchlineFlyweight.BLOCK_LENGTH)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        block.put(head)
+                .putInt(mktSegId)
+                .putInt(token)
+                .putInt(lut)
+                .putInt(lut - random.nextInt(5))
+                .putInt(ltp)
+                .putInt(1 + random.nextInt(5_000))
+                .putInt(ltp - 5)
+                .putInt(1 + random.nextInt(5_000))
+                .putInt(ltp + 5)
+                .putInt(ltp - 1_000)
+                .putInt(ltp + 2_000)
+                .putInt(ltp - 2_000)
+                .putInt(0)
+                .putInt(100)
+                .putInt(ltp - 300)
+                .putInt(0);
+        return block.array();
+    }
+
+    /**
+     * A compressed outer frame carrying {@code packets} touchline packets for random
+     * instruments.
+     */
+    byte[] block(int packets) {
+        ByteArrayOutputStream inner = new ByteArrayOutputStream();
+        for (int i = 0; i < packets; i++) {
+            byte[] packet = touchline(SEGMENTS[random.nextInt(SEGMENTS.length)], 1 + random.nextInt(50_000));
+            inner.write(header(packet.length), 0, HEADER_LENGTH);
+            inner.write(packet, 0, packet.length);
+        }
+        byte[] compressed = compress(inner.toByteArray());
+        byte[] frame = new byte[HEADER_LENGTH + compressed.length];
+        System.arraycopy(header(compressed.length), 0, frame, 0, HEADER_LENGTH);
+        System.arraycopy(compressed, 0, frame, HEADER_LENGTH, compressed.length);
+        return frame;
+    }
+
+    /**
+     * The WebSocket payloads to replay: the recorded ones if {@value #CAPTURE_PROPERTY}
+     * is set, otherwise {@code blocks} generated frames of {@code packetsPerBlock}
+     * packets each, cut by {@link #split}.
+     */
+    List<byte[]> payloads(int blocks, int packetsPerBlock, int maxChunk) throws IOException {
+        String capture = System.getProperty(CAPTURE_PROPERTY);
+        if (capture == null || capture.isEmpty()) {
+            return split(stream(blocks, packetsPerBlock), maxChunk);
+        }
+        List<byte[]> recorded = readJournal(Paths.get(capture));
+        if (maxChunk == 0) {
+            return recorded;
+        }
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (byte[] payload : recorded) {
+            joined.write(payload, 0, payload.length);
+        }
+        return split(joined.toByteArray(), maxChunk);
+    }
+
+    /**
+     * {@code blocks} generated frames of {@code packetsPerBlock} packets each, concatenated.
+     */
+    byte[] stream(int blocks, int packetsPerBlock) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < blocks; i++) {
+            byte[] frame = block(packetsPerBlock);
+            out.write(frame, 0, frame.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Cuts {@code stream} into WebSocket payloads. With {@code maxChunk} 0 every outer
+     * frame is delivered whole; otherwise cuts fall at random points up to
+     * {@code maxChunk} bytes apart, so headers and packets straddle payloads.
+     */
+    List<byte[]> split(byte[] stream, int maxChunk) {
+        List<byte[]> chunks = new ArrayList<>();
+        int position = 0;
+        while (position < stream.length) {
+            int length;
+            if (maxChunk > 0) {
+                length = 1 + random.nextInt(maxChunk);
+            } else {
+                length = HEADER_LENGTH + Integer.parseInt(
+                        new String(stream, position + 1, HEADER_LENGTH - 1, StandardCharsets.US_ASCII));
+            }
+            int end = Math.min(stream.length, position + length);
+            chunks.add(Arrays.copyOfRange(stream, position, end));
+            position = end;
+        }
+        return chunks;
+    }
+
+    private static List<byte[]> readJournal(Path path) throws IOException {
+        List<byte[]> payloads = new ArrayList<>();
+        try (FrameJournalReader reader = new FrameJournalReader(path)) {
+            while (reader.next()) {
+                ByteBuffer frame = reader.getFrame();
+                byte[] payload = new byte[frame.remaining()];
+                frame.get(payload);
+                payloads.add(payload);
+            }
+        }
+        if (payloads.isEmpty()) {
+            throw new IOException("No frames recorded in " + path);
+        }
+        return payloads;
+    }
+
+    private static byte[] header(int length) {
+        byte[] header = String.format("%06d", length).getBytes(StandardCharsets.US_ASCII);
+        header[0] = COMPRESSION_FLAG;
+        return header;
+    }
+
+    private static byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
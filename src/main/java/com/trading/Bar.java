@@ -0,0 +1,89 @@
+package com.trading;
+
+/**
+ * A completed OHLC bar handed to {@link com.trading.callback.OnBarCallback}. The
+ * instance is reused for every bar, so copy what you need before returning.
+ *
+ * Prices are in paise, as sent; divide by the decimal locator to display them.
+ */
+public final class Bar {
+    private final NseTimestampCodec timestampCodec;
+    int mktSegId;
+    int token;
+    int intervalSeconds;
+    int startTime;
+    int open;
+    int high;
+    int low;
+    int close;
+    int tickVolume;
+    int decimalLocator;
+
+    Bar(NseTimestampCodec timestampCodec) {
+        this.timestampCodec = timestampCodec;
+    }
+
+    public int getMktSegId() {
+        return mktSegId;
+    }
+
+    public int getToken() {
+        return token;
+    }
+
+    public int getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    /**
+     * @return start of the bar in NSE seconds, a multiple of the interval
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return end of the bar (exclusive) in NSE seconds
+     */
+    public long getEndTime() {
+        return (long) startTime + intervalSeconds;
+    }
+
+    public long getStartEpochMillis() {
+        return timestampCodec.toEpochMillis(startTime);
+    }
+
+    public int getOpen() {
+        return open;
+    }
+
+    public int getHigh() {
+        return high;
+    }
+
+    public int getLow() {
+        return low;
+    }
+
+    public int getClose() {
+        return close;
+    }
+
+    /**
+     * @return number of trades in the bar, counted as touchlines whose LTT or LTP
+     * changed; the touchline carries no traded quantity
+     */
+    public int getTickVolume() {
+        return tickVolume;
+    }
+
+    public int getDecimalLocator() {
+        return decimalLocator;
+    }
+
+    @Override
+    public String toString() {
+        return "Bar{" + mktSegId + ":" + token + " " + intervalSeconds + "s @" + startTime
+                + " O=" + open + " H=" + high + " L=" + low + " C=" + close + " V=" + tickVolume + "}";
+    }
+}
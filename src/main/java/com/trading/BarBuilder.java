@@ -0,0 +1,415 @@
+package com.trading;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.trading.callback.OnBarCallback;
+
+/**
+ * Builds OHLC bars for many instruments and intervals at once from touchline updates,
+ * and hands each completed bar to the registered {@link OnBarCallback}s.
+ *
+ * Bars are keyed by the tick's LTT, so a bar covers
+ * {@code [start, start + interval)} in exchange time and bars are aligned to the
+ * wall-clock second, minute and so on. A touchline counts as a trade when its LTT or
+ * LTP differs from the instrument's previous one; quote-only updates are ignored.
+ *
+ * The clock is the latest LTT seen on any instrument, which keeps results identical
+ * when a captured feed is replayed. While no trade moves it, {@link #advanceIdle} moves
+ * it on from there by the wall-clock time that has passed, so it stays on exchange time
+ * and bars of quiet instruments still close; the client calls it once a second. Open
+ * bars sit on one timer wheel per interval, bucketed by bar number; when the clock
+ * passes a bar's end plus the late tolerance, that bucket is emptied and its bars are
+ * emitted. An instrument's bar is also emitted as soon as its next trade falls in a
+ * later bar. Trades for bars that have already been emitted are counted in
+ * {@link #getLateTrades()} and dropped.
+ *
+ * All state is in flat primitive arrays sized at construction, so nothing is
+ * allocated per tick or per bar. Updates, clock moves and flushes are synchronized,
+ * so the feed thread and the client's bar clock can share a builder; listeners run on
+ * whichever thread completed the bar.
+ */
+public final class BarBuilder {
+    public static final int DEFAULT_LATE_TOLERANCE_SECONDS = 1;
+
+    private static final int NO_BAR = -1;
+    // start[] of a bar id with no open bar
+    private static final int CLOSED = Integer.MIN_VALUE;
+
+    private final InstrumentIndex index;
+    private final int[] intervals;
+    private final int lateTolerance;
+
+    // Per bar id (slot * intervals.length + interval index)
+    private final int[] start;
+    private final int[] open;
+    private final int[] high;
+    private final int[] low;
+    private final int[] close;
+    private final int[] ticks;
+    private final int[] prev;
+    private final int[] next;
+
+    // Per instrument slot
+    private final int[] lastLtt;
+    private final int[] lastLtp;
+    private final int[] decimalLocator;
+
+    // Per interval: wheel buckets (list heads by bar number & mask) and the last bar
+    // number whose bucket has been emptied
+    private final int[][] wheels;
+    private final int[] wheelMasks;
+    private final long[] expiredThrough;
+
+    private int clock;
+    // System.nanoTime() the clock is anchored to, for advanceIdle
+    private long clockMovedNanos;
+    private ScheduledExecutorService clockTimer;
+    private final Bar bar = new Bar(new NseTimestampCodec());
+    private volatile OnBarCallback[] listeners = new OnBarCallback[0];
+    private long barsCompleted;
+    private long lateTrades;
+
+    public BarBuilder(int capacity, int... intervalSeconds) {
+        this(capacity, intervalSeconds, DEFAULT_LATE_TOLERANCE_SECONDS);
+    }
+
+    /**
+     * @param capacity              most instruments; trades for further instruments are dropped
+     * @param intervalSeconds       bar lengths, for example 1, 60 and 300
+     * @param lateToleranceSeconds  how long after its end a bar stays open for trades
+     *                              stamped slightly behind the clock
+     */
+    public BarBuilder(int capacity, int[] intervalSeconds, int lateToleranceSeconds) {
+        if (intervalSeconds.length == 0) {
+            throw new IllegalArgumentException("At least one interval is required");
+        }
+        if (lateToleranceSeconds < 0) {
+            throw new IllegalArgumentException("Late tolerance must not be negative: " + lateToleranceSeconds);
+        }
+        int[] sorted = intervalSeconds.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] <= 0 || (i > 0 && sorted[i] == sorted[i - 1])) {
+                throw new IllegalArgumentException("Intervals must be positive and distinct: "
+                        + Arrays.toString(intervalSeconds));
+            }
+        }
+        this.index = new InstrumentIndex(capacity);
+        this.intervals = sorted;
+        this.lateTolerance = lateToleranceSeconds;
+
+        int bars = capacity * sorted.length;
+        this.start = new int[bars];
+        this.open = new int[bars];
+        this.high = new int[bars];
+        this.low = new int[bars];
+        this.close = new int[bars];
+        this.ticks = new int[bars];
+        this.prev = new int[bars];
+        this.next = new int[bars];
+        Arrays.fill(start, CLOSED);
+
+        this.lastLtt = new int[capacity];
+        this.lastLtp = new int[capacity];
+        this.decimalLocator = new int[capacity];
+
+        this.wheels = new int[sorted.length][];
+        this.wheelMasks = new int[sorted.length];
+        this.expiredThrough = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            // Open bars span at most the current bar plus those still inside the tolerance
+            int span = lateToleranceSeconds / sorted[i] + 3;
+            int size = Integer.highestOneBit(span - 1) << 1;
+            wheels[i] = new int[size];
+            Arrays.fill(wheels[i], NO_BAR);
+            wheelMasks[i] = size - 1;
+            expiredThrough[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Adds a listener for completed bars. Listeners run with the builder locked, so keep
+     * them short or hand the values off.
+     */
+    public synchronized void addListener(OnBarCallback listener) {
+        OnBarCallback[] current = listeners;
+        OnBarCallback[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    public synchronized void removeListener(OnBarCallback listener) {
+        OnBarCallback[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                OnBarCallback[] updated = new OnBarCallback[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies a touchline.
+     *
+     * @return false if the instrument did not fit
+     */
+    public synchronized boolean update(MarketData tick) {
+        int ltt = (int) tick.getLtt();
+        int ltp = tick.getLtp();
+        if (ltt <= 0 || ltp <= 0) {
+            // Nothing has traded yet
+            return true;
+        }
+        int slot = index.getOrInsert(InstrumentIndex.key(tick.getMktSegId(), tick.getToken()));
+        if (slot < 0) {
+            return false;
+        }
+        if (ltt == lastLtt[slot] && ltp == lastLtp[slot]) {
+            return true;
+        }
+        lastLtt[slot] = ltt;
+        lastLtp[slot] = ltp;
+        decimalLocator[slot] = tick.getDecimalLocator();
+
+        if (ltt > clock) {
+            advanceTo(ltt);
+        }
+        boolean late = false;
+        for (int i = 0; i < intervals.length; i++) {
+            late |= !trade(slot * intervals.length + i, i, ltt, ltp);
+        }
+        if (late) {
+            lateTrades++;
+        }
+        return true;
+    }
+
+    /**
+     * Moves the clock forward to {@code nseSeconds} and emits every bar that ended at
+     * least the late tolerance before it.
+     */
+    public synchronized void advanceTo(long nseSeconds) {
+        if (nseSeconds > clock) {
+            clockMovedNanos = System.nanoTime();
+            moveClock(nseSeconds);
+        }
+    }
+
+    /**
+     * Moves the clock on by the whole seconds of wall-clock time since it last moved, so
+     * bars close while the market is quiet and at the end of the session. The clock
+     * continues from the latest LTT instead of jumping to the local clock, so it stays on
+     * exchange time. Does nothing before the first trade.
+     */
+    public synchronized void advanceIdle(long nowNanos) {
+        if (clock == 0) {
+            return;
+        }
+        long elapsedSeconds = (nowNanos - clockMovedNanos) / 1_000_000_000L;
+        if (elapsedSeconds > 0) {
+            // Keep the fraction, so repeated calls do not fall behind wall-clock time
+            clockMovedNanos += elapsedSeconds * 1_000_000_000L;
+            moveClock(clock + elapsedSeconds);
+        }
+    }
+
+    private void moveClock(long nseSeconds) {
+        clock = (int) Math.min(nseSeconds, Integer.MAX_VALUE);
+        for (int i = 0; i < intervals.length; i++) {
+            int interval = intervals[i];
+            // Bar n is done once (n + 1) * interval + tolerance <= clock
+            long last = Math.floorDiv((long) clock - lateTolerance, interval) - 1;
+            long first = expiredThrough[i] + 1;
+            if (expiredThrough[i] == Long.MIN_VALUE || last - first >= wheels[i].length) {
+                first = last - wheels[i].length + 1;
+            }
+            for (long number = first; number <= last; number++) {
+                expire(i, number);
+            }
+            expiredThrough[i] = Math.max(expiredThrough[i], last);
+        }
+    }
+
+    /**
+     * Emits every open bar, for example at the end of the session.
+     */
+    public synchronized void flush() {
+        for (int i = 0; i < intervals.length; i++) {
+            int[] wheel = wheels[i];
+            for (int bucket = 0; bucket < wheel.length; bucket++) {
+                int id = wheel[bucket];
+                while (id != NO_BAR) {
+                    int following = next[id];
+                    complete(id, i);
+                    id = following;
+                }
+                wheel[bucket] = NO_BAR;
+            }
+        }
+    }
+
+    public int[] getIntervals() {
+        return intervals.clone();
+    }
+
+    /**
+     * @return the latest LTT seen, in NSE seconds
+     */
+    public long getClock() {
+        return clock;
+    }
+
+    public long getBarsCompleted() {
+        return barsCompleted;
+    }
+
+    /**
+     * @return trades that arrived after their bar had been emitted
+     */
+    public long getLateTrades() {
+        return lateTrades;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public int capacity() {
+        return index.capacity();
+    }
+
+    // Lifecycle, driven by the client
+
+    synchronized void startClock() {
+        if (clockTimer != null) {
+            return;
+        }
+        clockTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "odin-bar-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        clockTimer.scheduleAtFixedRate(() -> {
+            try {
+                advanceIdle(System.nanoTime());
+            } catch (RuntimeException e) {
+                System.err.println("Error advancing bar clock: " + e.getMessage());
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    synchronized void stopClock() {
+        if (clockTimer != null) {
+            clockTimer.shutdownNow();
+            clockTimer = null;
+        }
+    }
+
+    // Returns false if the trade's bar has already been emitted
+    private boolean trade(int id, int i, int ltt, int ltp) {
+        int interval = intervals[i];
+        int barStart = ltt - ltt % interval;
+        if ((long) barStart + interval + lateTolerance <= clock) {
+            return false;
+        }
+        int openStart = start[id];
+        if (openStart == barStart) {
+            if (ltp > high[id]) {
+                high[id] = ltp;
+            }
+            if (ltp < low[id]) {
+                low[id] = ltp;
+            }
+            close[id] = ltp;
+            ticks[id]++;
+            return true;
+        }
+        if (openStart != CLOSED) {
+            if (barStart < openStart) {
+                return false;
+            }
+            unlink(id, i);
+            complete(id, i);
+        }
+        start[id] = barStart;
+        open[id] = ltp;
+        high[id] = ltp;
+        low[id] = ltp;
+        close[id] = ltp;
+        ticks[id] = 1;
+        link(id, i, barStart / interval);
+        return true;
+    }
+
+    private void expire(int i, long number) {
+        int[] wheel = wheels[i];
+        int bucket = (int) (number & wheelMasks[i]);
+        long barStart = number * intervals[i];
+        int id = wheel[bucket];
+        while (id != NO_BAR) {
+            int following = next[id];
+            // Older bars share the bucket only after the clock jumped past a whole turn
+            if (start[id] <= barStart) {
+                unlink(id, i);
+                complete(id, i);
+            }
+            id = following;
+        }
+    }
+
+    private void link(int id, int i, int number) {
+        int[] wheel = wheels[i];
+        int bucket = number & wheelMasks[i];
+        int head = wheel[bucket];
+        prev[id] = NO_BAR;
+        next[id] = head;
+        if (head != NO_BAR) {
+            prev[head] = id;
+        }
+        wheel[bucket] = id;
+    }
+
+    private void unlink(int id, int i) {
+        int before = prev[id];
+        int after = next[id];
+        if (before != NO_BAR) {
+            next[before] = after;
+        } else {
+            wheels[i][(start[id] / intervals[i]) & wheelMasks[i]] = after;
+        }
+        if (after != NO_BAR) {
+            prev[after] = before;
+        }
+    }
+
+    private void complete(int id, int i) {
+        int slot = id / intervals.length;
+        long key = index.keyAt(slot);
+        Bar completed = bar;
+        completed.mktSegId = InstrumentIndex.mktSegId(key);
+        completed.token = InstrumentIndex.token(key);
+        completed.intervalSeconds = intervals[i];
+        completed.startTime = start[id];
+        completed.open = open[id];
+        completed.high = high[id];
+        completed.low = low[id];
+        completed.close = close[id];
+        completed.tickVolume = ticks[id];
+        completed.decimalLocator = decimalLocator[slot];
+        start[id] = CLOSED;
+        barsCompleted++;
+        for (OnBarCallback listener : listeners) {
+            try {
+                listener.onBar(completed);
+            } catch (RuntimeException e) {
+                System.err.println("Error in bar listener: " + e.getMessage());
+            }
+        }
+    }
+}
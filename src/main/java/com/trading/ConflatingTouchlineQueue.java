@@ -0,0 +1,108 @@
+package com.trading;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.trading.callback.OnTickCallback;
+
+/**
+ * Conflating touchline delivery for consumers that only need the newest state of
+ * each instrument.
+ *
+ * The feed thread overwrites the instrument's slot in place and, if the slot is not
+ * already pending, appends the slot number to a dirty queue. A consumer calls
+ * {@link #drain} at its own pace and sees each changed instrument once, with the
+ * values current at drain time. Every slot is queued at most once, so memory is fixed
+ * by the instrument capacity however fast updates arrive.
+ */
+public final class ConflatingTouchlineQueue {
+    private static final VarHandle DIRTY = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final LastValueCache values;
+    private final byte[] dirty;
+    private final int[] pending;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final TouchlineSnapshot snapshot = new TouchlineSnapshot();
+
+    public ConflatingTouchlineQueue(int capacity) {
+        this.values = new LastValueCache(capacity);
+        this.dirty = new byte[capacity];
+        int queueSize = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.pending = new int[queueSize];
+        this.mask = queueSize - 1;
+    }
+
+    /**
+     * Records a tick. Must only be called from a single writer thread.
+     *
+     * @return false if the instrument does not fit in the queue's capacity
+     */
+    public boolean offer(MarketData tick) {
+        int slot = values.update(tick);
+        if (slot < 0) {
+            return false;
+        }
+        updates.lazySet(updates.get() + 1);
+        if ((byte) DIRTY.getAcquire(dirty, slot) == 0 && DIRTY.compareAndSet(dirty, slot, (byte) 0, (byte) 1)) {
+            long sequence = tail.get();
+            pending[(int) sequence & mask] = slot;
+            tail.lazySet(sequence + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Delivers up to {@code maxInstruments} changed instruments to {@code callback} and
+     * returns how many were delivered. Must only be called from one consumer thread
+     * at a time. The snapshot passed to the callback is reused.
+     */
+    public int drain(OnTickCallback callback, int maxInstruments) {
+        int delivered = 0;
+        long next = head.get();
+        long available = tail.get();
+        while (next < available && delivered < maxInstruments) {
+            int slot = pending[(int) next & mask];
+            next++;
+            head.lazySet(next);
+            // Clear before reading: an update racing with the read re-queues the slot
+            DIRTY.setVolatile(dirty, slot, (byte) 0);
+            if (values.readSlot(slot, snapshot)) {
+                callback.onTick(snapshot);
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Delivers every instrument that changed since the last drain.
+     */
+    public int drain(OnTickCallback callback) {
+        return drain(callback, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Number of instruments waiting to be drained.
+     */
+    public int getPendingCount() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Total ticks offered, including those merged into an already pending instrument.
+     */
+    public long getUpdateCount() {
+        return updates.get();
+    }
+
+    /**
+     * Latest values of all instruments, also readable outside of {@link #drain}.
+     */
+    public LastValueCache getValues() {
+        return values;
+    }
+}
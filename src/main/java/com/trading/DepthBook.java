@@ -0,0 +1,347 @@
+package com.trading;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Best-five market depth ({@code 64=127}) per instrument, kept in flat primitive arrays.
+ *
+ * Updates are parsed in place from the packet bytes and written over the previous
+ * levels; nothing is allocated per update. Cumulative quantities are maintained on
+ * write, so top-of-book, spread and cumulative-depth queries are O(1).
+ *
+ * A best-five packet lists the levels best first as repeated tags: the n-th {@code 2=}
+ * / {@code 3=} pair is bid quantity / price of level n, and the n-th {@code 5=} /
+ * {@code 6=} pair the ask side, using the same tags as the touchline. Pairs may be
+ * separated by {@code |} or {@code $}. Levels missing from an update are cleared.
+ *
+ * The feed thread is the only writer. The getters read the live arrays and may see an
+ * update half-applied when called from another thread; use {@link #read}, which
+ * returns a consistent copy through a per-instrument seqlock. The
+ * {@link com.trading.callback.OnDepthCallback} gets such a copy taken right after the
+ * update, whichever thread it runs on.
+ */
+public final class DepthBook {
+    public static final int LEVELS = 5;
+
+    private static final int TAG_MKT_SEG_ID = 1;
+    private static final int TAG_TOKEN = 7;
+    private static final int TAG_BID_QTY = 2;
+    private static final int TAG_BID_PRICE = 3;
+    private static final int TAG_ASK_QTY = 5;
+    private static final int TAG_ASK_PRICE = 6;
+
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final InstrumentIndex index;
+    private final int[] bidPrice;
+    private final int[] bidQty;
+    private final int[] askPrice;
+    private final int[] askQty;
+    private final long[] cumBidQty;
+    private final long[] cumAskQty;
+    private final byte[] bidLevels;
+    private final byte[] askLevels;
+    private final long[] sequences;
+
+    // Parse scratch, reused for every update
+    private final int[] newBidPrice = new int[LEVELS];
+    private final int[] newBidQty = new int[LEVELS];
+    private final int[] newAskPrice = new int[LEVELS];
+    private final int[] newAskQty = new int[LEVELS];
+    private int parsedMktSegId;
+    private int parsedToken;
+    private int changedBidLevels;
+    private int changedAskLevels;
+
+    public DepthBook(int capacity) {
+        this.index = new InstrumentIndex(capacity);
+        this.bidPrice = new int[capacity * LEVELS];
+        this.bidQty = new int[capacity * LEVELS];
+        this.askPrice = new int[capacity * LEVELS];
+        this.askQty = new int[capacity * LEVELS];
+        this.cumBidQty = new long[capacity * LEVELS];
+        this.cumAskQty = new long[capacity * LEVELS];
+        this.bidLevels = new byte[capacity];
+        this.askLevels = new byte[capacity];
+        this.sequences = new long[capacity];
+    }
+
+    /**
+     * Applies a best-five packet. Must only be called from a single writer thread.
+     *
+     * @return the instrument's slot, or -1 if the packet has no instrument or the book is full
+     */
+    int apply(byte[] packet, int offset, int length) {
+        if (!parse(packet, offset, length)) {
+            return -1;
+        }
+        int slot = index.getOrInsert(InstrumentIndex.key(parsedMktSegId, parsedToken));
+        if (slot < 0) {
+            return -1;
+        }
+
+        long sequence = sequences[slot];
+        SEQUENCE.setOpaque(sequences, slot, sequence + 1);
+        VarHandle.storeStoreFence();
+
+        int base = slot * LEVELS;
+        changedBidLevels = writeSide(base, newBidPrice, newBidQty, bidPrice, bidQty, cumBidQty);
+        changedAskLevels = writeSide(base, newAskPrice, newAskQty, askPrice, askQty, cumAskQty);
+        bidLevels[slot] = (byte) countLevels(newBidPrice, newBidQty);
+        askLevels[slot] = (byte) countLevels(newAskPrice, newAskQty);
+
+        SEQUENCE.setRelease(sequences, slot, sequence + 2);
+        return slot;
+    }
+
+    int lastMktSegId() {
+        return parsedMktSegId;
+    }
+
+    int lastToken() {
+        return parsedToken;
+    }
+
+    int lastChangedBidLevels() {
+        return changedBidLevels;
+    }
+
+    int lastChangedAskLevels() {
+        return changedAskLevels;
+    }
+
+    private boolean parse(byte[] packet, int offset, int length) {
+        int end = offset + length;
+        int bidQtyCount = 0;
+        int bidPriceCount = 0;
+        int askQtyCount = 0;
+        int askPriceCount = 0;
+        boolean hasSegment = false;
+        boolean hasToken = false;
+        for (int i = 0; i < LEVELS; i++) {
+            newBidPrice[i] = 0;
+            newBidQty[i] = 0;
+            newAskPrice[i] = 0;
+            newAskQty[i] = 0;
+        }
+
+        int position = offset;
+        while (position < end) {
+            int fieldEnd = position;
+            while (fieldEnd < end && packet[fieldEnd] != '|' && packet[fieldEnd] != '$') {
+                fieldEnd++;
+            }
+
+            int tag = 0;
+            int cursor = position;
+            while (cursor < fieldEnd && packet[cursor] >= '0' && packet[cursor] <= '9') {
+                tag = tag * 10 + (packet[cursor] - '0');
+                cursor++;
+            }
+            if (cursor > position && cursor < fieldEnd && packet[cursor] == '=') {
+                cursor++;
+                boolean negative = cursor < fieldEnd && packet[cursor] == '-';
+                if (negative) {
+                    cursor++;
+                }
+                int valueStart = cursor;
+                int value = 0;
+                while (cursor < fieldEnd && packet[cursor] >= '0' && packet[cursor] <= '9') {
+                    value = value * 10 + (packet[cursor] - '0');
+                    cursor++;
+                }
+                if (cursor == fieldEnd && cursor > valueStart) {
+                    if (negative) {
+                        value = -value;
+                    }
+                    switch (tag) {
+                        case TAG_MKT_SEG_ID:
+                            parsedMktSegId = value;
+                            hasSegment = true;
+                            break;
+                        case TAG_TOKEN:
+                            parsedToken = value;
+                            hasToken = true;
+                            break;
+                        case TAG_BID_QTY:
+                            if (bidQtyCount < LEVELS) {
+                                newBidQty[bidQtyCount++] = value;
+                            }
+                            break;
+                        case TAG_BID_PRICE:
+                            if (bidPriceCount < LEVELS) {
+                                newBidPrice[bidPriceCount++] = value;
+                            }
+                            break;
+                        case TAG_ASK_QTY:
+                            if (askQtyCount < LEVELS) {
+                                newAskQty[askQtyCount++] = value;
+                            }
+                            break;
+                        case TAG_ASK_PRICE:
+                            if (askPriceCount < LEVELS) {
+                                newAskPrice[askPriceCount++] = value;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            position = fieldEnd + 1;
+        }
+        return hasSegment && hasToken;
+    }
+
+    private static int writeSide(int base, int[] newPrice, int[] newQty, int[] price, int[] qty, long[] cumQty) {
+        int changed = 0;
+        long cumulative = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            int i = base + level;
+            if (price[i] != newPrice[level] || qty[i] != newQty[level]) {
+                price[i] = newPrice[level];
+                qty[i] = newQty[level];
+                changed |= 1 << level;
+            }
+            cumulative += newQty[level];
+            cumQty[i] = cumulative;
+        }
+        return changed;
+    }
+
+    private static int countLevels(int[] price, int[] qty) {
+        int levels = 0;
+        while (levels < LEVELS && (price[levels] != 0 || qty[levels] != 0)) {
+            levels++;
+        }
+        return levels;
+    }
+
+    private int slot(int mktSegId, int token) {
+        return index.get(InstrumentIndex.key(mktSegId, token));
+    }
+
+    /**
+     * Best bid price, or 0 if the instrument has no bid.
+     */
+    public int getBestBid(int mktSegId, int token) {
+        int slot = slot(mktSegId, token);
+        return slot < 0 ? 0 : bidPrice[slot * LEVELS];
+    }
+
+    /**
+     * Best ask price, or 0 if the instrument has no ask.
+     */
+    public int getBestAsk(int mktSegId, int token) {
+        int slot = slot(mktSegId, token);
+        return slot < 0 ? 0 : askPrice[slot * LEVELS];
+    }
+
+    /**
+     * Best ask minus best bid, or 0 if either side is empty.
+     */
+    public int getSpread(int mktSegId, int token) {
+        int slot = slot(mktSegId, token);
+        if (slot < 0 || bidLevels[slot] == 0 || askLevels[slot] == 0) {
+            return 0;
+        }
+        return askPrice[slot * LEVELS] - bidPrice[slot * LEVELS];
+    }
+
+    public int getBidPrice(int mktSegId, int token, int level) {
+        checkLevel(level);
+        int slot = slot(mktSegId, token);
+        return slot < 0 ? 0 : bidPrice[slot * LEVELS + level];
+    }
+
+    public int getBidQty(int mktSegId, int token, int level) {
+        checkLevel(level);
+        int slot = slot(mktSegId, token);
+        return slot < 0 ? 0 : bidQty[slot * LEVELS + level];
+    }
+
+    public int getAskPrice(int mktSegId, int token, int level) {
+        checkLevel(level);
+        int slot = slot(mktSegId, token);
+        return slot < 0 ? 0 : askPrice[slot * LEVELS + level];
+    }
+
+    public int getAskQty(int mktSegId, int token, int level) {
+        checkLevel(level);
+        int slot = slot(mktSegId, token);
+        return slot < 0 ? 0 : askQty[slot * LEVELS + level];
+    }
+
+    /**
+     * Total bid quantity of levels 0 through {@code level}.
+     */
+    public long getCumulativeBidQty(int mktSegId, int token, int level) {
+        checkLevel(level);
+        int slot = slot(mktSegId, token);
+        return slot < 0 ? 0 : cumBidQty[slot * LEVELS + level];
+    }
+
+    /**
+     * Total ask quantity of levels 0 through {@code level}.
+     */
+    public long getCumulativeAskQty(int mktSegId, int token, int level) {
+        checkLevel(level);
+        int slot = slot(mktSegId, token);
+        return slot < 0 ? 0 : cumAskQty[slot * LEVELS + level];
+    }
+
+    private static void checkLevel(int level) {
+        if (level < 0 || level >= LEVELS) {
+            throw new IndexOutOfBoundsException("Level " + level + " outside 0.." + (LEVELS - 1));
+        }
+    }
+
+    /**
+     * Copies a consistent view of the instrument's book into {@code snapshot}.
+     *
+     * @return false if no update has been seen for the instrument
+     */
+    public boolean read(int mktSegId, int token, DepthSnapshot snapshot) {
+        int slot = slot(mktSegId, token);
+        if (slot < 0) {
+            return false;
+        }
+        while (true) {
+            long before = (long) SEQUENCE.getAcquire(sequences, slot);
+            if (before == 0) {
+                return false;
+            }
+            if ((before & 1) == 0) {
+                copy(slot, snapshot);
+                VarHandle.loadLoadFence();
+                if ((long) SEQUENCE.getOpaque(sequences, slot) == before) {
+                    return true;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // Copies a slot without the seqlock; only for the writer thread, or inside read()
+    void copy(int slot, DepthSnapshot snapshot) {
+        int base = slot * LEVELS;
+        System.arraycopy(bidPrice, base, snapshot.bidPrice, 0, LEVELS);
+        System.arraycopy(bidQty, base, snapshot.bidQty, 0, LEVELS);
+        System.arraycopy(askPrice, base, snapshot.askPrice, 0, LEVELS);
+        System.arraycopy(askQty, base, snapshot.askQty, 0, LEVELS);
+        snapshot.bidLevels = bidLevels[slot];
+        snapshot.askLevels = askLevels[slot];
+    }
+
+    /**
+     * Number of instruments with a book.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    public int capacity() {
+        return index.capacity();
+    }
+}
@@ -0,0 +1,94 @@
+package com.trading;
+
+/**
+ * Owned copy of one instrument's best-five book, filled by {@link DepthBook#read} or
+ * handed to {@link com.trading.callback.OnDepthCallback}. Level 0 is the best price.
+ * Reuse one instance per reader thread.
+ */
+public final class DepthSnapshot {
+    final int[] bidPrice = new int[DepthBook.LEVELS];
+    final int[] bidQty = new int[DepthBook.LEVELS];
+    final int[] askPrice = new int[DepthBook.LEVELS];
+    final int[] askQty = new int[DepthBook.LEVELS];
+    int bidLevels;
+    int askLevels;
+
+    void copyFrom(DepthSnapshot source) {
+        System.arraycopy(source.bidPrice, 0, bidPrice, 0, DepthBook.LEVELS);
+        System.arraycopy(source.bidQty, 0, bidQty, 0, DepthBook.LEVELS);
+        System.arraycopy(source.askPrice, 0, askPrice, 0, DepthBook.LEVELS);
+        System.arraycopy(source.askQty, 0, askQty, 0, DepthBook.LEVELS);
+        bidLevels = source.bidLevels;
+        askLevels = source.askLevels;
+    }
+
+    public int getBidLevels() {
+        return bidLevels;
+    }
+
+    public int getAskLevels() {
+        return askLevels;
+    }
+
+    public int getBidPrice(int level) {
+        return bidPrice[level];
+    }
+
+    public int getBidQty(int level) {
+        return bidQty[level];
+    }
+
+    public int getAskPrice(int level) {
+        return askPrice[level];
+    }
+
+    public int getAskQty(int level) {
+        return askQty[level];
+    }
+
+    /**
+     * Best bid price, or 0 if there is no bid.
+     */
+    public int getBestBid() {
+        return bidPrice[0];
+    }
+
+    /**
+     * Best ask price, or 0 if there is no ask.
+     */
+    public int getBestAsk() {
+        return askPrice[0];
+    }
+
+    /**
+     * Best ask minus best bid, or 0 if either side is empty.
+     */
+    public int getSpread() {
+        return bidLevels == 0 || askLevels == 0 ? 0 : askPrice[0] - bidPrice[0];
+    }
+
+    /**
+     * Total bid quantity of levels 0 through {@code level}.
+     */
+    public long getCumulativeBidQty(int level) {
+        return cumulative(bidQty, level);
+    }
+
+    /**
+     * Total ask quantity of levels 0 through {@code level}.
+     */
+    public long getCumulativeAskQty(int level) {
+        return cumulative(askQty, level);
+    }
+
+    private static long cumulative(int[] qty, int level) {
+        if (level < 0 || level >= DepthBook.LEVELS) {
+            throw new IndexOutOfBoundsException("Level " + level + " outside 0.." + (DepthBook.LEVELS - 1));
+        }
+        long total = 0;
+        for (int i = 0; i <= level; i++) {
+            total += qty[i];
+        }
+        return total;
+    }
+}
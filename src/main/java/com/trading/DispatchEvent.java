@@ -0,0 +1,84 @@
+package com.trading;
+
+// One decoded packet on its way to the user callbacks. The dispatcher preallocates
+// these and copies packets into them; the direct path reuses one that only points at
+// the inflate buffer.
+final class DispatchEvent {
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    byte[] buffer;
+    int offset;
+    int length;
+    int messageType;
+
+    // Set when a best-five update changed the depth book; depth holds the levels as
+    // of that update, so callbacks on other threads never see the live book
+    boolean hasDepth;
+    int mktSegId;
+    int token;
+    int changedBidLevels;
+    int changedAskLevels;
+    final DepthSnapshot depth = new DepthSnapshot();
+
+    // Set when latency tracking is on; decodedNanos is 0 otherwise
+    long receivedNanos;
+    long decodedNanos;
+    int latencySegment;
+    long exchangeMillis;
+
+    DispatchEvent() {
+    }
+
+    static DispatchEvent preallocated() {
+        DispatchEvent event = new DispatchEvent();
+        event.buffer = new byte[INITIAL_BUFFER_SIZE];
+        return event;
+    }
+
+    void wrap(byte[] packet, int packetOffset, int packetLength, int type) {
+        this.buffer = packet;
+        this.offset = packetOffset;
+        this.length = packetLength;
+        this.messageType = type;
+        this.hasDepth = false;
+        this.decodedNanos = 0;
+    }
+
+    void setDepth(int segment, int instrumentToken, int changedBid, int changedAsk) {
+        this.hasDepth = true;
+        this.mktSegId = segment;
+        this.token = instrumentToken;
+        this.changedBidLevels = changedBid;
+        this.changedAskLevels = changedAsk;
+    }
+
+    void stampLatency(long received, long decoded, int segment, long exchange) {
+        this.receivedNanos = received;
+        this.decodedNanos = decoded;
+        this.latencySegment = segment;
+        this.exchangeMillis = exchange;
+    }
+
+    // Copies the packet bytes so the event outlives the source buffer
+    void copyFrom(DispatchEvent source) {
+        if (buffer == null || buffer.length < source.length) {
+            buffer = new byte[Math.max(source.length, INITIAL_BUFFER_SIZE)];
+        }
+        System.arraycopy(source.buffer, source.offset, buffer, 0, source.length);
+        offset = 0;
+        length = source.length;
+        messageType = source.messageType;
+        hasDepth = source.hasDepth;
+        mktSegId = source.mktSegId;
+        token = source.token;
+        changedBidLevels = source.changedBidLevels;
+        changedAskLevels = source.changedAskLevels;
+        if (hasDepth) {
+            depth.copyFrom(source.depth);
+        }
+        receivedNanos = source.receivedNanos;
+        decodedNanos = source.decodedNanos;
+        latencySegment = source.latencySegment;
+        exchangeMillis = source.exchangeMillis;
+    }
+}
@@ -7,6 +7,9 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Example usage of ODINMarketFeedClient
+ *
+ * Run with {@code --simulate} to connect to a local {@link FeedSimulator} instead of a
+ * real server.
  */
 public class Example {
     public static void main(String[] args) {
@@ -16,6 +19,9 @@ public class Example {
         System.out.println("═══════════════════════════════════════");
         System.out.println();
 
+        boolean simulate = Arrays.asList(args).contains("--simulate");
+        FeedSimulator simulator = null;
+
         ODINMarketFeedClient client = new ODINMarketFeedClient();
 
         // Set up event handlers
@@ -39,8 +45,15 @@ public class Example {
 
         try {
             // CHANGE THESE VALUES TO YOUR SERVER
+            String host = "YOUR-SERVER-IP";
+            if (simulate) {
+                host = "127.0.0.1";
+                simulator = new FeedSimulator(host, 4509).setTickRate(5).setMaxSplit(64);
+                simulator.start();
+                System.out.println("🧪 Feed simulator listening on port 4509");
+            }
             System.out.println("🔗 Connecting to server...\n");
-            client.connect("YOUR-SERVER-IP", 4509, false, "TESTCLIENT", "").get();
+            client.connect(host, 4509, false, "TESTCLIENT", "").get();
 
             // Send custom message
             // client.sendMessage("your|custom|message");
@@ -58,6 +71,9 @@ public class Example {
                 System.out.println("\n🔌 Disconnecting...");
                 client.disconnect();
                 client.dispose();
+                if (simulator != null) {
+                    simulator.close();
+                }
                 System.out.println("👋 Application closed");
             } catch (InterruptedException e) {
                 e.printStackTrace();
@@ -0,0 +1,280 @@
+package com.trading;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.trading.callback.OnMetricsCallback;
+
+/**
+ * Counters for the receive and send paths of one client. Every counter is a
+ * {@link LongAdder}, so recording is a striped add with no lock or shared cache line
+ * between the socket thread and senders; summing happens only when a snapshot or a
+ * JMX attribute is read.
+ *
+ * A reporter thread takes a {@link FeedMetricsSnapshot} every interval and passes it to
+ * the listeners. Enable with {@link ODINMarketFeedClient#enableMetrics(long, String)}.
+ */
+public final class FeedMetrics implements FeedMetricsMXBean {
+    private static final int TYPE_SLOTS = 1024;
+    private static final int UNKNOWN_TYPE = -1;
+
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder inflatedBytes = new LongAdder();
+    private final LongAdder resyncBytesSkipped = new LongAdder();
+    private final LongAdder decodeErrors = new LongAdder();
+    private final LongAdder outboundMessages = new LongAdder();
+    private final LongAdder outboundBytes = new LongAdder();
+    // One adder per 64= type, created on first use; other types share one slot
+    private final AtomicReferenceArray<LongAdder> packetsByType = new AtomicReferenceArray<>(TYPE_SLOTS);
+    private final LongAdder otherPackets = new LongAdder();
+
+    private final CopyOnWriteArrayList<OnMetricsCallback> listeners = new CopyOnWriteArrayList<>();
+    private volatile FeedMetricsSnapshot latest;
+
+    // Values at the previous snapshot, for rates; guarded by this
+    private long previousNanos;
+    private long previousPackets;
+    private Map<Integer, Long> previousByType = new TreeMap<>();
+
+    private ScheduledExecutorService reporter;
+    private ObjectName registeredName;
+
+    FeedMetrics() {
+    }
+
+    public void addListener(OnMetricsCallback listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OnMetricsCallback listener) {
+        listeners.remove(listener);
+    }
+
+    // Recording
+
+    void frameReceived(int bytes) {
+        framesReceived.increment();
+        bytesReceived.add(bytes);
+    }
+
+    void blockInflated(int compressed, int inflated) {
+        compressedBytes.add(compressed);
+        inflatedBytes.add(inflated);
+    }
+
+    void packetReceived(int messageType) {
+        LongAdder adder = otherPackets;
+        if (messageType >= 0 && messageType < TYPE_SLOTS) {
+            adder = packetsByType.get(messageType);
+            if (adder == null) {
+                packetsByType.compareAndSet(messageType, null, new LongAdder());
+                adder = packetsByType.get(messageType);
+            }
+        }
+        adder.increment();
+    }
+
+    void resyncSkipped(int bytes) {
+        resyncBytesSkipped.add(bytes);
+    }
+
+    void decodeError() {
+        decodeErrors.increment();
+    }
+
+    void messageSent(int bytes) {
+        outboundMessages.increment();
+        outboundBytes.add(bytes);
+    }
+
+    /**
+     * Reads all counters. Rates cover the time since the previous snapshot, whether it
+     * was taken by the reporter or by a direct call.
+     */
+    public synchronized FeedMetricsSnapshot snapshot() {
+        long now = System.nanoTime();
+        long interval = previousNanos == 0 ? 0 : now - previousNanos;
+        double seconds = interval / 1e9;
+
+        Map<Integer, Long> counts = packetCounts();
+        long packets = 0;
+        Map<Integer, Double> rates = new TreeMap<>();
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            long count = entry.getValue();
+            packets += count;
+            long previous = previousByType.getOrDefault(entry.getKey(), 0L);
+            rates.put(entry.getKey(), seconds > 0 ? (count - previous) / seconds : 0.0);
+        }
+        double packetsPerSecond = seconds > 0 ? (packets - previousPackets) / seconds : 0.0;
+
+        FeedMetricsSnapshot snapshot = new FeedMetricsSnapshot(System.currentTimeMillis(), interval,
+                framesReceived.sum(), bytesReceived.sum(), compressedBytes.sum(), inflatedBytes.sum(), packets,
+                resyncBytesSkipped.sum(), decodeErrors.sum(), outboundMessages.sum(), outboundBytes.sum(),
+                packetsPerSecond, counts, rates);
+        previousNanos = now;
+        previousPackets = packets;
+        previousByType = counts;
+        latest = snapshot;
+        return snapshot;
+    }
+
+    // JMX attributes
+
+    @Override
+    public long getFramesReceived() {
+        return framesReceived.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    @Override
+    public long getInflatedBytes() {
+        return inflatedBytes.sum();
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        long compressed = compressedBytes.sum();
+        return compressed == 0 ? 0.0 : (double) inflatedBytes.sum() / compressed;
+    }
+
+    @Override
+    public long getPacketsReceived() {
+        long packets = otherPackets.sum();
+        for (int i = 0; i < TYPE_SLOTS; i++) {
+            LongAdder adder = packetsByType.get(i);
+            if (adder != null) {
+                packets += adder.sum();
+            }
+        }
+        return packets;
+    }
+
+    @Override
+    public double getPacketsPerSecond() {
+        FeedMetricsSnapshot snapshot = latest;
+        return snapshot != null ? snapshot.getPacketsPerSecond() : 0.0;
+    }
+
+    @Override
+    public Map<Integer, Long> getPacketCountsByType() {
+        return packetCounts();
+    }
+
+    @Override
+    public Map<Integer, Double> getPacketRatesByType() {
+        FeedMetricsSnapshot snapshot = latest;
+        return snapshot != null ? snapshot.getPacketRatesByType() : new TreeMap<>();
+    }
+
+    @Override
+    public long getResyncBytesSkipped() {
+        return resyncBytesSkipped.sum();
+    }
+
+    @Override
+    public long getDecodeErrors() {
+        return decodeErrors.sum();
+    }
+
+    @Override
+    public long getOutboundMessages() {
+        return outboundMessages.sum();
+    }
+
+    @Override
+    public long getOutboundBytes() {
+        return outboundBytes.sum();
+    }
+
+    /**
+     * @return the snapshot taken by the most recent report, or null before the first
+     */
+    public FeedMetricsSnapshot getLatestSnapshot() {
+        return latest;
+    }
+
+    // Lifecycle
+
+    synchronized void startReporting(long intervalMillis) {
+        if (reporter != null) {
+            return;
+        }
+        snapshot();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "odin-feed-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.trading:type=FeedMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        registeredName = objectName;
+    }
+
+    synchronized void stop() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+        if (registeredName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.unregisterMBean(registeredName);
+            } catch (JMException e) {
+                // Already gone
+            }
+            registeredName = null;
+        }
+    }
+
+    private void report() {
+        FeedMetricsSnapshot snapshot = snapshot();
+        for (OnMetricsCallback listener : listeners) {
+            try {
+                listener.onMetrics(snapshot);
+            } catch (RuntimeException e) {
+                System.err.println("Metrics listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private Map<Integer, Long> packetCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        for (int i = 0; i < TYPE_SLOTS; i++) {
+            LongAdder adder = packetsByType.get(i);
+            if (adder != null) {
+                counts.put(i, adder.sum());
+            }
+        }
+        long other = otherPackets.sum();
+        if (other > 0) {
+            counts.put(UNKNOWN_TYPE, other);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,38 @@
+package com.trading;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link FeedMetrics}. Counters are totals since the client was created;
+ * rates cover the most recent reporting interval.
+ */
+public interface FeedMetricsMXBean {
+    long getFramesReceived();
+
+    long getBytesReceived();
+
+    long getCompressedBytes();
+
+    long getInflatedBytes();
+
+    /**
+     * Inflated bytes per compressed byte, or 0 before the first block.
+     */
+    double getCompressionRatio();
+
+    long getPacketsReceived();
+
+    double getPacketsPerSecond();
+
+    Map<Integer, Long> getPacketCountsByType();
+
+    Map<Integer, Double> getPacketRatesByType();
+
+    long getResyncBytesSkipped();
+
+    long getDecodeErrors();
+
+    long getOutboundMessages();
+
+    long getOutboundBytes();
+}
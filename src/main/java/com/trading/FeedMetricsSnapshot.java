@@ -0,0 +1,119 @@
+package com.trading;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Counter values taken at one moment, with rates over the interval since the
+ * previous snapshot.
+ */
+public final class FeedMetricsSnapshot {
+    private final long timestampMillis;
+    private final long intervalNanos;
+    private final long framesReceived;
+    private final long bytesReceived;
+    private final long compressedBytes;
+    private final long inflatedBytes;
+    private final long packetsReceived;
+    private final long resyncBytesSkipped;
+    private final long decodeErrors;
+    private final long outboundMessages;
+    private final long outboundBytes;
+    private final double packetsPerSecond;
+    private final Map<Integer, Long> packetCountsByType;
+    private final Map<Integer, Double> packetRatesByType;
+
+    FeedMetricsSnapshot(long timestampMillis, long intervalNanos, long framesReceived, long bytesReceived,
+            long compressedBytes, long inflatedBytes, long packetsReceived, long resyncBytesSkipped,
+            long decodeErrors, long outboundMessages, long outboundBytes, double packetsPerSecond,
+            Map<Integer, Long> packetCountsByType, Map<Integer, Double> packetRatesByType) {
+        this.timestampMillis = timestampMillis;
+        this.intervalNanos = intervalNanos;
+        this.framesReceived = framesReceived;
+        this.bytesReceived = bytesReceived;
+        this.compressedBytes = compressedBytes;
+        this.inflatedBytes = inflatedBytes;
+        this.packetsReceived = packetsReceived;
+        this.resyncBytesSkipped = resyncBytesSkipped;
+        this.decodeErrors = decodeErrors;
+        this.outboundMessages = outboundMessages;
+        this.outboundBytes = outboundBytes;
+        this.packetsPerSecond = packetsPerSecond;
+        this.packetCountsByType = Collections.unmodifiableMap(packetCountsByType);
+        this.packetRatesByType = Collections.unmodifiableMap(packetRatesByType);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * Length of the interval the rates cover; 0 for the first snapshot.
+     */
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    public long getInflatedBytes() {
+        return inflatedBytes;
+    }
+
+    public double getCompressionRatio() {
+        return compressedBytes == 0 ? 0.0 : (double) inflatedBytes / compressedBytes;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    public long getResyncBytesSkipped() {
+        return resyncBytesSkipped;
+    }
+
+    public long getDecodeErrors() {
+        return decodeErrors;
+    }
+
+    public long getOutboundMessages() {
+        return outboundMessages;
+    }
+
+    public long getOutboundBytes() {
+        return outboundBytes;
+    }
+
+    public double getPacketsPerSecond() {
+        return packetsPerSecond;
+    }
+
+    /**
+     * Packet totals keyed by 64= message type; packets without a known type are under -1.
+     */
+    public Map<Integer, Long> getPacketCountsByType() {
+        return packetCountsByType;
+    }
+
+    public Map<Integer, Double> getPacketRatesByType() {
+        return packetRatesByType;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("frames=%d bytes=%d ratio=%.2f packets=%d (%.0f/s) byType=%s resyncSkipped=%d "
+                + "decodeErrors=%d sent=%d", framesReceived, bytesReceived, getCompressionRatio(),
+                packetsReceived, packetsPerSecond, packetRatesByType, resyncBytesSkipped, decodeErrors,
+                outboundMessages);
+    }
+}
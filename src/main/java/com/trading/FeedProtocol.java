@@ -0,0 +1,88 @@
+package com.trading;
+
+// Byte-level helpers for FT3.0 packets ("tag=value|tag=value|...").
+// Everything works in place on (buffer, offset, length) without building Strings.
+final class FeedProtocol {
+    static final byte[] BINARY_TOUCHLINE_TAG = { '|', '5', '0', '=' };
+    static final byte[] MESSAGE_TYPE_TAG = { '|', '6', '4', '=' };
+    static final byte[] MKT_SEG_ID_TAG = { '|', '1', '=' };
+    static final byte[] TOKEN_TAG = { '|', '7', '=' };
+
+    private FeedProtocol() {
+    }
+
+    static int indexOf(byte[] buffer, int offset, int length, byte[] pattern) {
+        int last = offset + length - pattern.length;
+        byte first = pattern[0];
+        outer:
+        for (int i = offset; i <= last; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < pattern.length; j++) {
+                if (buffer[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the unsigned decimal value that starts at {@code position} and ends at the
+     * first non-digit or at {@code end}. Returns -1 if there is no digit.
+     */
+    static int parseInt(byte[] buffer, int position, int end) {
+        int value = 0;
+        int start = position;
+        while (position < end) {
+            int digit = buffer[position] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            value = value * 10 + digit;
+            position++;
+        }
+        return position == start ? -1 : value;
+    }
+
+    /**
+     * Returns the {@code 64=} message type of the packet, or -1 if it has none.
+     */
+    static int messageType(byte[] buffer, int offset, int length) {
+        int tag = indexOf(buffer, offset, length, MESSAGE_TYPE_TAG);
+        if (tag < 0) {
+            return -1;
+        }
+        return parseInt(buffer, tag + MESSAGE_TYPE_TAG.length, offset + length);
+    }
+
+    /**
+     * Returns the unsigned integer value of the first {@code tagPattern} (e.g. "|7=") in
+     * the packet, or -1 if it is missing or not numeric.
+     */
+    static int intTag(byte[] buffer, int offset, int length, byte[] tagPattern) {
+        int tag = indexOf(buffer, offset, length, tagPattern);
+        if (tag < 0) {
+            return -1;
+        }
+        return parseInt(buffer, tag + tagPattern.length, offset + length);
+    }
+
+    /**
+     * Returns the {@link InstrumentIndex#key} of the instrument the packet is about, from
+     * the binary touchline block if there is one, else from the 1= and 7= tags. Returns -1
+     * if the packet names no instrument. {@code reader} is rewrapped.
+     */
+    static long instrumentKey(byte[] buffer, int offset, int length, int messageType, TouchlineFlyweight reader) {
+        if (reader.wrap(buffer, offset, length, messageType)) {
+            return InstrumentIndex.key(reader.getMktSegId(), reader.getToken());
+        }
+        int token = intTag(buffer, offset, length, TOKEN_TAG);
+        if (token < 0) {
+            return -1;
+        }
+        return InstrumentIndex.key(intTag(buffer, offset, length, MKT_SEG_ID_TAG), token);
+    }
+}
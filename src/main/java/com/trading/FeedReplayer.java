@@ -0,0 +1,213 @@
+package com.trading;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds frames recorded by {@link FrameJournal} through a client's receive path, so the
+ * fragmentation handler, decoders, caches, dispatchers and callbacks see exactly what
+ * they saw live. Use a client that is not connected, with the callbacks set as usual:
+ *
+ * <pre>
+ *   ODINMarketFeedClient client = new ODINMarketFeedClient();
+ *   client.setOnTick(tick -> ...);
+ *   new FeedReplayer(client, Paths.get("capture")).setSpeed(10).run();
+ * </pre>
+ *
+ * A client's receive path is single-threaded, so one replayer drives one client.
+ * Independent journals (different sessions or shards) can be replayed in parallel, one
+ * client each, with {@link #runAll(List)}; callbacks shared by those clients must then
+ * be thread-safe.
+ */
+public final class FeedReplayer {
+    /**
+     * How frames are spaced in time.
+     */
+    public enum Pacing {
+        /** No waiting between frames. */
+        AS_FAST_AS_POSSIBLE,
+        /**
+         * Frames are spaced as they were received. Spacing follows the records' epoch
+         * receive times, so a directory holding several sessions keeps their order and
+         * the gaps between them.
+         */
+        REAL_TIME,
+        /** Recorded gaps divided by the speed factor. */
+        SCALED
+    }
+
+    // Waits shorter than this are spun out; longer ones park first
+    private static final long SPIN_THRESHOLD_NANOS = 100_000;
+
+    private final ODINMarketFeedClient client;
+    private final Path journal;
+    private Pacing pacing = Pacing.AS_FAST_AS_POSSIBLE;
+    private double speed = 1.0;
+
+    private volatile boolean stopped;
+    private volatile long framesReplayed;
+    private volatile long bytesReplayed;
+
+    /**
+     * @param journal a journal directory, or a single journal file
+     */
+    public FeedReplayer(ODINMarketFeedClient client, Path journal) {
+        this.client = client;
+        this.journal = journal;
+    }
+
+    public FeedReplayer setPacing(Pacing pacing) {
+        this.pacing = pacing;
+        return this;
+    }
+
+    /**
+     * Replays at {@code factor} times the recorded rate: 2 is twice as fast, 0.5 half as
+     * fast. Sets the pacing to {@link Pacing#SCALED}.
+     */
+    public FeedReplayer setSpeed(double factor) {
+        if (!(factor > 0) || Double.isInfinite(factor)) {
+            throw new IllegalArgumentException("Speed must be positive: " + factor);
+        }
+        this.speed = factor;
+        this.pacing = Pacing.SCALED;
+        return this;
+    }
+
+    /**
+     * Replays the whole journal on the calling thread.
+     *
+     * @return number of frames replayed
+     */
+    public long run() throws IOException {
+        double scale = pacing == Pacing.SCALED ? 1.0 / speed : 1.0;
+        boolean paced = pacing != Pacing.AS_FAST_AS_POSSIBLE;
+        long frames = 0;
+        long bytes = 0;
+        try (FrameJournalReader reader = new FrameJournalReader(journal)) {
+            // Raw nanoTime stamps are only comparable within one session, and a journal
+            // directory may hold several, so pacing uses the epoch receive time
+            long firstRecorded = 0;
+            long startNanos = 0;
+            long session = 0;
+            while (!stopped && reader.next()) {
+                ByteBuffer frame = reader.getFrame();
+                if (frames == 0 || reader.getSessionId() != session) {
+                    // A frame cut off at the end of one capture must not swallow the
+                    // start of the next, as on a reconnect
+                    session = reader.getSessionId();
+                    client.resetReassembly();
+                }
+                if (paced) {
+                    if (frames == 0) {
+                        firstRecorded = reader.getReceivedEpochNanos();
+                        startNanos = System.nanoTime();
+                    } else {
+                        waitUntil(startNanos + (long) ((reader.getReceivedEpochNanos() - firstRecorded) * scale));
+                    }
+                }
+                bytes += frame.remaining();
+                client.responseReceived(frame);
+                frames++;
+                if ((frames & 1023) == 0) {
+                    framesReplayed = frames;
+                    bytesReplayed = bytes;
+                }
+            }
+        } finally {
+            framesReplayed = frames;
+            bytesReplayed = bytes;
+        }
+        return frames;
+    }
+
+    /**
+     * Replays on a new "odin-feed-replay" thread.
+     *
+     * @return completes with the number of frames replayed
+     */
+    public CompletableFuture<Long> start() {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                done.complete(run());
+            } catch (IOException | RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }, "odin-feed-replay");
+        thread.setDaemon(true);
+        thread.start();
+        return done;
+    }
+
+    /**
+     * Replays each journal on its own thread and waits for all of them.
+     *
+     * @return total number of frames replayed
+     */
+    public static long runAll(List<FeedReplayer> replayers) throws IOException {
+        CompletableFuture<?>[] running = new CompletableFuture<?>[replayers.size()];
+        for (int i = 0; i < running.length; i++) {
+            running[i] = replayers.get(i).start();
+        }
+        try {
+            CompletableFuture.allOf(running).join();
+        } catch (CompletionException e) {
+            for (FeedReplayer replayer : replayers) {
+                replayer.stop();
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+        long total = 0;
+        for (FeedReplayer replayer : replayers) {
+            total += replayer.getFramesReplayed();
+        }
+        return total;
+    }
+
+    /**
+     * Stops after the frame being replayed. A stopped replayer replays nothing if run
+     * again.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return frames replayed so far; updated every 1024 frames while running
+     */
+    public long getFramesReplayed() {
+        return framesReplayed;
+    }
+
+    public long getBytesReplayed() {
+        return bytesReplayed;
+    }
+
+    public ODINMarketFeedClient getClient() {
+        return client;
+    }
+
+    private void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !stopped) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,654 @@
+package com.trading;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+/**
+ * In-process stand-in for the ODIN broadcast server, for load and latency tests
+ * without a gateway. It speaks the same framing as {@link FragmentationHandler}:
+ * zlib blocks behind a [flag][5 digit length] header, each holding several inner
+ * packets with the same header.
+ *
+ * It accepts login, touchline, LTP touchline, best-five and pause/resume requests and
+ * answers subscriptions with synthetic ticks: binary {@code |50=} touchline packets
+ * for touchline and LTP subscriptions, and text best-five packets. Every connection
+ * gets {@link #setTickRate ticksPerSecond}, spread over its subscribed instruments,
+ * shaped by the {@link BurstShape}. Blocks can be split at random points into
+ * several WebSocket messages, as a real socket may deliver them.
+ *
+ * <pre>
+ *   try (FeedSimulator simulator = new FeedSimulator("127.0.0.1", 4509)) {
+ *       simulator.setTickRate(50_000).setBurstShape(FeedSimulator.BurstShape.POISSON).setMaxSplit(1500);
+ *       simulator.start();
+ *       client.connect("127.0.0.1", 4509, false, "TESTCLIENT", "").get();
+ *       ...
+ *   }
+ * </pre>
+ *
+ * No login response is sent, since the client does not wait for one. Prices are
+ * random around a per-instrument base and carry no meaning.
+ */
+public final class FeedSimulator implements AutoCloseable {
+    /**
+     * How ticks are spread over time. All shapes send the same average rate.
+     */
+    public enum BurstShape {
+        /** Evenly spaced. */
+        STEADY,
+        /** Each period's ticks are sent at the start of the period, then nothing. */
+        BURST,
+        /** Exponentially distributed gaps, as independent arrivals would produce. */
+        POISSON
+    }
+
+    private static final byte COMPRESSION_FLAG = 5;
+    private static final int HEADER_LENGTH = 6;
+    private static final int MAX_LENGTH = 99_999;
+    private static final long STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int[] NO_INSTRUMENTS = {};
+    private static final byte[] PREFIX = "63=FT3.0|64=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REQUEST_CODE = "|65=84|66=".getBytes(StandardCharsets.US_ASCII);
+
+    private final Server server;
+    private final ConcurrentHashMap<WebSocket, Session> sessions = new ConcurrentHashMap<>();
+    private final CompletableFuture<Void> started = new CompletableFuture<>();
+
+    private volatile int ticksPerSecond = 1_000;
+    private volatile BurstShape burstShape = BurstShape.STEADY;
+    private volatile long burstNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    private volatile long periodNanos = TimeUnit.MILLISECONDS.toNanos(1_000);
+    private volatile int packetsPerBlock = 16;
+    private volatile int maxSplit;
+    private volatile int[] universe = NO_INSTRUMENTS;
+
+    private final LongAdder ticksSent = new LongAdder();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder requestsReceived = new LongAdder();
+
+    private Thread generator;
+    private volatile boolean running;
+
+    public FeedSimulator(String host, int port) {
+        this.server = new Server(new InetSocketAddress(host, port));
+        server.setReuseAddr(true);
+        server.setTcpNoDelay(true);
+    }
+
+    /**
+     * Ticks per second sent to each connection, across all its instruments.
+     */
+    public FeedSimulator setTickRate(int ticksPerSecond) {
+        if (ticksPerSecond < 0) {
+            throw new IllegalArgumentException("Tick rate must not be negative: " + ticksPerSecond);
+        }
+        this.ticksPerSecond = ticksPerSecond;
+        return this;
+    }
+
+    public FeedSimulator setBurstShape(BurstShape shape) {
+        this.burstShape = shape;
+        return this;
+    }
+
+    /**
+     * For {@link BurstShape#BURST}: every {@code periodMillis}, that period's ticks are
+     * sent within the first {@code burstMillis}.
+     */
+    public FeedSimulator setBurst(long burstMillis, long periodMillis) {
+        if (burstMillis <= 0 || periodMillis < burstMillis) {
+            throw new IllegalArgumentException("Need 0 < burst <= period: " + burstMillis + "/" + periodMillis);
+        }
+        this.burstNanos = TimeUnit.MILLISECONDS.toNanos(burstMillis);
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        this.burstShape = BurstShape.BURST;
+        return this;
+    }
+
+    /**
+     * Most inner packets per compressed block; ticks due at the same time are packed
+     * together up to this many.
+     */
+    public FeedSimulator setPacketsPerBlock(int packets) {
+        if (packets < 1 || packets > 1_000) {
+            throw new IllegalArgumentException("Packets per block must be between 1 and 1000: " + packets);
+        }
+        this.packetsPerBlock = packets;
+        return this;
+    }
+
+    /**
+     * Cut every block into WebSocket messages of 1 to {@code bytes} bytes at random
+     * points, or 0 to send each block whole.
+     */
+    public FeedSimulator setMaxSplit(int bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Split size must not be negative: " + bytes);
+        }
+        this.maxSplit = bytes;
+        return this;
+    }
+
+    /**
+     * Tick segment 1 tokens 1 to {@code count} on every connection that has not
+     * subscribed to anything, so load tests need no subscription step. 0 turns it off.
+     */
+    public FeedSimulator setInstruments(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Instrument count must not be negative: " + count);
+        }
+        int[] flat = new int[count * 3];
+        for (int i = 0; i < count; i++) {
+            flat[3 * i] = 1;
+            flat[3 * i + 1] = i + 1;
+            flat[3 * i + 2] = MessageTypes.TOUCHLINE;
+        }
+        this.universe = flat;
+        return this;
+    }
+
+    /**
+     * Starts listening and generating; returns once the port is bound.
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        running = true;
+        server.start();
+        try {
+            started.get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while starting the simulator", e);
+        } catch (ExecutionException | TimeoutException e) {
+            running = false;
+            throw new IOException("Simulator did not start: " + e.getMessage(), e);
+        }
+        generator = new Thread(this::generate, "odin-feed-simulator");
+        generator.setDaemon(true);
+        generator.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            generator.join(1_000);
+            server.stop(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Session session : sessions.values()) {
+            session.end();
+        }
+        sessions.clear();
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    public int getConnectionCount() {
+        return sessions.size();
+    }
+
+    public long getTicksSent() {
+        return ticksSent.sum();
+    }
+
+    /**
+     * @return WebSocket messages sent, counting each piece of a split block
+     */
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getRequestsReceived() {
+        return requestsReceived.sum();
+    }
+
+    // Generation
+
+    private void generate() {
+        long next = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            for (Session session : sessions.values()) {
+                int due = session.ticksDue(now);
+                if (due > 0) {
+                    try {
+                        session.emit(due);
+                    } catch (RuntimeException e) {
+                        // Connection closed under us; onClose removes it
+                    }
+                }
+            }
+            next += STEP_NANOS;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    private final class Server extends WebSocketServer {
+        Server(InetSocketAddress address) {
+            super(address);
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+            sessions.put(conn, new Session(conn));
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+            Session session = sessions.remove(conn);
+            if (session != null) {
+                session.end();
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            // Requests are always binary
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, ByteBuffer message) {
+            Session session = sessions.get(conn);
+            if (session != null) {
+                session.request(message);
+            }
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+            if (conn == null) {
+                started.completeExceptionally(ex);
+            }
+        }
+
+        @Override
+        public void onStart() {
+            started.complete(null);
+        }
+    }
+
+    // One connection: its subscriptions, pacing state and encoders. Requests arrive on the
+    // server thread and ticks are built on the generator; both lock the session, and the
+    // generator reads the subscriptions through a copied array.
+    private final class Session {
+        private final WebSocket conn;
+        private final Inflater inflater = new Inflater();
+        private final Deflater deflater = new Deflater();
+        private final NseTimestampCodec timeCodec = new NseTimestampCodec();
+
+        private final Set<Long> touchline = new LinkedHashSet<>();
+        private final Set<Long> ltp = new LinkedHashSet<>();
+        private final Set<Long> bestFive = new LinkedHashSet<>();
+        // (segment, token, type) triples of everything subscribed; universe uses the same layout
+        private volatile int[] instruments = NO_INSTRUMENTS;
+        private volatile boolean paused;
+        private volatile boolean loggedIn;
+        private boolean ended;
+
+        // Generator thread only
+        private long lastNanos = System.nanoTime();
+        private long periodStart = lastNanos;
+        private double credit;
+        private long nextArrival;
+        private byte[] inner = new byte[64 * 1024];
+        private byte[] block = new byte[64 * 1024];
+        private final byte[] packet = new byte[512];
+        private int cursor;
+
+        Session(WebSocket conn) {
+            this.conn = conn;
+        }
+
+        // Requests
+
+        synchronized void request(ByteBuffer message) {
+            requestsReceived.increment();
+            int length = message.remaining();
+            if (length <= HEADER_LENGTH || ended) {
+                return;
+            }
+            byte[] frame = new byte[length];
+            message.get(frame);
+            String text;
+            try {
+                inflater.setInput(frame, HEADER_LENGTH, length - HEADER_LENGTH);
+                byte[] out = new byte[Math.max(1024, length * 8)];
+                int count = 0;
+                while (!inflater.finished()) {
+                    if (count == out.length) {
+                        out = Arrays.copyOf(out, out.length << 1);
+                    }
+                    int inflated = inflater.inflate(out, count, out.length - count);
+                    if (inflated == 0 && inflater.needsInput()) {
+                        break;
+                    }
+                    count += inflated;
+                }
+                text = new String(out, 0, count, StandardCharsets.US_ASCII);
+            } catch (DataFormatException e) {
+                return;
+            } finally {
+                inflater.reset();
+            }
+            handle(text);
+        }
+
+        private void handle(String request) {
+            int type = -1;
+            int action = 1;
+            int pendingSegment = -1;
+            Set<Long> keys = new LinkedHashSet<>();
+            for (String field : request.split("\\|")) {
+                if (field.startsWith("64=")) {
+                    type = parse(field, 3);
+                } else if (field.startsWith("230=")) {
+                    action = parse(field, 4);
+                } else if (field.startsWith("1=")) {
+                    int dollar = field.indexOf('$');
+                    if (dollar > 0 && field.startsWith("7=", dollar + 1)) {
+                        keys.add(InstrumentIndex.key(parse(field.substring(0, dollar), 2),
+                                parse(field, dollar + 3)));
+                    } else {
+                        pendingSegment = parse(field, 2);
+                    }
+                } else if (field.startsWith("7=") && pendingSegment >= 0) {
+                    keys.add(InstrumentIndex.key(pendingSegment, parse(field, 2)));
+                    pendingSegment = -1;
+                }
+            }
+
+            switch (type) {
+                case MessageTypes.LOGIN:
+                    loggedIn = true;
+                    break;
+                case MessageTypes.PAUSE_RESUME:
+                    paused = action == 1;
+                    break;
+                case MessageTypes.TOUCHLINE:
+                    update(touchline, keys, action == 1);
+                    break;
+                case MessageTypes.LTP_TOUCHLINE:
+                    update(ltp, keys, action == 1);
+                    break;
+                case MessageTypes.BEST_FIVE:
+                    update(bestFive, keys, action == 1);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void update(Set<Long> stream, Set<Long> keys, boolean add) {
+            if (add) {
+                stream.addAll(keys);
+            } else {
+                stream.removeAll(keys);
+            }
+            int[] flat = new int[(touchline.size() + ltp.size() + bestFive.size()) * 3];
+            int i = flatten(touchline, MessageTypes.TOUCHLINE, flat, 0);
+            i = flatten(ltp, MessageTypes.LTP_TOUCHLINE, flat, i);
+            flatten(bestFive, MessageTypes.BEST_FIVE, flat, i);
+            instruments = flat;
+        }
+
+        private int flatten(Set<Long> keys, int type, int[] flat, int i) {
+            for (long key : keys) {
+                flat[i++] = InstrumentIndex.mktSegId(key);
+                flat[i++] = InstrumentIndex.token(key);
+                flat[i++] = type;
+            }
+            return i;
+        }
+
+        // Pacing
+
+        int ticksDue(long now) {
+            long elapsed = now - lastNanos;
+            lastNanos = now;
+            int rate = ticksPerSecond;
+            if (paused || !loggedIn || rate == 0) {
+                credit = 0;
+                nextArrival = 0;
+                return 0;
+            }
+            switch (burstShape) {
+                case BURST: {
+                    long period = periodNanos;
+                    while (now - periodStart >= period) {
+                        periodStart += period;
+                    }
+                    if (now - periodStart < burstNanos) {
+                        credit += rate * (elapsed / 1e9) * ((double) period / burstNanos);
+                    }
+                    break;
+                }
+                case POISSON: {
+                    if (nextArrival == 0) {
+                        nextArrival = now;
+                    }
+                    int due = 0;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (nextArrival <= now) {
+                        due++;
+                        nextArrival += (long) (-Math.log(1.0 - random.nextDouble()) * 1e9 / rate);
+                    }
+                    return due;
+                }
+                default:
+                    credit += rate * (elapsed / 1e9);
+                    break;
+            }
+            int due = (int) credit;
+            credit -= due;
+            return due;
+        }
+
+        // Encoding
+
+        synchronized void emit(int ticks) {
+            int[] targets = instruments;
+            if (targets.length == 0) {
+                targets = universe;
+            }
+            if (targets.length == 0 || ended) {
+                return;
+            }
+            int count = targets.length / 3;
+            int perBlock = packetsPerBlock;
+            long millis = System.currentTimeMillis();
+            int innerLength = 0;
+            int inBlock = 0;
+            for (int i = 0; i < ticks; i++) {
+                int n = cursor++ % count * 3;
+                int type = targets[n + 2];
+                int packetLength = type == MessageTypes.BEST_FIVE
+                        ? bestFive(targets[n], targets[n + 1], millis)
+                        : touchline(type, targets[n], targets[n + 1], millis);
+                if (innerLength + HEADER_LENGTH + packetLength > inner.length) {
+                    inner = Arrays.copyOf(inner, inner.length << 1);
+                }
+                writeHeader(inner, innerLength, packetLength);
+                System.arraycopy(packet, 0, inner, innerLength + HEADER_LENGTH, packetLength);
+                innerLength += HEADER_LENGTH + packetLength;
+                if (++inBlock == perBlock) {
+                    send(innerLength);
+                    innerLength = 0;
+                    inBlock = 0;
+                }
+            }
+            if (inBlock > 0) {
+                send(innerLength);
+            }
+            ticksSent.add(ticks);
+        }
+
+        private int touchline(int type, int segment, int token, long millis) {
+            int length = header(type, millis);
+            packet[length++] = '|';
+            packet[length++] = '5';
+            packet[length++] = '0';
+            packet[length++] = '=';
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int base = basePrice(segment, token);
+            int price = base + random.nextInt(-base / 50, base / 50 + 1);
+            int lut = (int) timeCodec.toNseSeconds(millis);
+            ByteBuffer binary = ByteBuffer.wrap(packet, length, TouchlineFlyweight.BLOCK_LENGTH)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            binary.putInt(segment)
+                    .putInt(token)
+                    .putInt(lut)
+                    .putInt(lut)
+                    .putInt(price)
+                    .putInt(1 + random.nextInt(10_000))
+                    .putInt(price - 5)
+                    .putInt(1 + random.nextInt(10_000))
+                    .putInt(price + 5)
+                    .putInt(base)
+                    .putInt(base + base / 50)
+                    .putInt(base - base / 50)
+                    .putInt(0)
+                    .putInt(100)
+                    .putInt(base)
+                    .putInt(0);
+            return length + TouchlineFlyweight.BLOCK_LENGTH;
+        }
+
+        private int bestFive(int segment, int token, long millis) {
+            StringBuilder text = new StringBuilder(160);
+            text.append("|1=").append(segment).append("|7=").append(token);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int base = basePrice(segment, token);
+            for (int level = 0; level < DepthBook.LEVELS; level++) {
+                text.append("|2=").append(1 + random.nextInt(5_000)).append("$3=").append(base - 5 * (level + 1));
+            }
+            for (int level = 0; level < DepthBook.LEVELS; level++) {
+                text.append("|5=").append(1 + random.nextInt(5_000)).append("$6=").append(base + 5 * (level + 1));
+            }
+            int length = header(MessageTypes.BEST_FIVE, millis);
+            for (int i = 0; i < text.length(); i++) {
+                packet[length++] = (byte) text.charAt(i);
+            }
+            return length;
+        }
+
+        // 63=FT3.0|64=<type>|65=84|66=HH:mm:ss
+        private int header(int type, long millis) {
+            int length = 0;
+            for (byte b : PREFIX) {
+                packet[length++] = b;
+            }
+            length = writeDigits(type, length);
+            for (byte b : REQUEST_CODE) {
+                packet[length++] = b;
+            }
+            return timeCodec.writeTime(millis, packet, length);
+        }
+
+        private int writeDigits(int value, int position) {
+            String digits = Integer.toString(value);
+            for (int i = 0; i < digits.length(); i++) {
+                packet[position++] = (byte) digits.charAt(i);
+            }
+            return position;
+        }
+
+        private void send(int innerLength) {
+            deflater.setInput(inner, 0, innerLength);
+            deflater.finish();
+            int count = 0;
+            while (!deflater.finished()) {
+                if (HEADER_LENGTH + count == block.length) {
+                    block = Arrays.copyOf(block, block.length << 1);
+                }
+                count += deflater.deflate(block, HEADER_LENGTH + count, block.length - HEADER_LENGTH - count);
+            }
+            deflater.reset();
+            if (count > MAX_LENGTH) {
+                throw new IllegalStateException("Block too large: " + count);
+            }
+            writeHeader(block, 0, count);
+
+            int total = HEADER_LENGTH + count;
+            int split = maxSplit;
+            if (split == 0) {
+                conn.send(ByteBuffer.wrap(block, 0, total));
+                framesSent.increment();
+            } else {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int position = 0; position < total; ) {
+                    int piece = Math.min(total - position, 1 + random.nextInt(split));
+                    conn.send(ByteBuffer.wrap(block, position, piece));
+                    framesSent.increment();
+                    position += piece;
+                }
+            }
+            bytesSent.add(total);
+        }
+
+        synchronized void end() {
+            if (!ended) {
+                ended = true;
+                inflater.end();
+                deflater.end();
+            }
+        }
+    }
+
+    private static int basePrice(int segment, int token) {
+        return 1_000 + Math.floorMod(token * 2_654_435_761L + segment, 500_000);
+    }
+
+    private static int parse(String field, int from) {
+        int end = from;
+        while (end < field.length() && Character.isDigit(field.charAt(end))) {
+            end++;
+        }
+        return end > from ? Integer.parseInt(field.substring(from, end)) : -1;
+    }
+
+    private static void writeHeader(byte[] buffer, int offset, int length) {
+        buffer[offset] = COMPRESSION_FLAG;
+        for (int i = offset + HEADER_LENGTH - 1, value = length; i > offset; i--, value /= 10) {
+            buffer[i] = (byte) ('0' + value % 10);
+        }
+    }
+}
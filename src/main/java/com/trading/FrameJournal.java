@@ -0,0 +1,352 @@
+package com.trading;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Appends every received WebSocket payload, still compressed, to a rolling set of
+ * memory-mapped files. Enable with {@link ODINMarketFeedClient#enableCapture}.
+ *
+ * <p>Each file starts with a {@value #HEADER_LENGTH} byte header followed by records,
+ * all little-endian:
+ * <pre>
+ *   header: int magic, int version, long epoch nanos at open, long nanoTime at open, long session id
+ *   record: int length, long nanoTime at receive, byte[length] payload, padded to 4 bytes
+ * </pre>
+ * The payload and timestamp are written first and the length last, with release
+ * semantics. The file is zero-filled when it is created, so a record cut short by a
+ * crash still reads as length 0, which means "no more records yet"; a length of
+ * {@value #END_OF_FILE} means the file is finished, either rolled or closed. Receive times are
+ * {@link System#nanoTime()} values; add the difference to the header's epoch time to
+ * get wall-clock time. Every file written by one journal carries the same random session
+ * id, so a reader can tell where one capture ends and the next begins.
+ *
+ * <p>Appending is a copy from the socket buffer into the mapping and never waits for
+ * disk. A file is rolled when the next record does not fit or when its time window has
+ * passed. The next file is created and mapped on the "odin-feed-journal" thread as soon
+ * as the current one opens, and finished files are forced to disk there too. The read
+ * thread never waits for that file either: until it is ready, a time-window roll is put
+ * off and frames that no longer fit are dropped and counted in {@link #getFramesDropped()}.
+ *
+ * <p>Only the socket read thread may append, and a directory must have one journal
+ * writing to it at a time. A new journal continues the file numbering it finds.
+ */
+public final class FrameJournal implements AutoCloseable {
+    static final int MAGIC = 0x4F444A31; // "ODJ1"
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 32;
+    static final int RECORD_HEADER_LENGTH = 12;
+    static final int END_OF_FILE = -1;
+    static final String FILE_PREFIX = "odin-feed-";
+    static final String FILE_SUFFIX = ".journal";
+
+    private static final long MIN_FILE_SIZE = 64 * 1024;
+    private static final int PAGE_SIZE = 4096;
+    private static final int IDLE = 0;
+    private static final int APPENDING = 1;
+    private static final int CLOSED = 2;
+    private static final VarHandle INT_LE =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path directory;
+    private final long fileSize;
+    private final long rollIntervalNanos;
+    private final ExecutorService roller;
+    private final long sessionId = ThreadLocalRandom.current().nextLong();
+
+    // Written by the read thread only
+    private volatile Segment current;
+    private CompletableFuture<Segment> next;
+    private long nextSequence;
+
+    private final LongAdder framesWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private volatile int filesCreated;
+    private volatile Path currentFile;
+    // IDLE -> APPENDING -> IDLE around each append; close() moves IDLE -> CLOSED, so the end
+    // marker is never written while a record is
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    /**
+     * @param fileSize           size of each file in bytes; frames larger than a file are dropped
+     * @param rollIntervalMillis start a new file after this long even if the current one
+     *                           has room, or 0 to roll on size only
+     */
+    FrameJournal(Path directory, long fileSize, long rollIntervalMillis) throws IOException {
+        if (fileSize < MIN_FILE_SIZE || fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("File size must be between " + MIN_FILE_SIZE + " and "
+                    + Integer.MAX_VALUE + " bytes: " + fileSize);
+        }
+        if (rollIntervalMillis < 0) {
+            throw new IllegalArgumentException("Roll interval must not be negative: " + rollIntervalMillis);
+        }
+        this.directory = directory;
+        this.fileSize = fileSize;
+        this.rollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(rollIntervalMillis);
+        Files.createDirectories(directory);
+        this.nextSequence = lastSequence(directory) + 1;
+        this.roller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "odin-feed-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        current = open(nextSequence++);
+        prepareNext();
+    }
+
+    /**
+     * Appends the remaining bytes of {@code frame} stamped with the current
+     * {@link System#nanoTime()}. The buffer's position is left unchanged.
+     */
+    public void append(ByteBuffer frame) {
+        append(frame, System.nanoTime());
+    }
+
+    void append(ByteBuffer frame, long receivedNanos) {
+        if (!state.compareAndSet(IDLE, APPENDING)) {
+            return;
+        }
+        try {
+            write(frame, receivedNanos);
+        } finally {
+            state.setRelease(IDLE);
+        }
+    }
+
+    private void write(ByteBuffer frame, long receivedNanos) {
+        int length = frame.remaining();
+        int recordLength = align(RECORD_HEADER_LENGTH + length);
+        if (recordLength > fileSize - HEADER_LENGTH - Integer.BYTES) {
+            framesDropped.increment();
+            return;
+        }
+        Segment segment = current;
+        boolean fits = segment.position + recordLength <= fileSize - Integer.BYTES;
+        if (!fits || (rollIntervalNanos > 0 && receivedNanos - segment.openedNanos >= rollIntervalNanos)) {
+            Segment opened = next.isDone() ? roll(receivedNanos) : null;
+            if (opened != null) {
+                segment = opened;
+            } else if (!fits) {
+                framesDropped.increment();
+                return;
+            }
+        }
+
+        MappedByteBuffer buffer = segment.buffer;
+        int start = segment.position;
+        int position = frame.position();
+        buffer.putLong(start + Integer.BYTES, receivedNanos);
+        buffer.position(start + RECORD_HEADER_LENGTH);
+        buffer.put(frame);
+        frame.position(position);
+        INT_LE.setRelease(buffer, start, length);
+        segment.position = start + recordLength;
+
+        framesWritten.increment();
+        bytesWritten.add(length);
+    }
+
+    public long getFramesWritten() {
+        return framesWritten.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return frames not written because they were larger than a file, or because the
+     * next file was not ready or could not be created
+     */
+    public long getFramesDropped() {
+        return framesDropped.sum();
+    }
+
+    /**
+     * @return files created so far, including the one mapped ahead for the next roll
+     */
+    public int getFilesCreated() {
+        return filesCreated;
+    }
+
+    public Path getCurrentFile() {
+        return currentFile;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Forces the current file to disk. Written records already survive a crash of this
+     * process through the page cache; this also covers a crash of the machine.
+     */
+    public void flush() {
+        Segment segment = current;
+        if (segment != null && state.get() != CLOSED) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * Stops capturing, marks the end of the current file and forces it to disk. A frame
+     * being appended by the read thread at the same moment is finished first; later ones
+     * are ignored.
+     */
+    @Override
+    public synchronized void close() {
+        while (!state.compareAndSet(IDLE, CLOSED)) {
+            if (state.get() == CLOSED) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        roller.shutdown();
+        try {
+            roller.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Segment segment = current;
+        INT_LE.setRelease(segment.buffer, segment.position, END_OF_FILE);
+        segment.buffer.force();
+        Segment unused = next.getNow(null);
+        if (unused != null) {
+            try {
+                Files.deleteIfExists(unused.path);
+            } catch (IOException e) {
+                // Leaves an empty journal file, which readers skip
+            }
+        }
+    }
+
+    // Only called once next is done, so it never blocks the read thread
+    private Segment roll(long nowNanos) {
+        Segment finished = current;
+        Segment opened;
+        try {
+            opened = next.join();
+        } catch (RuntimeException e) {
+            System.err.println("Could not create journal file: " + e.getMessage());
+            prepareNext();
+            return null;
+        }
+        INT_LE.setRelease(finished.buffer, finished.position, END_OF_FILE);
+        opened.openedNanos = nowNanos;
+        current = opened;
+        currentFile = opened.path;
+        prepareNext();
+        try {
+            roller.execute(finished.buffer::force);
+        } catch (RejectedExecutionException e) {
+            // Closing; close() forces the current file only
+        }
+        return opened;
+    }
+
+    private void prepareNext() {
+        long sequence = nextSequence++;
+        CompletableFuture<Segment> future = new CompletableFuture<>();
+        try {
+            roller.execute(() -> {
+                try {
+                    future.complete(open(sequence));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        next = future;
+    }
+
+    private Segment open(long sequence) throws IOException {
+        Path path = directory.resolve(fileName(sequence));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        // Fault every page in now, so the read thread never takes a page fault on append
+        for (int offset = HEADER_LENGTH + PAGE_SIZE; offset < fileSize; offset += PAGE_SIZE) {
+            buffer.put(offset, (byte) 0);
+        }
+        long openedNanos = System.nanoTime();
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, System.currentTimeMillis() * 1_000_000L);
+        buffer.putLong(16, openedNanos);
+        buffer.putLong(24, sessionId);
+        filesCreated++;
+        if (currentFile == null) {
+            currentFile = path;
+        }
+        return new Segment(path, buffer, openedNanos);
+    }
+
+    static String fileName(long sequence) {
+        return String.format("%s%010d%s", FILE_PREFIX, sequence, FILE_SUFFIX);
+    }
+
+    static boolean isJournalFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+    }
+
+    private static long lastSequence(Path directory) throws IOException {
+        long last = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (!isJournalFile(file)) {
+                    continue;
+                }
+                String name = file.getFileName().toString();
+                try {
+                    last = Math.max(last, Long.parseLong(
+                            name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return last;
+    }
+
+    static int align(int length) {
+        return (length + 3) & ~3;
+    }
+
+    private static final class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        // Start of the roll window; reset when a file mapped in advance becomes current
+        long openedNanos;
+        int position = HEADER_LENGTH;
+
+        Segment(Path path, MappedByteBuffer buffer, long openedNanos) {
+            this.path = path;
+            this.buffer = buffer;
+            this.openedNanos = openedNanos;
+        }
+    }
+}
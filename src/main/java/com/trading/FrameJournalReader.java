@@ -0,0 +1,211 @@
+package com.trading;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the records written by {@link FrameJournal}, file by file in sequence order.
+ * Safe to use while the journal is still being written: a record becomes visible only
+ * once its length has been published, and {@link #next()} returns false at the live
+ * tail until more is written.
+ *
+ * <pre>
+ *   try (FrameJournalReader reader = new FrameJournalReader(dir)) {
+ *       while (reader.next()) {
+ *           process(reader.getReceivedNanos(), reader.getFrame());
+ *       }
+ *   }
+ * </pre>
+ */
+public final class FrameJournalReader implements AutoCloseable {
+    private static final VarHandle INT_LE =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path directory;
+    private final List<Path> files = new ArrayList<>();
+    private int fileIndex = -1;
+
+    private MappedByteBuffer buffer;
+    private ByteBuffer frameView;
+    private int position;
+    private long baseEpochNanos;
+    private long baseNanoTime;
+    private long sessionId;
+    private long receivedNanos;
+
+    /**
+     * @param path a journal directory, or a single journal file
+     */
+    public FrameJournalReader(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            this.directory = path;
+            files.addAll(journalFiles(path));
+        } else {
+            this.directory = null;
+            files.add(path);
+        }
+    }
+
+    /**
+     * @return the journal files in {@code directory}, oldest first
+     */
+    public static List<Path> journalFiles(Path directory) throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (FrameJournal.isJournalFile(file)) {
+                    found.add(file);
+                }
+            }
+        }
+        // Sequence numbers are zero-padded, so name order is write order
+        Collections.sort(found);
+        return found;
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false when no complete record follows yet
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (buffer == null && !openNextFile()) {
+                return false;
+            }
+            int length = position + Integer.BYTES <= buffer.capacity()
+                    ? (int) INT_LE.getAcquire(buffer, position)
+                    : 0;
+            if (length > 0 && position + FrameJournal.RECORD_HEADER_LENGTH + length <= buffer.capacity()) {
+                receivedNanos = buffer.getLong(position + Integer.BYTES);
+                int start = position + FrameJournal.RECORD_HEADER_LENGTH;
+                frameView.limit(start + length).position(start);
+                position += FrameJournal.align(FrameJournal.RECORD_HEADER_LENGTH + length);
+                return true;
+            }
+            if (length == 0 && !laterFileHasRecords()) {
+                // Live tail, or the end of the journal
+                return false;
+            }
+            // Rolled over, or the writer stopped without closing this file
+            buffer = null;
+        }
+    }
+
+    /**
+     * @return the current record's payload; valid until the next call to {@link #next()}
+     */
+    public ByteBuffer getFrame() {
+        return frameView;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the current record was received
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    /**
+     * @return the receive time of the current record in nanoseconds since the epoch
+     */
+    public long getReceivedEpochNanos() {
+        return baseEpochNanos + (receivedNanos - baseNanoTime);
+    }
+
+    /**
+     * @return the id shared by every file the current record's journal wrote; it changes
+     *         where one capture ends and another begins
+     */
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public Path getCurrentFile() {
+        return fileIndex >= 0 && fileIndex < files.size() ? files.get(fileIndex) : null;
+    }
+
+    @Override
+    public void close() {
+        buffer = null;
+        frameView = null;
+    }
+
+    // A zero length is either the live tail or a file whose writer died. The writer maps
+    // its next file before it is needed, so only a later file that already holds a
+    // record proves this one is finished.
+    private boolean laterFileHasRecords() throws IOException {
+        refreshFiles();
+        ByteBuffer first = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = fileIndex + 1; i < files.size(); i++) {
+            try (FileChannel channel = FileChannel.open(files.get(i), StandardOpenOption.READ)) {
+                first.clear();
+                channel.read(first, FrameJournal.HEADER_LENGTH);
+            }
+            if (!first.hasRemaining() && first.getInt(0) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Picks up files the writer created since the directory was listed
+    private void refreshFiles() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Path last = files.isEmpty() ? null : files.get(files.size() - 1);
+        for (Path file : journalFiles(directory)) {
+            if (last == null || file.compareTo(last) > 0) {
+                files.add(file);
+            }
+        }
+    }
+
+    private boolean openNextFile() throws IOException {
+        if (fileIndex + 1 >= files.size()) {
+            refreshFiles();
+        }
+        while (fileIndex + 1 < files.size()) {
+            Path file = files.get(++fileIndex);
+            MappedByteBuffer mapped;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() < FrameJournal.HEADER_LENGTH) {
+                    continue;
+                }
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+            }
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt(0) == 0) {
+                // Mapped in advance and never used
+                continue;
+            }
+            if (mapped.getInt(0) != FrameJournal.MAGIC) {
+                throw new IOException("Not a frame journal: " + file);
+            }
+            if (mapped.getInt(4) != FrameJournal.VERSION) {
+                throw new IOException("Unsupported journal version " + mapped.getInt(4) + ": " + file);
+            }
+            baseEpochNanos = mapped.getLong(8);
+            baseNanoTime = mapped.getLong(16);
+            sessionId = mapped.getLong(24);
+            buffer = mapped;
+            frameView = mapped.duplicate();
+            position = FrameJournal.HEADER_LENGTH;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,107 @@
+package com.trading;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Open-addressing map from a packed (mktSegId, token) key to a dense slot number 0..capacity-1.
+// One thread inserts; any number of threads may look up concurrently. Slots are never removed,
+// so per-instrument state can live in flat primitive arrays indexed by slot.
+//
+// Every long is a valid key (key(-1, -1) is -1L), so occupancy is tracked in the slot table:
+// a bucket holds slot + 1 once its key is published, and 0 while empty.
+final class InstrumentIndex {
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final long[] keys;
+    private final int[] slots;
+    private final long[] slotKeys;
+    private final int mask;
+    private volatile int size;
+
+    InstrumentIndex(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+        this.keys = new long[tableSize];
+        this.slots = new int[tableSize];
+        this.slotKeys = new long[capacity];
+        this.mask = tableSize - 1;
+    }
+
+    static long key(int mktSegId, int token) {
+        return ((long) mktSegId << 32) | (token & 0xFFFFFFFFL);
+    }
+
+    static int mktSegId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int token(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Returns the slot for {@code key}, or -1 if it has not been inserted.
+     */
+    int get(long key) {
+        int position = hash(key) & mask;
+        while (true) {
+            int occupied = (int) SLOTS.getAcquire(slots, position);
+            if (occupied == 0) {
+                return -1;
+            }
+            if (keys[position] == key) {
+                return occupied - 1;
+            }
+            position = (position + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the slot for {@code key}, inserting it if needed. Returns -1 when the index
+     * is full. Must only be called from the owning writer thread.
+     */
+    int getOrInsert(long key) {
+        int position = hash(key) & mask;
+        while (true) {
+            int occupied = slots[position];
+            if (occupied == 0) {
+                int slot = size;
+                if (slot == slotKeys.length) {
+                    return -1;
+                }
+                slotKeys[slot] = key;
+                keys[position] = key;
+                SLOTS.setRelease(slots, position, slot + 1);
+                size = slot + 1;
+                return slot;
+            }
+            if (keys[position] == key) {
+                return occupied - 1;
+            }
+            position = (position + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return slotKeys.length;
+    }
+
+    long keyAt(int slot) {
+        return slotKeys[slot];
+    }
+
+    static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,144 @@
+package com.trading;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Latest touchline per (mktSegId, token), updated by the feed thread and readable
+ * from any thread.
+ *
+ * Instruments are mapped to dense slots through a primitive open-addressing index,
+ * and all fields of a slot live side by side in one flat {@code int[]}, so memory is
+ * fixed at construction and does not grow with the number of updates. Each slot has
+ * a sequence number used as a seqlock: the writer never blocks, and readers retry
+ * until they copy a consistent set of fields.
+ */
+public final class LastValueCache {
+    static final int MESSAGE_TYPE = 0;
+    static final int MKT_SEG_ID = 1;
+    static final int TOKEN = 2;
+    static final int LUT = 3;
+    static final int LTT = 4;
+    static final int LTP = 5;
+    static final int BUY_QTY = 6;
+    static final int BUY_PRICE = 7;
+    static final int SELL_QTY = 8;
+    static final int SELL_PRICE = 9;
+    static final int OPEN_PRICE = 10;
+    static final int HIGH_PRICE = 11;
+    static final int LOW_PRICE = 12;
+    static final int CLOSE_PRICE = 13;
+    static final int DECIMAL_LOCATOR = 14;
+    static final int PREV_CLOSE_PRICE = 15;
+    static final int INDICATIVE_CLOSE_PRICE = 16;
+    static final int FIELD_COUNT = 17;
+
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final InstrumentIndex index;
+    private final int[] values;
+    // Even: stable, odd: write in progress. Sequence / 2 is the number of updates.
+    private final long[] sequences;
+    private final NseTimestampCodec timestampCodec = new NseTimestampCodec();
+
+    public LastValueCache(int capacity) {
+        this.index = new InstrumentIndex(capacity);
+        this.values = new int[capacity * FIELD_COUNT];
+        this.sequences = new long[capacity];
+    }
+
+    /**
+     * Stores the tick. Must only be called from a single writer thread.
+     *
+     * @return the instrument's slot, or -1 if the cache is full
+     */
+    public int update(MarketData tick) {
+        int slot = index.getOrInsert(InstrumentIndex.key(tick.getMktSegId(), tick.getToken()));
+        if (slot < 0) {
+            return -1;
+        }
+
+        long sequence = sequences[slot];
+        SEQUENCE.setOpaque(sequences, slot, sequence + 1);
+        VarHandle.storeStoreFence();
+
+        int base = slot * FIELD_COUNT;
+        values[base + MESSAGE_TYPE] = tick.getMessageType();
+        values[base + MKT_SEG_ID] = tick.getMktSegId();
+        values[base + TOKEN] = tick.getToken();
+        values[base + LUT] = (int) tick.getLut();
+        values[base + LTT] = (int) tick.getLtt();
+        values[base + LTP] = tick.getLtp();
+        values[base + BUY_QTY] = tick.getBuyQty();
+        values[base + BUY_PRICE] = tick.getBuyPrice();
+        values[base + SELL_QTY] = tick.getSellQty();
+        values[base + SELL_PRICE] = tick.getSellPrice();
+        values[base + OPEN_PRICE] = tick.getOpenPrice();
+        values[base + HIGH_PRICE] = tick.getHighPrice();
+        values[base + LOW_PRICE] = tick.getLowPrice();
+        values[base + CLOSE_PRICE] = tick.getClosePrice();
+        values[base + DECIMAL_LOCATOR] = tick.getDecimalLocator();
+        values[base + PREV_CLOSE_PRICE] = tick.getPrevClosePrice();
+        values[base + INDICATIVE_CLOSE_PRICE] = tick.getIndicativeClosePrice();
+
+        SEQUENCE.setRelease(sequences, slot, sequence + 2);
+        return slot;
+    }
+
+    /**
+     * Copies the latest values of an instrument into {@code snapshot}.
+     *
+     * @return false if no tick has been seen for the instrument
+     */
+    public boolean read(int mktSegId, int token, TouchlineSnapshot snapshot) {
+        int slot = index.get(InstrumentIndex.key(mktSegId, token));
+        return slot >= 0 && readSlot(slot, snapshot);
+    }
+
+    /**
+     * Copies the latest values stored in {@code slot} (0 until {@link #size()}).
+     */
+    public boolean readSlot(int slot, TouchlineSnapshot snapshot) {
+        if (slot < 0 || slot >= index.size()) {
+            return false;
+        }
+        int base = slot * FIELD_COUNT;
+        int[] fields = snapshot.fields;
+        while (true) {
+            long before = (long) SEQUENCE.getAcquire(sequences, slot);
+            if (before == 0) {
+                return false;
+            }
+            if ((before & 1) == 0) {
+                System.arraycopy(values, base, fields, 0, FIELD_COUNT);
+                VarHandle.loadLoadFence();
+                if ((long) SEQUENCE.getOpaque(sequences, slot) == before) {
+                    snapshot.version = before >>> 1;
+                    snapshot.setTimestampCodec(timestampCodec);
+                    return true;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Number of updates applied to an instrument, or 0 if it has never ticked.
+     * Cheap way for pollers to see whether anything changed since the last read.
+     */
+    public long getVersion(int mktSegId, int token) {
+        int slot = index.get(InstrumentIndex.key(mktSegId, token));
+        return slot < 0 ? 0 : ((long) SEQUENCE.getAcquire(sequences, slot)) >>> 1;
+    }
+
+    /**
+     * Number of instruments seen so far.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    public int capacity() {
+        return index.capacity();
+    }
+}
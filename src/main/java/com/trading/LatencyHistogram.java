@@ -0,0 +1,101 @@
+package com.trading;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of nanosecond latencies with log-scaled buckets.
+ *
+ * Every power of two is split into 16 linear sub-buckets, so a reported percentile
+ * is at most 1/16 (about 6%) above the true value. Values up to about two hours
+ * (2^43 ns) are kept; larger ones are counted in the top bucket. Recording is one
+ * atomic increment plus a CAS only when a new maximum is seen, and can run on any
+ * number of threads.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 42;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketIndex(nanos));
+        sum.add(nanos);
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    public LatencySnapshot snapshot() {
+        return read(false);
+    }
+
+    /**
+     * Takes a snapshot and clears the histogram. Values recorded while this runs end
+     * up in either this snapshot or the next one, never in both.
+     */
+    public LatencySnapshot snapshotAndReset() {
+        return read(true);
+    }
+
+    private LatencySnapshot read(boolean reset) {
+        long[] copy = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+            total += copy[i];
+        }
+        long maxValue = reset ? max.getAndSet(0) : max.get();
+        long sumValue = reset ? sum.sumThenReset() : sum.sum();
+        return new LatencySnapshot(total, total == 0 ? 0 : sumValue / total,
+                percentile(copy, total, 0.50, maxValue), percentile(copy, total, 0.99, maxValue),
+                percentile(copy, total, 0.999, maxValue), maxValue);
+    }
+
+    // Upper bound of the bucket holding the given rank, capped at the maximum
+    private static long percentile(long[] copy, long total, double quantile, long maxValue) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < copy.length; i++) {
+            seen += copy[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+}
@@ -0,0 +1,136 @@
+package com.trading;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latency histograms for three stages of every packet, kept per 64= message type and
+ * per market segment:
+ * <ul>
+ * <li>{@link Stage#RECEIVE_TO_DECODE}: socket frame received until the packet is
+ * decoded and caches/books are updated</li>
+ * <li>{@link Stage#DECODE_TO_CALLBACK}: decoded until the user callbacks start, which
+ * includes any time spent in a dispatcher queue</li>
+ * <li>{@link Stage#EXCHANGE_TO_CALLBACK}: the touchline's LUT until the callbacks
+ * start. LUT has one-second resolution, so this stage is only meaningful at the
+ * millisecond-to-second scale and depends on clock sync with the exchange.</li>
+ * </ul>
+ * Segments are only known for binary touchlines and best-five updates. Enable with
+ * {@link ODINMarketFeedClient#enableLatencyTracking()}.
+ */
+public final class LatencyRecorder {
+    public enum Stage {
+        RECEIVE_TO_DECODE,
+        DECODE_TO_CALLBACK,
+        EXCHANGE_TO_CALLBACK
+    }
+
+    static final int NO_SEGMENT = -1;
+    private static final int TYPE_SLOTS = 1024;
+    private static final int SEGMENT_SLOTS = 256;
+    private static final int UNKNOWN_TYPE = -1;
+
+    // [stage][type] flattened; the extra slot per stage collects unknown types
+    private final AtomicReferenceArray<LatencyHistogram> byType =
+            new AtomicReferenceArray<>(Stage.values().length * (TYPE_SLOTS + 1));
+    private final AtomicReferenceArray<LatencyHistogram> bySegment =
+            new AtomicReferenceArray<>(Stage.values().length * SEGMENT_SLOTS);
+
+    LatencyRecorder() {
+    }
+
+    void record(Stage stage, int messageType, int mktSegId, long nanos) {
+        int typeSlot = messageType >= 0 && messageType < TYPE_SLOTS ? messageType : TYPE_SLOTS;
+        histogram(byType, stage.ordinal() * (TYPE_SLOTS + 1) + typeSlot).record(nanos);
+        if (mktSegId >= 0 && mktSegId < SEGMENT_SLOTS) {
+            histogram(bySegment, stage.ordinal() * SEGMENT_SLOTS + mktSegId).record(nanos);
+        }
+    }
+
+    public Report snapshot() {
+        return read(false);
+    }
+
+    /**
+     * Snapshot of every histogram, clearing them so the next report covers only the
+     * time since this one.
+     */
+    public Report snapshotAndReset() {
+        return read(true);
+    }
+
+    private Report read(boolean reset) {
+        Report report = new Report();
+        for (Stage stage : Stage.values()) {
+            Map<Integer, LatencySnapshot> types = new TreeMap<>();
+            for (int slot = 0; slot <= TYPE_SLOTS; slot++) {
+                LatencyHistogram histogram = byType.get(stage.ordinal() * (TYPE_SLOTS + 1) + slot);
+                if (histogram != null) {
+                    types.put(slot == TYPE_SLOTS ? UNKNOWN_TYPE : slot, take(histogram, reset));
+                }
+            }
+            Map<Integer, LatencySnapshot> segments = new TreeMap<>();
+            for (int slot = 0; slot < SEGMENT_SLOTS; slot++) {
+                LatencyHistogram histogram = bySegment.get(stage.ordinal() * SEGMENT_SLOTS + slot);
+                if (histogram != null) {
+                    segments.put(slot, take(histogram, reset));
+                }
+            }
+            report.byType.put(stage, Collections.unmodifiableMap(types));
+            report.bySegment.put(stage, Collections.unmodifiableMap(segments));
+        }
+        return report;
+    }
+
+    private static LatencySnapshot take(LatencyHistogram histogram, boolean reset) {
+        return reset ? histogram.snapshotAndReset() : histogram.snapshot();
+    }
+
+    private static LatencyHistogram histogram(AtomicReferenceArray<LatencyHistogram> histograms, int index) {
+        LatencyHistogram histogram = histograms.get(index);
+        if (histogram == null) {
+            histograms.compareAndSet(index, null, new LatencyHistogram());
+            histogram = histograms.get(index);
+        }
+        return histogram;
+    }
+
+    /**
+     * Per-stage summaries keyed by message type (-1 for packets without a known type)
+     * and by market segment.
+     */
+    public static final class Report {
+        private final Map<Stage, Map<Integer, LatencySnapshot>> byType = new EnumMap<>(Stage.class);
+        private final Map<Stage, Map<Integer, LatencySnapshot>> bySegment = new EnumMap<>(Stage.class);
+
+        Report() {
+        }
+
+        public Map<Integer, LatencySnapshot> getByType(Stage stage) {
+            return byType.get(stage);
+        }
+
+        public Map<Integer, LatencySnapshot> getBySegment(Stage stage) {
+            return bySegment.get(stage);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (Stage stage : Stage.values()) {
+                for (Map.Entry<Integer, LatencySnapshot> entry : byType.get(stage).entrySet()) {
+                    text.append(stage).append(" 64=").append(entry.getKey()).append(": ")
+                            .append(entry.getValue()).append('\n');
+                }
+                for (Map.Entry<Integer, LatencySnapshot> entry : bySegment.get(stage).entrySet()) {
+                    text.append(stage).append(" segment ").append(entry.getKey()).append(": ")
+                            .append(entry.getValue()).append('\n');
+                }
+            }
+            return text.toString();
+        }
+    }
+}
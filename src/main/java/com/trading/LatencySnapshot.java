@@ -0,0 +1,52 @@
+package com.trading;
+
+/**
+ * Summary of a {@link LatencyHistogram}; all values in nanoseconds.
+ */
+public final class LatencySnapshot {
+    private final long count;
+    private final long mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    LatencySnapshot(long count, long mean, long p50, long p99, long p999, long max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", count, p50 / 1e3,
+                p99 / 1e3, p999 / 1e3, max / 1e3);
+    }
+}
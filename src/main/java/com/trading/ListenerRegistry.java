@@ -0,0 +1,251 @@
+package com.trading;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+import com.trading.callback.OnPacketCallback;
+import com.trading.callback.OnTickCallback;
+
+/**
+ * Routes each packet only to the listeners registered for its instrument, its
+ * segment or its {@code 64=} message type. Enable with
+ * {@link ODINMarketFeedClient#enableListenerRegistry}.
+ *
+ * Instruments and segments are mapped to dense slots through a primitive
+ * open-addressing index, and each slot holds a copy-on-write array of listeners;
+ * message types index arrays directly. Routing a tick is a fixed number of lookups
+ * followed by calls to exactly the interested listeners, however many listeners are
+ * registered for other keys. Registration copies the one affected array and may be
+ * done from any thread, while packets are flowing.
+ *
+ * Tick listeners receive touchline packets as a reused {@link MarketData}; packet
+ * listeners receive the raw bytes of any message type, such as best-five. Listeners
+ * run on the thread that delivers callbacks: the read thread, or the dispatcher
+ * thread or lane when one is enabled.
+ */
+public final class ListenerRegistry {
+    private static final int SEGMENT_CAPACITY = 256;
+    private static final OnTickCallback[] NO_TICK_LISTENERS = new OnTickCallback[0];
+    private static final OnPacketCallback[] NO_PACKET_LISTENERS = new OnPacketCallback[0];
+    private static final VarHandle TICK_LISTENERS = MethodHandles.arrayElementVarHandle(OnTickCallback[][].class);
+
+    private final InstrumentIndex instruments;
+    private final OnTickCallback[][] byInstrument;
+    private final InstrumentIndex segments;
+    private final OnTickCallback[][] bySegment;
+    private volatile OnTickCallback[][] byType = new OnTickCallback[0][];
+    private volatile OnPacketCallback[][] packetsByType = new OnPacketCallback[0][];
+    private volatile int tickListenerCount;
+    private volatile int packetListenerCount;
+
+    /**
+     * @param instrumentCapacity most distinct instruments that can ever have listeners
+     */
+    public ListenerRegistry(int instrumentCapacity) {
+        this.instruments = new InstrumentIndex(instrumentCapacity);
+        this.byInstrument = new OnTickCallback[instrumentCapacity][];
+        this.segments = new InstrumentIndex(SEGMENT_CAPACITY);
+        this.bySegment = new OnTickCallback[SEGMENT_CAPACITY][];
+    }
+
+    /**
+     * Calls {@code listener} for every touchline of one instrument.
+     *
+     * @throws IllegalStateException if the registry already holds its capacity of instruments
+     */
+    public synchronized void addInstrumentListener(int mktSegId, int token, OnTickCallback listener) {
+        int slot = instruments.getOrInsert(InstrumentIndex.key(mktSegId, token));
+        if (slot < 0) {
+            throw new IllegalStateException("Listener registry is full (" + instruments.capacity() + " instruments)");
+        }
+        addTo(byInstrument, slot, listener);
+    }
+
+    public synchronized boolean removeInstrumentListener(int mktSegId, int token, OnTickCallback listener) {
+        return removeFrom(byInstrument, instruments.get(InstrumentIndex.key(mktSegId, token)), listener);
+    }
+
+    /**
+     * Calls {@code listener} for every touchline of one market segment.
+     */
+    public synchronized void addSegmentListener(int mktSegId, OnTickCallback listener) {
+        int slot = segments.getOrInsert(InstrumentIndex.key(mktSegId, 0));
+        if (slot < 0) {
+            throw new IllegalStateException("Listener registry is full (" + SEGMENT_CAPACITY + " segments)");
+        }
+        addTo(bySegment, slot, listener);
+    }
+
+    public synchronized boolean removeSegmentListener(int mktSegId, OnTickCallback listener) {
+        return removeFrom(bySegment, segments.get(InstrumentIndex.key(mktSegId, 0)), listener);
+    }
+
+    /**
+     * Calls {@code listener} for every touchline of one {@code 64=} message type (see
+     * {@link MessageTypes}).
+     */
+    public synchronized void addMessageTypeListener(int messageType, OnTickCallback listener) {
+        OnTickCallback[][] table = widen(byType, messageType);
+        OnTickCallback[] current = table[messageType];
+        table[messageType] = append(current != null ? current : NO_TICK_LISTENERS, listener);
+        byType = table;
+        tickListenerCount++;
+    }
+
+    public synchronized boolean removeMessageTypeListener(int messageType, OnTickCallback listener) {
+        OnTickCallback[][] table = byType;
+        if (messageType < 0 || messageType >= table.length || table[messageType] == null) {
+            return false;
+        }
+        OnTickCallback[] updated = without(table[messageType], listener);
+        if (updated == null) {
+            return false;
+        }
+        table = table.clone();
+        table[messageType] = updated;
+        byType = table;
+        tickListenerCount--;
+        return true;
+    }
+
+    /**
+     * Calls {@code listener} with the raw bytes of every packet of one {@code 64=}
+     * message type, touchline or not.
+     */
+    public synchronized void addPacketListener(int messageType, OnPacketCallback listener) {
+        OnPacketCallback[][] table = widen(packetsByType, messageType);
+        OnPacketCallback[] current = table[messageType];
+        table[messageType] = append(current != null ? current : NO_PACKET_LISTENERS, listener);
+        packetsByType = table;
+        packetListenerCount++;
+    }
+
+    public synchronized boolean removePacketListener(int messageType, OnPacketCallback listener) {
+        OnPacketCallback[][] table = packetsByType;
+        if (messageType < 0 || messageType >= table.length || table[messageType] == null) {
+            return false;
+        }
+        OnPacketCallback[] updated = without(table[messageType], listener);
+        if (updated == null) {
+            return false;
+        }
+        table = table.clone();
+        table[messageType] = updated;
+        packetsByType = table;
+        packetListenerCount--;
+        return true;
+    }
+
+    /**
+     * Number of registrations of all kinds.
+     */
+    public int getListenerCount() {
+        return tickListenerCount + packetListenerCount;
+    }
+
+    // True if a packet of this type could reach any listener
+    boolean wants(int messageType) {
+        if (tickListenerCount > 0) {
+            return true;
+        }
+        if (packetListenerCount == 0) {
+            return false;
+        }
+        OnPacketCallback[][] table = packetsByType;
+        return messageType >= 0 && messageType < table.length && table[messageType] != null
+                && table[messageType].length > 0;
+    }
+
+    boolean hasTickListeners() {
+        return tickListenerCount > 0;
+    }
+
+    void routePacket(byte[] packet, int offset, int length, int messageType) {
+        if (packetListenerCount == 0) {
+            return;
+        }
+        OnPacketCallback[][] table = packetsByType;
+        if (messageType >= 0 && messageType < table.length && table[messageType] != null) {
+            for (OnPacketCallback listener : table[messageType]) {
+                listener.onPacket(packet, offset, length);
+            }
+        }
+    }
+
+    void routeTick(MarketData tick) {
+        int mktSegId = tick.getMktSegId();
+        int slot = instruments.get(InstrumentIndex.key(mktSegId, tick.getToken()));
+        if (slot >= 0) {
+            call(listenersAt(byInstrument, slot), tick);
+        }
+        slot = segments.get(InstrumentIndex.key(mktSegId, 0));
+        if (slot >= 0) {
+            call(listenersAt(bySegment, slot), tick);
+        }
+        OnTickCallback[][] types = byType;
+        int messageType = tick.getMessageType();
+        if (messageType >= 0 && messageType < types.length) {
+            call(types[messageType], tick);
+        }
+    }
+
+    private static void call(OnTickCallback[] listeners, MarketData tick) {
+        if (listeners != null) {
+            for (OnTickCallback listener : listeners) {
+                listener.onTick(tick);
+            }
+        }
+    }
+
+    private static OnTickCallback[] listenersAt(OnTickCallback[][] table, int slot) {
+        return (OnTickCallback[]) TICK_LISTENERS.getAcquire(table, slot);
+    }
+
+    private void addTo(OnTickCallback[][] table, int slot, OnTickCallback listener) {
+        OnTickCallback[] current = table[slot];
+        TICK_LISTENERS.setRelease(table, slot, append(current != null ? current : NO_TICK_LISTENERS, listener));
+        tickListenerCount++;
+    }
+
+    private boolean removeFrom(OnTickCallback[][] table, int slot, OnTickCallback listener) {
+        if (slot < 0 || table[slot] == null) {
+            return false;
+        }
+        OnTickCallback[] updated = without(table[slot], listener);
+        if (updated == null) {
+            return false;
+        }
+        TICK_LISTENERS.setRelease(table, slot, updated);
+        tickListenerCount--;
+        return true;
+    }
+
+    private static <T> T[][] widen(T[][] table, int messageType) {
+        if (messageType < 0) {
+            throw new IllegalArgumentException("Invalid message type: " + messageType);
+        }
+        return Arrays.copyOf(table, Math.max(table.length, messageType + 1));
+    }
+
+    private static <T> T[] append(T[] listeners, T listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        T[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        return updated;
+    }
+
+    // Returns null if the listener is not registered
+    private static <T> T[] without(T[] listeners, T listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                T[] updated = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+                return updated;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.trading;
+
+/**
+ * Decoded touchline (the binary block after {@code |50=}).
+ *
+ * Prices are integers in the exchange's smallest unit; divide by
+ * {@link #getDecimalLocator()} to get the displayed price. LUT and LTT are
+ * seconds since 1980-01-01, the NSE epoch; see {@link NseTimestampCodec}.
+ *
+ * Instances handed to {@link com.trading.callback.OnTickCallback} are reused
+ * flyweights over the packet bytes and are only valid inside the callback.
+ */
+public interface MarketData {
+    int getMessageType();
+
+    int getMktSegId();
+
+    int getToken();
+
+    long getLut();
+
+    long getLtt();
+
+    /** LUT converted to milliseconds since the Unix epoch. */
+    long getLutEpochMillis();
+
+    /** LTT converted to milliseconds since the Unix epoch. */
+    long getLttEpochMillis();
+
+    int getLtp();
+
+    int getBuyQty();
+
+    int getBuyPrice();
+
+    int getSellQty();
+
+    int getSellPrice();
+
+    int getOpenPrice();
+
+    int getHighPrice();
+
+    int getLowPrice();
+
+    int getClosePrice();
+
+    int getDecimalLocator();
+
+    int getPrevClosePrice();
+
+    int getIndicativeClosePrice();
+}
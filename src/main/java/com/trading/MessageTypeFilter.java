@@ -0,0 +1,32 @@
+package com.trading;
+
+import java.util.BitSet;
+
+// Set of 64= message types a callback wants. An empty set means every type.
+final class MessageTypeFilter {
+    static final MessageTypeFilter ALL = new MessageTypeFilter(null);
+
+    private final BitSet types;
+
+    private MessageTypeFilter(BitSet types) {
+        this.types = types;
+    }
+
+    static MessageTypeFilter of(int... messageTypes) {
+        if (messageTypes == null || messageTypes.length == 0) {
+            return ALL;
+        }
+        BitSet types = new BitSet();
+        for (int type : messageTypes) {
+            if (type < 0) {
+                throw new IllegalArgumentException("Invalid message type: " + type);
+            }
+            types.set(type);
+        }
+        return new MessageTypeFilter(types);
+    }
+
+    boolean accepts(int messageType) {
+        return types == null || (messageType >= 0 && types.get(messageType));
+    }
+}
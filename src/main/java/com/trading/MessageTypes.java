@@ -0,0 +1,17 @@
+package com.trading;
+
+/**
+ * FT3.0 message codes carried in the {@code 64=} tag.
+ * Use them to restrict callbacks to the packets you actually consume.
+ */
+public final class MessageTypes {
+    public static final int LOGIN = 101;
+    public static final int PAUSE_RESUME = 106;
+    public static final int BEST_FIVE = 127;
+    public static final int TOUCHLINE = 206;
+    public static final int LTP_TOUCHLINE = 347;
+    public static final int TOUCHLINE_SNAPSHOT = 348;
+
+    private MessageTypes() {
+    }
+}
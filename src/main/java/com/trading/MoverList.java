@@ -0,0 +1,91 @@
+package com.trading;
+
+/**
+ * Result of a {@link TopMoversIndex} query, best first. Reuse one instance per
+ * reader to keep queries allocation-free.
+ *
+ * Prices are in paise, as sent.
+ */
+public final class MoverList {
+    final int[] mktSegIds;
+    final int[] tokens;
+    final int[] ltps;
+    final int[] prevClosePrices;
+    final long[] changePpm;
+    final long[] trades;
+    int size;
+
+    /**
+     * @param capacity most entries a query can return
+     */
+    public MoverList(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.mktSegIds = new int[capacity];
+        this.tokens = new int[capacity];
+        this.ltps = new int[capacity];
+        this.prevClosePrices = new int[capacity];
+        this.changePpm = new long[capacity];
+        this.trades = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return tokens.length;
+    }
+
+    public int getMktSegId(int i) {
+        return mktSegIds[check(i)];
+    }
+
+    public int getToken(int i) {
+        return tokens[check(i)];
+    }
+
+    public int getLtp(int i) {
+        return ltps[check(i)];
+    }
+
+    public int getPrevClosePrice(int i) {
+        return prevClosePrices[check(i)];
+    }
+
+    /**
+     * @return change of LTP against the previous close, in percent
+     */
+    public double getPercentChange(int i) {
+        return changePpm[check(i)] / 10_000.0;
+    }
+
+    /**
+     * @return touchlines with a new LTT or LTP since the index was created
+     */
+    public long getTrades(int i) {
+        return trades[check(i)];
+    }
+
+    private int check(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Entry " + i + " outside 0.." + size);
+        }
+        return i;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("MoverList{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(mktSegIds[i]).append(':').append(tokens[i])
+                    .append(' ').append(String.format("%.2f%%", getPercentChange(i)))
+                    .append(" x").append(trades[i]);
+        }
+        return text.append('}').toString();
+    }
+}
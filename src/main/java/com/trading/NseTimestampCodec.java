@@ -0,0 +1,190 @@
+package com.trading;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Converts the feed's LUT/LTT values (seconds since 1980-01-01 00:00 local time,
+ * the NSE epoch) to epoch milliseconds and renders them as text.
+ *
+ * Conversion is plain arithmetic. Rendering keeps the current day's
+ * {@code "yyyy-MM-dd "} prefix and the last rendered second, so consecutive ticks
+ * in the same second or day cost a couple of array writes instead of a
+ * {@code SimpleDateFormat}.
+ *
+ * Instances cache state and are not thread-safe; use one per thread.
+ */
+public final class NseTimestampCodec {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final int DATE_TIME_LENGTH = 17; // yyyy-MM-dd HHmmss
+    private static final int TIME_LENGTH = 8;       // HH:mm:ss
+
+    private final ZoneRules rules;
+    private final long nseEpochMillis;
+
+    // Range of epoch millis [windowStart, windowEnd) that share one local date and UTC offset
+    private long windowStart = Long.MAX_VALUE;
+    private long windowEnd = Long.MIN_VALUE;
+    private long windowOffsetMillis;
+    private final char[] dateTime = new char[DATE_TIME_LENGTH];
+    private final char[] time = new char[TIME_LENGTH];
+
+    // NSE second currently rendered in dateTime
+    private long renderedSecond = Long.MIN_VALUE;
+    private long lastDateTimeSecond = Long.MIN_VALUE;
+    private String lastDateTimeString;
+    private long lastTimeSecond = Long.MIN_VALUE;
+    private String lastTimeString;
+
+    public NseTimestampCodec() {
+        this(ZoneId.systemDefault());
+    }
+
+    public NseTimestampCodec(ZoneId zone) {
+        this.rules = zone.getRules();
+        this.nseEpochMillis = ZonedDateTime.of(1980, 1, 1, 0, 0, 0, 0, zone).toInstant().toEpochMilli();
+        dateTime[4] = '-';
+        dateTime[7] = '-';
+        dateTime[10] = ' ';
+        time[2] = ':';
+        time[5] = ':';
+    }
+
+    public long toEpochMillis(long nseSeconds) {
+        return nseEpochMillis + nseSeconds * 1000L;
+    }
+
+    public long toNseSeconds(long epochMillis) {
+        return Math.floorDiv(epochMillis - nseEpochMillis, 1000L);
+    }
+
+    /**
+     * Appends {@code nseSeconds} as {@code yyyy-MM-dd HHmmss}.
+     */
+    public StringBuilder appendDateTime(long nseSeconds, StringBuilder dst) {
+        renderDateTime(nseSeconds);
+        return dst.append(dateTime);
+    }
+
+    /**
+     * Returns {@code nseSeconds} as {@code yyyy-MM-dd HHmmss}; repeated calls for the
+     * same second return the same String.
+     */
+    public String formatDateTime(long nseSeconds) {
+        if (nseSeconds != lastDateTimeSecond) {
+            renderDateTime(nseSeconds);
+            lastDateTimeString = new String(dateTime);
+            lastDateTimeSecond = nseSeconds;
+        }
+        return lastDateTimeString;
+    }
+
+    /**
+     * Returns the local time of {@code epochMillis} as {@code HH:mm:ss}; repeated calls
+     * within the same second return the same String.
+     */
+    public String formatTime(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000L);
+        if (second != lastTimeSecond) {
+            writeTime(epochMillis);
+            lastTimeString = new String(time);
+            lastTimeSecond = second;
+        }
+        return lastTimeString;
+    }
+
+    /**
+     * Appends the local time of {@code epochMillis} as {@code HH:mm:ss}.
+     */
+    public StringBuilder appendTime(long epochMillis, StringBuilder dst) {
+        writeTime(epochMillis);
+        return dst.append(time);
+    }
+
+    /**
+     * Writes the local time of {@code epochMillis} as ASCII {@code HH:mm:ss} into
+     * {@code dst} at {@code offset}.
+     *
+     * @return the offset just past the written bytes
+     */
+    public int writeTime(long epochMillis, byte[] dst, int offset) {
+        int secondOfDay = secondOfDay(epochMillis);
+        put2(dst, offset, secondOfDay / 3600);
+        dst[offset + 2] = ':';
+        put2(dst, offset + 3, (secondOfDay / 60) % 60);
+        dst[offset + 5] = ':';
+        put2(dst, offset + 6, secondOfDay % 60);
+        return offset + TIME_LENGTH;
+    }
+
+    private void renderDateTime(long nseSeconds) {
+        if (nseSeconds == renderedSecond) {
+            return;
+        }
+        int secondOfDay = secondOfDay(toEpochMillis(nseSeconds));
+        put2(dateTime, 11, secondOfDay / 3600);
+        put2(dateTime, 13, (secondOfDay / 60) % 60);
+        put2(dateTime, 15, secondOfDay % 60);
+        renderedSecond = nseSeconds;
+    }
+
+    private void writeTime(long epochMillis) {
+        int secondOfDay = secondOfDay(epochMillis);
+        put2(time, 0, secondOfDay / 3600);
+        put2(time, 3, (secondOfDay / 60) % 60);
+        put2(time, 6, secondOfDay % 60);
+    }
+
+    private int secondOfDay(long epochMillis) {
+        if (epochMillis < windowStart || epochMillis >= windowEnd) {
+            moveWindow(epochMillis);
+        }
+        long localMillis = epochMillis + windowOffsetMillis;
+        return (int) (Math.floorMod(localMillis, MILLIS_PER_DAY) / 1000L);
+    }
+
+    // Recomputes the cached local date, clipped to the surrounding offset transitions
+    private void moveWindow(long epochMillis) {
+        Instant instant = Instant.ofEpochMilli(epochMillis);
+        long offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1000L;
+        long localDay = Math.floorDiv(epochMillis + offsetMillis, MILLIS_PER_DAY);
+
+        long start = localDay * MILLIS_PER_DAY - offsetMillis;
+        long end = start + MILLIS_PER_DAY;
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        if (next != null && next.toEpochSecond() * 1000L < end) {
+            end = next.toEpochSecond() * 1000L;
+        }
+        ZoneOffsetTransition previous = rules.previousTransition(instant);
+        if (previous != null && previous.toEpochSecond() * 1000L > start) {
+            start = previous.toEpochSecond() * 1000L;
+        }
+
+        LocalDate date = LocalDate.ofEpochDay(localDay);
+        int year = date.getYear();
+        dateTime[0] = (char) ('0' + (year / 1000) % 10);
+        dateTime[1] = (char) ('0' + (year / 100) % 10);
+        put2(dateTime, 2, year % 100);
+        put2(dateTime, 5, date.getMonthValue());
+        put2(dateTime, 8, date.getDayOfMonth());
+
+        windowStart = start;
+        windowEnd = end;
+        windowOffsetMillis = offsetMillis;
+        renderedSecond = Long.MIN_VALUE;
+    }
+
+    private static void put2(char[] dst, int index, int value) {
+        dst[index] = (char) ('0' + value / 10);
+        dst[index + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void put2(byte[] dst, int index, int value) {
+        dst[index] = (byte) ('0' + value / 10);
+        dst[index + 1] = (byte) ('0' + value % 10);
+    }
+}
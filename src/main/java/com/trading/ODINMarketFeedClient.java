@@ -1,82 +1,208 @@
 package com.trading;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Date;
-import java.text.SimpleDateFormat;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
-import java.time.Instant;
+import javax.management.JMException;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.handshake.ServerHandshake;
 
 import com.trading.callback.OnCloseCallback;
+import com.trading.callback.OnDepthCallback;
 import com.trading.callback.OnErrorCallback;
 import com.trading.callback.OnMessageCallback;
 import com.trading.callback.OnOpenCallback;
+import com.trading.callback.OnPacketCallback;
+import com.trading.callback.OnTickCallback;
 
 
-interface MarketData {
-    int getMktSegId();
-
-    int getToken();
-
-    long getLut();
-
-    int getLtp();
-
-    int getClosePrice();
-
-    int getDecimalLocator();
+// Receives inner packets as (buffer, offset, length) views. The buffer belongs to the
+// producer and is overwritten after the call returns, so consumers must copy anything
+// they want to keep.
+interface PacketConsumer {
+    void onPacket(byte[] buffer, int offset, int length);
 }
 
 // ZLIB Compressor class
+//
+// Keeps one Inflater and one Deflater for the lifetime of the connection and resets them
+// between packets instead of paying the native zlib setup for each one. Inflated output is
+// written into a reusable buffer that grows to the largest block seen so far.
+// Inflation runs on the socket read thread only; deflation may be called from any thread.
 class ZLIBCompressor {
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+    private final Inflater inflater = new Inflater();
+    private final Deflater deflater = new Deflater();
+    private byte[] inflateBuffer = new byte[INITIAL_BUFFER_SIZE];
+    private byte[] deflateBuffer = new byte[INITIAL_BUFFER_SIZE];
+    private boolean ended;
 
     public byte[] compress(byte[] data) throws IOException {
-        Deflater deflater = new Deflater();
-        deflater.setInput(data);
-        deflater.finish();
+        synchronized (deflater) {
+            int count = deflate(data, 0, data.length);
+            return Arrays.copyOf(deflateBuffer, count);
+        }
+    }
+
+    /**
+     * Compresses {@code data[offset, offset + length)} into the internal deflate buffer.
+     * The result stays valid until the next deflate call; callers sharing the compressor
+     * across threads must hold its lock while they read it.
+     *
+     * @return number of compressed bytes available from {@link #deflatedBuffer()}
+     */
+    public int deflate(byte[] data, int offset, int length) throws IOException {
+        synchronized (deflater) {
+            ensureOpen();
+            try {
+                deflater.setInput(data, offset, length);
+                deflater.finish();
+
+                int count = 0;
+                while (!deflater.finished()) {
+                    if (count == deflateBuffer.length) {
+                        deflateBuffer = Arrays.copyOf(deflateBuffer, deflateBuffer.length << 1);
+                    }
+                    count += deflater.deflate(deflateBuffer, count, deflateBuffer.length - count);
+                }
+                return count;
+            } finally {
+                deflater.reset();
+            }
+        }
+    }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-        byte[] buffer = new byte[1024];
+    /**
+     * Compresses the remaining bytes of {@code input} into {@code output}. Both buffers may be
+     * direct. Positions are advanced by the number of bytes consumed and produced.
+     *
+     * @return number of compressed bytes written
+     */
+    public int deflate(ByteBuffer input, ByteBuffer output) throws IOException {
+        synchronized (deflater) {
+            ensureOpen();
+            int start = output.position();
+            try {
+                deflater.setInput(input);
+                deflater.finish();
 
-        while (!deflater.finished()) {
-            int count = deflater.deflate(buffer);
-            outputStream.write(buffer, 0, count);
+                while (!deflater.finished()) {
+                    if (!output.hasRemaining()) {
+                        throw new IOException("Compressed data exceeds output buffer");
+                    }
+                    deflater.deflate(output);
+                }
+                return output.position() - start;
+            } finally {
+                deflater.reset();
+            }
         }
+    }
 
-        deflater.end();
-        return outputStream.toByteArray();
+    public byte[] deflatedBuffer() {
+        return deflateBuffer;
     }
 
     public byte[] uncompress(byte[] data) throws IOException {
-        Inflater inflater = new Inflater();
-        inflater.setInput(data);
+        return uncompress(data, 0, data.length);
+    }
+
+    public byte[] uncompress(byte[] data, int offset, int length) throws IOException {
+        int count = inflate(data, offset, length);
+        return Arrays.copyOf(inflateBuffer, count);
+    }
+
+    /**
+     * Inflates {@code data[offset, offset + length)} into the internal inflate buffer.
+     * The result stays valid until the next inflate call.
+     *
+     * @return number of inflated bytes available from {@link #inflatedBuffer()}
+     */
+    public int inflate(byte[] data, int offset, int length) throws IOException {
+        ensureOpen();
+        try {
+            inflater.setInput(data, offset, length);
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-        byte[] buffer = new byte[1024];
+            int count = 0;
+            while (!inflater.finished()) {
+                if (count == inflateBuffer.length) {
+                    inflateBuffer = Arrays.copyOf(inflateBuffer, inflateBuffer.length << 1);
+                }
+                int inflated = inflater.inflate(inflateBuffer, count, inflateBuffer.length - count);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed data");
+                }
+                count += inflated;
+            }
+            return count;
+        } catch (DataFormatException e) {
+            throw new IOException("Error decompressing data", e);
+        } finally {
+            inflater.reset();
+        }
+    }
 
+    /**
+     * Inflates the remaining bytes of {@code input} into {@code output}. Both buffers may be
+     * direct. Positions are advanced by the number of bytes consumed and produced.
+     *
+     * @return number of inflated bytes written
+     */
+    public int inflate(ByteBuffer input, ByteBuffer output) throws IOException {
+        ensureOpen();
+        int start = output.position();
         try {
+            inflater.setInput(input);
+
             while (!inflater.finished()) {
-                int count = inflater.inflate(buffer);
-                outputStream.write(buffer, 0, count);
+                if (!output.hasRemaining()) {
+                    throw new IOException("Inflated data exceeds output buffer");
+                }
+                int inflated = inflater.inflate(output);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed data");
+                }
             }
-        } catch (Exception e) {
+            return output.position() - start;
+        } catch (DataFormatException e) {
             throw new IOException("Error decompressing data", e);
         } finally {
-            inflater.end();
+            inflater.reset();
+        }
+    }
+
+    public byte[] inflatedBuffer() {
+        return inflateBuffer;
+    }
+
+    /**
+     * Releases the native zlib streams. The compressor cannot be used afterwards.
+     */
+    public void end() {
+        synchronized (deflater) {
+            if (!ended) {
+                ended = true;
+                inflater.end();
+                deflater.end();
+            }
         }
+    }
 
-        return outputStream.toByteArray();
+    private void ensureOpen() throws IOException {
+        if (ended) {
+            throw new IOException("Compressor has been disposed");
+        }
     }
 }
 
@@ -99,23 +225,32 @@ class ZLIBCompressor {
 
 // Fragmentation Handler class
 class FragmentationHandler {
+    // Reassembly buffer. Bytes in [readIndex, writeIndex) are received but not yet parsed.
+    // The buffer is compacted (or grown) only when an append does not fit behind writeIndex.
     private byte[] memoryStream;
-    private int lastWrittenIndex;
+    private int readIndex;
+    private int writeIndex;
     private boolean isDisposed;
     private ZLIBCompressor zlibCompressor;
+    private volatile FeedMetrics metrics;
 
     private static final int MINIMUM_PACKET_SIZE = 5;
     private static final int PACKET_HEADER_SIZE = 5;
     private static final int HEADER_LENGTH = 6;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
 
-    private char[] headerChar = new char[5];
     public FragmentationHandler() {
-        this.memoryStream = new byte[0];
-        this.lastWrittenIndex = -1;
+        this.memoryStream = new byte[INITIAL_BUFFER_SIZE];
+        this.readIndex = 0;
+        this.writeIndex = 0;
         this.isDisposed = false;
         this.zlibCompressor = new ZLIBCompressor();
     }
 
+    void setMetrics(FeedMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public byte[] fragmentData(byte[] data) throws IOException {
         byte[] compressed = zlibCompressor.compress(data);
         String lengthString = String.format("%06d", compressed.length);
@@ -130,48 +265,86 @@ class FragmentationHandler {
     }
 
     public List<byte[]> defragment(byte[] data) {
+        List<byte[]> packetList = new ArrayList<>();
+        defragment(data, (buffer, offset, length) ->
+                packetList.add(Arrays.copyOfRange(buffer, offset, offset + length)));
+        return packetList;
+    }
+
+    /**
+     * Appends a received frame and hands every complete inner packet to {@code consumer}
+     * as a view into the handler's inflate buffer. Nothing is allocated per packet; the
+     * view is only valid until the consumer returns.
+     */
+    public void defragment(byte[] data, PacketConsumer consumer) {
         if (isDisposed) {
-            return new ArrayList<>();
+            return;
         }
 
-        // Append data to memory stream
-        byte[] newStream = new byte[lastWrittenIndex + 1 + data.length];
-        if (lastWrittenIndex >= 0) {
-            System.arraycopy(memoryStream, 0, newStream, 0, lastWrittenIndex + 1);
+        ensureWritable(data.length);
+        System.arraycopy(data, 0, memoryStream, writeIndex, data.length);
+        writeIndex += data.length;
+
+        defragmentData(consumer);
+    }
+
+    /**
+     * Same as {@link #defragment(byte[], PacketConsumer)} but appends straight from the
+     * socket buffer, so the frame is copied once into the reassembly buffer and nowhere else.
+     */
+    public void defragment(ByteBuffer data, PacketConsumer consumer) {
+        if (isDisposed) {
+            return;
         }
-        System.arraycopy(data, 0, newStream, lastWrittenIndex + 1, data.length);
-        memoryStream = newStream;
-        lastWrittenIndex = memoryStream.length - 1;
 
-        return defragmentData();
+        int length = data.remaining();
+        ensureWritable(length);
+        data.get(memoryStream, writeIndex, length);
+        writeIndex += length;
+
+        defragmentData(consumer);
     }
 
-    private List<byte[]> defragmentData() {
-        boolean parseDone = false;
-        int bytesParsed = 0;
-        List<byte[]> packetList = new ArrayList<>();
-        int position = 0;
+    private void ensureWritable(int length) {
+        if (memoryStream.length - writeIndex >= length) {
+            return;
+        }
 
-        while (position < lastWrittenIndex - MINIMUM_PACKET_SIZE && !parseDone) {
-            int headerEnd = position + PACKET_HEADER_SIZE + 1;
-            if (headerEnd > memoryStream.length) {
-                break;
+        int pending = writeIndex - readIndex;
+        if (memoryStream.length - pending >= length) {
+            // Enough room once the parsed prefix is dropped; slide the pending bytes down.
+            System.arraycopy(memoryStream, readIndex, memoryStream, 0, pending);
+        } else {
+            int newSize = memoryStream.length;
+            while (newSize - pending < length) {
+                newSize <<= 1;
             }
+            byte[] newStream = new byte[newSize];
+            System.arraycopy(memoryStream, readIndex, newStream, 0, pending);
+            memoryStream = newStream;
+        }
+        readIndex = 0;
+        writeIndex = pending;
+    }
+
+    private void defragmentData(PacketConsumer consumer) {
+        boolean parseDone = false;
+        int position = readIndex;
+        int skipped = 0;
 
-            byte[] header = Arrays.copyOfRange(memoryStream, position, headerEnd);
-            int packetSize = isLength(header);
+        while (position < writeIndex - 1 - MINIMUM_PACKET_SIZE && !parseDone) {
+            int headerEnd = position + PACKET_HEADER_SIZE + 1;
+            int packetSize = isLength(memoryStream, position);
 
             if (packetSize <= 0) {
                 position += 1;
-                bytesParsed += 1;
+                skipped++;
             } else {
                 int dataStart = headerEnd;
                 int dataEnd = dataStart + packetSize;
 
-                if (dataEnd <= lastWrittenIndex + 1) {
-                    byte[] compressData = Arrays.copyOfRange(memoryStream, dataStart, dataEnd);
-                    defragmentInnerData(compressData, packetList);
-                    bytesParsed += PACKET_HEADER_SIZE + 1 + packetSize;
+                if (dataEnd <= writeIndex) {
+                    defragmentInnerData(memoryStream, dataStart, packetSize, consumer);
                     position = dataEnd;
                 } else {
                     parseDone = true;
@@ -179,125 +352,173 @@ class FragmentationHandler {
             }
         }
 
-        clearProcessedData(bytesParsed);
-        return packetList;
-    }
-
-    private int isLength(byte[] header) {
-        if (header.length != PACKET_HEADER_SIZE + 1) {
-            return -1;
+        FeedMetrics metrics = this.metrics;
+        if (skipped > 0 && metrics != null) {
+            metrics.resyncSkipped(skipped);
         }
+        clearProcessedData(position);
+    }
 
-        if (header[0] != 5 && header[0] != 2) {
+    private int isLength(byte[] buffer, int offset) {
+        byte flag = buffer[offset];
+        if (flag != 5 && flag != 2) {
             return -1;
         }
 
-        String lengthStr = new String(header, 1, 5, StandardCharsets.US_ASCII);
-        if (!lengthStr.matches("\\d+")) {
-            return -1;
+        int length = 0;
+        for (int i = offset + 1; i <= offset + PACKET_HEADER_SIZE; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            length = length * 10 + digit;
         }
 
-        return Integer.parseInt(lengthStr);
+        return length;
     }
 
-    private void defragmentInnerData(byte[] compressData, List<byte[]> packetList) {
+    private void defragmentInnerData(byte[] buffer, int offset, int length, PacketConsumer consumer) {
         try {
-            byte[] messageData = zlibCompressor.uncompress(compressData);
+            int inflatedLength = zlibCompressor.inflate(buffer, offset, length);
+            byte[] messageData = zlibCompressor.inflatedBuffer();
+            FeedMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.blockInflated(length, inflatedLength);
+            }
 
-            int mUnCompressMsgLength;
-            while (true) {
-                mUnCompressMsgLength = 0;
-                mUnCompressMsgLength = getMessageLength(messageData);
+            // Walk the inflated block with a cursor; each message is handed out in place.
+            int position = 0;
+            while (inflatedLength - position > HEADER_LENGTH) {
+                int mUnCompressMsgLength = getMessageLength(messageData, position);
 
                 if (mUnCompressMsgLength <= 0) {
                     break;
                 }
 
-                // Extract the uncompressed bytes
-                byte[] unCompressBytes = new byte[mUnCompressMsgLength];
-                System.arraycopy(messageData, HEADER_LENGTH, unCompressBytes, 0, mUnCompressMsgLength);
-
-                packetList.add(unCompressBytes);
-                // Calculate remaining data length
-                int remainingLength = messageData.length - mUnCompressMsgLength - HEADER_LENGTH;
-
-                if (remainingLength <= 0) {
-                    break;
+                int messageStart = position + HEADER_LENGTH;
+                if (messageStart + mUnCompressMsgLength > inflatedLength) {
+                    throw new IOException("Inner packet length " + mUnCompressMsgLength
+                            + " exceeds inflated block");
                 }
 
-                // Extract remaining data
-                byte[] unCompressNewBytes = new byte[remainingLength];
-                System.arraycopy(messageData, mUnCompressMsgLength + HEADER_LENGTH,
-                        unCompressNewBytes, 0, remainingLength);
-
-                messageData = unCompressNewBytes;
+                consumer.onPacket(messageData, messageStart, mUnCompressMsgLength);
+                position = messageStart + mUnCompressMsgLength;
             }
         } catch (Exception error) {
+            FeedMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.decodeError();
+            }
             System.err.println("Error decompressing data: " + error.getMessage());
         }
     }
 
-    private int getMessageLength(byte[] message) {
-        if (message[0] == 5) {
-        } else {
-        }
-
-        try {
-            int i = 1;
-            int startIndex = 0;
-
-            for (; i < HEADER_LENGTH; i++) {
-                headerChar[startIndex] = (char) message[i];
-                startIndex++;
+    private int getMessageLength(byte[] message, int offset) {
+        int length = 0;
+        for (int i = offset + 1; i < offset + HEADER_LENGTH; i++) {
+            int digit = message[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return 0;
             }
-
-            String sLength = new String(headerChar, 0, startIndex);
-            return Integer.parseInt(sLength);
-        } catch (Exception e) {
-            return 0;
+            length = length * 10 + digit;
         }
+        return length;
     }
 
-    private void clearProcessedData(int length) {
-        if (length <= 0) {
-            return;
+    public void dispose() {
+        if (!isDisposed) {
+            isDisposed = true;
+            zlibCompressor.end();
         }
+    }
+
+    // Drops any partially received frame
+    void reset() {
+        readIndex = 0;
+        writeIndex = 0;
+    }
 
-        if (length >= lastWrittenIndex + 1) {
-            lastWrittenIndex = -1;
-            memoryStream = new byte[0];
+    private void clearProcessedData(int position) {
+        if (position >= writeIndex) {
+            readIndex = 0;
+            writeIndex = 0;
             return;
         }
 
-        int size = lastWrittenIndex + 1 - length;
-        byte[] data = Arrays.copyOfRange(memoryStream, length, length + size);
-        memoryStream = data;
-        lastWrittenIndex = size - 1;
+        readIndex = position;
     }
 }
 
 // Main ODIN Market Feed Client
 public class ODINMarketFeedClient  {
     // private Session session;
-    private WebSocketClient webSocketClient;
+    private volatile WebSocketClient webSocketClient;
     private boolean isDisposed = false;
     private FragmentationHandler fragHandler;
-
-    private Calendar dteNSE;
+    private final PacketConsumer packetConsumer = this::packetReceived;
+    // touchline is read on the socket thread, deliveredTouchline by callbacks run inline
+    private final TouchlineFlyweight touchline;
+    private final TouchlineFlyweight deliveredTouchline;
+    private final DispatchEvent directEvent = new DispatchEvent();
+    private volatile PacketDispatcher dispatcher;
+    private boolean dispatcherFullReported;
+
+    // NSE epoch (1980-01-01) conversions; one codec per thread that formats
+    private final NseTimestampCodec tickTimeCodec = new NseTimestampCodec();
+    private final NseTimestampCodec deliveredTimeCodec = new NseTimestampCodec();
+    private final NseTimestampCodec requestTimeCodec = new NseTimestampCodec();
+
+    private final SubscriptionManager subscriptions = new SubscriptionManager(this);
+    private final RequestEncoder requestEncoder = new RequestEncoder();
+    // Parsed keys of the touchline and LTP request being sent; guarded by requestEncoder
+    private long[] requestKeys = new long[64];
+    private int malformedEntries;
+
+    // Connection details kept for reconnecting
+    private String userId;
+    private String apiKey;
+    private ReconnectPolicy.Endpoint primaryEndpoint;
+    private volatile boolean closeRequested;
+    private volatile ReconnectEngine reconnectEngine;
+    private final ReconnectMetrics reconnectMetrics = new ReconnectMetrics();
+    private volatile FeedMetrics metrics;
+    private volatile LatencyRecorder latencyRecorder;
+    private volatile FrameJournal journal;
+    // Receive time of the frame being decoded; read thread only
+    private long frameReceivedNanos;
 
     // Callbacks
     public OnOpenCallback onOpenCallback;
     public OnMessageCallback onMessageCallback;
     public OnErrorCallback onErrorCallback;
     public OnCloseCallback onCloseCallback;
+    public OnTickCallback onTickCallback;
+    public OnPacketCallback onPacketCallback;
+
+    // Which 64= message types each representation is wanted for
+    private volatile MessageTypeFilter messageFilter = MessageTypeFilter.ALL;
+    private volatile MessageTypeFilter tickFilter = MessageTypeFilter.ALL;
+    private volatile MessageTypeFilter packetFilter = MessageTypeFilter.ALL;
+
+    private volatile LastValueCache lastValueCache;
+    private boolean lastValueCacheFullReported;
+    private volatile DepthBook depthBook;
+    private volatile ConflatingTouchlineQueue conflatingQueue;
+    private boolean conflationFullReported;
+    private boolean depthBookFullReported;
+    private volatile TickStore tickStore;
+    private boolean tickStoreErrorReported;
+    private volatile BarBuilder barBuilder;
+    private boolean barBuilderFullReported;
+    private volatile TopMoversIndex topMovers;
+    private boolean topMoversFullReported;
+    private volatile ListenerRegistry listenerRegistry;
+    public OnDepthCallback onDepthCallback;
 
     public ODINMarketFeedClient() {
         this.fragHandler = new FragmentationHandler();
-
-        // Initialize NSE date (1980-01-01)
-        dteNSE = Calendar.getInstance();
-        dteNSE.set(1980, Calendar.JANUARY, 1, 0, 0, 0);
-        dteNSE.set(Calendar.MILLISECOND, 0);
+        this.touchline = new TouchlineFlyweight(tickTimeCodec);
+        this.deliveredTouchline = new TouchlineFlyweight(deliveredTimeCodec);
     }
 
     public void setOnOpen(OnOpenCallback callback) {
@@ -305,6 +526,15 @@ public class ODINMarketFeedClient  {
     }
 
     public void setOnMessage(OnMessageCallback callback) {
+        setOnMessage(callback, new int[0]);
+    }
+
+    /**
+     * Receive packets as text, but only for the given {@code 64=} message types
+     * (see {@link MessageTypes}). Other packets are never turned into Strings.
+     */
+    public void setOnMessage(OnMessageCallback callback, int... messageTypes) {
+        this.messageFilter = MessageTypeFilter.of(messageTypes);
         this.onMessageCallback = callback;
     }
 
@@ -315,159 +545,582 @@ public class ODINMarketFeedClient  {
     public void setOnClose(OnCloseCallback callback) {
         this.onCloseCallback = callback;
     }
-    
 
-    public CompletableFuture<Void> connect(String host, int port, boolean useSSL,
-            String userId, String apiKey) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
+    /**
+     * Receive touchline packets as decoded primitives instead of text. The
+     * {@link MarketData} passed to the callback reads straight from the packet
+     * and is reused for every tick, so nothing is allocated per tick.
+     * Text rendering is skipped entirely when no {@link OnMessageCallback} is set.
+     */
+    public void setOnTick(OnTickCallback callback) {
+        setOnTick(callback, new int[0]);
+    }
 
-        // Input validation
-        if (host == null || host.trim().isEmpty()) {
-            if (onErrorCallback != null) {
-                onErrorCallback.onError("Host cannot be null or empty.");
-            }
-            future.completeExceptionally(new IllegalArgumentException("Host cannot be null or empty."));
-            return future;
-        }
+    /**
+     * Same as {@link #setOnTick(OnTickCallback)} but only for the given
+     * {@code 64=} message types.
+     */
+    public void setOnTick(OnTickCallback callback, int... messageTypes) {
+        this.tickFilter = MessageTypeFilter.of(messageTypes);
+        this.onTickCallback = callback;
+    }
 
-        if (port <= 0 || port > 65535) {
-            if (onErrorCallback != null) {
-                onErrorCallback.onError("Port must be between 1 and 65535.");
-            }
-            future.completeExceptionally(new IllegalArgumentException("Port must be between 1 and 65535."));
-            return future;
-        }
+    /**
+     * Receive the raw inflated packet bytes, optionally only for the given
+     * {@code 64=} message types. No decoding is done for this representation.
+     */
+    public void setOnPacket(OnPacketCallback callback, int... messageTypes) {
+        this.packetFilter = MessageTypeFilter.of(messageTypes);
+        this.onPacketCallback = callback;
+    }
 
-        if (userId == null || userId.trim().isEmpty()) {
-            if (onErrorCallback != null) {
-                onErrorCallback.onError("User ID cannot be null or empty.");
-            }
-            future.completeExceptionally(new IllegalArgumentException("User ID cannot be null or empty."));
-            return future;
+    /**
+     * Route packets to listeners registered per instrument, per segment or per
+     * message type, alongside the single {@code setOn...} callbacks. Up to
+     * {@code instrumentCapacity} instruments can have their own listeners.
+     */
+    public synchronized ListenerRegistry enableListenerRegistry(int instrumentCapacity) {
+        if (listenerRegistry == null) {
+            listenerRegistry = new ListenerRegistry(instrumentCapacity);
         }
+        return listenerRegistry;
+    }
 
-      
+    /**
+     * @return the registry created by {@link #enableListenerRegistry(int)}, or null
+     */
+    public ListenerRegistry getListenerRegistry() {
+        return listenerRegistry;
+    }
 
-        try {
-            String protocol = useSSL ? "wss" : "ws";
-            String url = String.format("%s://%s:%d", protocol, host, port);
+    /**
+     * Keep the latest touchline of every instrument in a {@link LastValueCache}
+     * that any thread can read. The cache is updated on the read thread before
+     * callbacks run and holds at most {@code capacity} instruments.
+     */
+    public LastValueCache enableLastValueCache(int capacity) {
+        LastValueCache cache = new LastValueCache(capacity);
+        this.lastValueCache = cache;
+        return cache;
+    }
 
-            // WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-            // container.setDefaultMaxBinaryMessageBufferSize(receiveBufferSize);
+    /**
+     * @return the cache created by {@link #enableLastValueCache(int)}, or null
+     */
+    public LastValueCache getLastValueCache() {
+        return lastValueCache;
+    }
 
-            // URI uri = new URI(url);
-            // this.session = container.connectToServer(this, uri);
+    /**
+     * Feed every touchline into a {@link ConflatingTouchlineQueue} holding up to
+     * {@code capacity} instruments. Slow consumers drain it at their own pace and get
+     * only the newest values of each instrument that changed.
+     */
+    public ConflatingTouchlineQueue enableConflation(int capacity) {
+        ConflatingTouchlineQueue queue = new ConflatingTouchlineQueue(capacity);
+        this.conflatingQueue = queue;
+        return queue;
+    }
 
-            // Send authentication after connection
-            webSocketClient = new WebSocketClient(new URI(url)) {
-                @Override
-                public void onOpen(ServerHandshake handshakedata) {
-                    System.out.println("Connected");
+    /**
+     * @return the queue created by {@link #enableConflation(int)}, or null
+     */
+    public ConflatingTouchlineQueue getConflatingQueue() {
+        return conflatingQueue;
+    }
 
-                    try {
-                        sendLogin();
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
+    /**
+     * Decode best-five ({@code 64=127}) updates into a {@link DepthBook} holding up to
+     * {@code capacity} instruments. Updates are applied on the read thread; the
+     * {@link OnDepthCallback} gets a {@link DepthSnapshot} copied there, so it stays
+     * consistent when a dispatcher runs the callback on another thread.
+     */
+    public DepthBook enableDepthBook(int capacity) {
+        DepthBook book = new DepthBook(capacity);
+        this.depthBook = book;
+        return book;
+    }
 
-                    if (onOpenCallback != null) {
-                        onOpenCallback.onOpen();
-                    }
-                    future.complete(null);
-                }
+    /**
+     * @return the book created by {@link #enableDepthBook(int)}, or null
+     */
+    public DepthBook getDepthBook() {
+        return depthBook;
+    }
 
-                @Override
-                public void onMessage(String message) {
-                    // Text messages (not used in this implementation)
-                }
+    /**
+     * Build OHLC bars of each of {@code intervalSeconds} for up to {@code capacity}
+     * instruments from the touchline feed. The builder is fed on the read thread, and an
+     * "odin-bar-clock" thread moves its clock on once a second while no trades arrive,
+     * so bars of quiet instruments close on time. Listeners run on either thread.
+     */
+    public synchronized BarBuilder enableBars(int capacity, int... intervalSeconds) {
+        if (barBuilder != null) {
+            throw new IllegalStateException("Bars are already enabled.");
+        }
+        BarBuilder bars = new BarBuilder(capacity, intervalSeconds);
+        bars.startClock();
+        this.barBuilder = bars;
+        return bars;
+    }
 
-                @Override
-                public void onMessage(ByteBuffer bytes) {
-                    byte[] data = new byte[bytes.remaining()];
-                    bytes.get(data);
-                    responseReceived(data);
-                }
+    /**
+     * Stop building bars and emit the ones still open, for example at the end of the
+     * session.
+     */
+    public synchronized void disableBars() {
+        BarBuilder bars = barBuilder;
+        if (bars != null) {
+            barBuilder = null;
+            bars.stopClock();
+            bars.flush();
+        }
+    }
 
-                @Override
-                public void onClose(int code, String reason, boolean remote) {
-                    System.out.println("Connection closed: " + code + " - " + reason);
-                    if (onCloseCallback != null) {
-                        onCloseCallback.onClose(code, reason);
-                    }
-                }
+    /**
+     * @return the builder created by {@link #enableBars(int, int...)}, or null
+     */
+    public BarBuilder getBarBuilder() {
+        return barBuilder;
+    }
 
-                @Override
-                public void onError(Exception ex) {
-                    String errorMsg = "Connection error: " + ex.getMessage();
-                    System.err.println(errorMsg);
-                    if (onErrorCallback != null) {
-                        onErrorCallback.onError(errorMsg);
-                    }
-                    future.completeExceptionally(ex);
-                }
+    /**
+     * Rank up to {@code capacity} instruments by percent change and activity per
+     * segment, updated from the touchline feed on the read thread. Any thread may query
+     * the returned index.
+     */
+    public TopMoversIndex enableTopMovers(int capacity) {
+        TopMoversIndex movers = new TopMoversIndex(capacity);
+        this.topMovers = movers;
+        return movers;
+    }
 
-                public CompletableFuture<Void> sendLogin() throws InterruptedException {
+    /**
+     * @return the index created by {@link #enableTopMovers(int)}, or null
+     */
+    public TopMoversIndex getTopMovers() {
+        return topMovers;
+    }
 
-                    return CompletableFuture.runAsync(() -> {
-                       
-                        // Send login message
-                        String currentTime = formatTime(Date.from(Instant.now()));
+    /**
+     * Run all callbacks on a dedicated thread fed by a preallocated ring of
+     * {@code capacity} packets (a power of two), so slow handlers do not stall
+     * socket reads. Caches and books are still updated on the read thread.
+     */
+    public RingBufferDispatcher enableDispatcher(int capacity, RingBufferDispatcher.WaitStrategy waitStrategy,
+            RingBufferDispatcher.OverflowPolicy overflowPolicy) {
+        if (dispatcher != null) {
+            throw new IllegalStateException("Dispatcher is already enabled.");
+        }
+        RingBufferDispatcher ring = new RingBufferDispatcher(capacity, waitStrategy, overflowPolicy,
+                newDeliveryHandler(), this, "odin-feed-dispatcher");
+        this.dispatcher = ring;
+        return ring;
+    }
 
-                        String password = "68=";
-                        if (apiKey != null && !apiKey.trim().isEmpty()) {
-                            password = String.format("68=%s|401=2", apiKey);
-                        }
+    /**
+     * @return the dispatcher created by {@link #enableDispatcher}, or null
+     */
+    public RingBufferDispatcher getDispatcher() {
+        PacketDispatcher current = dispatcher;
+        return current instanceof RingBufferDispatcher ? (RingBufferDispatcher) current : null;
+    }
 
-                        // Build login message
-                        String loginMsg = String.format("63=FT3.0|64=101|65=74|66=%s|67=%s|%s",currentTime, userId, password);
-                        try {
-                            sendMessage(loginMsg);
-                        } catch (IOException e) {
-                            if (onErrorCallback != null) {
-                                onErrorCallback.onError("Error sending login message: " + e.getMessage());
-                            }
-                        }
-                    });
-                
-                }
-            };
+    /**
+     * Registry of active touchline/LTP subscriptions, and paced bulk
+     * (un)subscription for large token lists.
+     */
+    public SubscriptionManager getSubscriptionManager() {
+        return subscriptions;
+    }
 
-            webSocketClient.connect();
+    /**
+     * Reconnect automatically when the socket drops unexpectedly. After the new socket
+     * opens, the login and every subscription recorded by the
+     * {@link #getSubscriptionManager() subscription manager} (including the pause
+     * state) are sent again. {@link #disconnect()} and {@link #dispose()} stop it.
+     */
+    public void enableAutoReconnect(ReconnectPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Reconnect policy cannot be null.");
+        }
+        if (reconnectEngine != null) {
+            throw new IllegalStateException("Auto reconnect is already enabled.");
+        }
+        ReconnectEngine engine = new ReconnectEngine(this, policy, reconnectMetrics);
+        ReconnectPolicy.Endpoint primary = primaryEndpoint;
+        if (primary != null && !closeRequested) {
+            engine.connecting(primary);
+        }
+        this.reconnectEngine = engine;
+    }
 
-            future.complete(null);
-        } catch (Exception e) {
-            if (onErrorCallback != null) {
-                onErrorCallback.onError("Connection error: " + e.getMessage());
-            }
-            future.completeExceptionally(e);
+    public void disableAutoReconnect() {
+        ReconnectEngine engine = reconnectEngine;
+        reconnectEngine = null;
+        if (engine != null) {
+            engine.shutdown();
         }
+    }
 
-        return future;
+    boolean isAutoReconnectEnabled() {
+        return reconnectEngine != null;
     }
 
-    // public void disconnect() throws InterruptedException, IOException {
-    // if (session != null && session.isOpen()) {
-    // session.close();
-    // }
-    // }
+    public ReconnectMetrics getReconnectMetrics() {
+        return reconnectMetrics;
+    }
 
-    public void disconnect() throws InterruptedException {
-        if (webSocketClient != null && webSocketClient.isOpen()) {
-            webSocketClient.closeBlocking();
-        }
+    // Runs after the login was resent on a new socket
+    private void restoreState() {
+        List<CompletableFuture<Void>> replayed = subscriptions.replay();
+        CompletableFuture.allOf(replayed.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            ReconnectEngine engine = reconnectEngine;
+            if (error != null) {
+                reportError("Restoring subscriptions failed: " + error.getMessage());
+            } else if (engine != null) {
+                engine.onRestored();
+            }
+        });
     }
 
-   
     /**
-     * Subscribe to touchline data with mode and snapshot options
-     * 
-     * @param tokenList  List of tokens in format "MarketSegmentID_Token"
-     * @param mode       Mode "0" or "1"
-     * @param isSnapshot Whether to get snapshot data
+     * Start counting frames, bytes, packets per message type, resync skips, decode
+     * errors and outbound requests. A snapshot is taken every {@code reportIntervalMillis}
+     * and passed to the listeners added with {@link FeedMetrics#addListener}. If
+     * {@code jmxName} is not null the counters are also registered as the MBean
+     * {@code com.trading:type=FeedMetrics,name=<jmxName>}.
      */
-    public CompletableFuture<Void> subscribeTouchlineold(List<String> tokenList, String mode) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-
+    public FeedMetrics enableMetrics(long reportIntervalMillis, String jmxName) {
+        if (reportIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Report interval must be positive: " + reportIntervalMillis);
+        }
+        if (metrics != null) {
+            throw new IllegalStateException("Metrics are already enabled.");
+        }
+        FeedMetrics created = new FeedMetrics();
+        if (jmxName != null) {
+            try {
+                created.register(jmxName);
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not register metrics MBean: " + e.getMessage(), e);
+            }
+        }
+        created.startReporting(reportIntervalMillis);
+        fragHandler.setMetrics(created);
+        this.metrics = created;
+        return created;
+    }
+
+    public FeedMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Record per-packet latency histograms: receive to decode, decode to callback and
+     * exchange LUT to callback, per message type and per segment. Calling it again
+     * returns the same recorder.
+     */
+    public synchronized LatencyRecorder enableLatencyTracking() {
+        if (latencyRecorder == null) {
+            latencyRecorder = new LatencyRecorder();
+        }
+        return latencyRecorder;
+    }
+
+    public LatencyRecorder getLatencyRecorder() {
+        return latencyRecorder;
+    }
+
+    /**
+     * Append every received frame, as it came off the socket, to memory-mapped journal
+     * files in {@code directory}. A new file is started when the current one reaches
+     * {@code fileSizeBytes} or is {@code rollIntervalMillis} old (0 rolls on size only).
+     * Read the files back with {@link FrameJournalReader}.
+     */
+    public synchronized FrameJournal enableCapture(Path directory, long fileSizeBytes, long rollIntervalMillis)
+            throws IOException {
+        if (journal != null) {
+            throw new IllegalStateException("Capture is already enabled.");
+        }
+        FrameJournal created = new FrameJournal(directory, fileSizeBytes, rollIntervalMillis);
+        this.journal = created;
+        return created;
+    }
+
+    /**
+     * Stop capturing and close the current journal file.
+     */
+    public synchronized void disableCapture() {
+        FrameJournal capture = journal;
+        if (capture != null) {
+            journal = null;
+            capture.close();
+        }
+    }
+
+    public FrameJournal getFrameJournal() {
+        return journal;
+    }
+
+    /**
+     * Append every decoded touchline to per-day columnar files under {@code root},
+     * written on the read thread before callbacks run. Each day holds at most
+     * {@code instrumentCapacity} instruments. Read the files back with
+     * {@link TickStoreReader}.
+     */
+    public synchronized TickStore enableTickStore(Path root, int instrumentCapacity) throws IOException {
+        if (tickStore != null) {
+            throw new IllegalStateException("Tick store is already enabled.");
+        }
+        TickStore created = new TickStore(root, instrumentCapacity);
+        this.tickStore = created;
+        return created;
+    }
+
+    /**
+     * Stop storing ticks and force the current day's files to disk.
+     */
+    public synchronized void disableTickStore() {
+        TickStore store = tickStore;
+        if (store != null) {
+            tickStore = null;
+            store.close();
+        }
+    }
+
+    public TickStore getTickStore() {
+        return tickStore;
+    }
+
+    /**
+     * Run callbacks on {@code lanes} worker threads. Each instrument is pinned to one
+     * lane by a hash of its (mktSegId, token), so its updates stay in order while
+     * different instruments are handled in parallel. Callbacks must be thread-safe.
+     *
+     * @param capacityPerLane ring size of each lane, a power of two
+     */
+    public PartitionedDispatcher enablePartitionedDispatch(int lanes, int capacityPerLane,
+            RingBufferDispatcher.WaitStrategy waitStrategy, RingBufferDispatcher.OverflowPolicy overflowPolicy) {
+        if (dispatcher != null) {
+            throw new IllegalStateException("Dispatcher is already enabled.");
+        }
+        PartitionedDispatcher partitioned = new PartitionedDispatcher(lanes, capacityPerLane, waitStrategy,
+                overflowPolicy, this);
+        this.dispatcher = partitioned;
+        return partitioned;
+    }
+
+    /**
+     * @return the dispatcher created by {@link #enablePartitionedDispatch}, or null
+     */
+    public PartitionedDispatcher getPartitionedDispatcher() {
+        PacketDispatcher current = dispatcher;
+        return current instanceof PartitionedDispatcher ? (PartitionedDispatcher) current : null;
+    }
+
+    // Each callback thread gets its own flyweight and date codec
+    RingBufferDispatcher.Handler newDeliveryHandler() {
+        TouchlineFlyweight flyweight = new TouchlineFlyweight(new NseTimestampCodec());
+        return event -> deliver(event, flyweight);
+    }
+
+    /**
+     * Notified with the instrument and the changed levels after each best-five update.
+     * Requires {@link #enableDepthBook(int)}.
+     */
+    public void setOnDepth(OnDepthCallback callback) {
+        this.onDepthCallback = callback;
+    }
+    
+
+    public CompletableFuture<Void> connect(String host, int port, boolean useSSL,
+            String userId, String apiKey) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        // Input validation
+        if (host == null || host.trim().isEmpty()) {
+            if (onErrorCallback != null) {
+                onErrorCallback.onError("Host cannot be null or empty.");
+            }
+            future.completeExceptionally(new IllegalArgumentException("Host cannot be null or empty."));
+            return future;
+        }
+
+        if (port <= 0 || port > 65535) {
+            if (onErrorCallback != null) {
+                onErrorCallback.onError("Port must be between 1 and 65535.");
+            }
+            future.completeExceptionally(new IllegalArgumentException("Port must be between 1 and 65535."));
+            return future;
+        }
+
+        if (userId == null || userId.trim().isEmpty()) {
+            if (onErrorCallback != null) {
+                onErrorCallback.onError("User ID cannot be null or empty.");
+            }
+            future.completeExceptionally(new IllegalArgumentException("User ID cannot be null or empty."));
+            return future;
+        }
+
+      
+
+        try {
+            ReconnectPolicy.Endpoint endpoint = new ReconnectPolicy.Endpoint(host, port, useSSL);
+
+            // WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+            // container.setDefaultMaxBinaryMessageBufferSize(receiveBufferSize);
+
+            // URI uri = new URI(url);
+            // this.session = container.connectToServer(this, uri);
+
+            this.userId = userId;
+            this.apiKey = apiKey;
+            this.primaryEndpoint = endpoint;
+            this.closeRequested = false;
+            ReconnectEngine engine = reconnectEngine;
+            if (engine != null) {
+                engine.connecting(endpoint);
+            }
+            openSocket(endpoint, future);
+
+            future.complete(null);
+        } catch (Exception e) {
+            if (onErrorCallback != null) {
+                onErrorCallback.onError("Connection error: " + e.getMessage());
+            }
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    // Opens a socket to the endpoint; also used by the reconnect engine
+    void openSocket(ReconnectPolicy.Endpoint endpoint, CompletableFuture<Void> future) throws URISyntaxException {
+        // Bytes left over from a previous connection belong to a frame that will never complete
+        fragHandler.reset();
+
+        // Send authentication after connection
+        webSocketClient = new WebSocketClient(new URI(endpoint.url())) {
+            private boolean opened;
+
+            @Override
+            public void onOpen(ServerHandshake handshakedata) {
+                System.out.println("Connected");
+                opened = true;
+                ReconnectEngine engine = reconnectEngine;
+                boolean restore = engine != null && engine.onOpened(endpoint);
+
+                try {
+                    CompletableFuture<Void> login = sendLogin();
+                    if (restore) {
+                        login.thenRun(ODINMarketFeedClient.this::restoreState);
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+
+                if (onOpenCallback != null) {
+                    onOpenCallback.onOpen();
+                }
+                future.complete(null);
+            }
+
+            @Override
+            public void onMessage(String message) {
+                // Text messages (not used in this implementation)
+            }
+
+            @Override
+            public void onMessage(ByteBuffer bytes) {
+                FrameJournal capture = journal;
+                if (capture != null) {
+                    capture.append(bytes);
+                }
+                responseReceived(bytes);
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+                System.out.println("Connection closed: " + code + " - " + reason);
+                ReconnectEngine engine = reconnectEngine;
+                // Failed reconnect attempts are not reported as closes
+                boolean retrying = engine != null && engine.isInOutage();
+                if (onCloseCallback != null && (opened || !retrying)) {
+                    onCloseCallback.onClose(code, reason);
+                }
+                if (engine != null && !closeRequested && this == webSocketClient) {
+                    engine.onClosed(opened);
+                }
+            }
+
+            @Override
+            public void onError(Exception ex) {
+                String errorMsg = "Connection error: " + ex.getMessage();
+                System.err.println(errorMsg);
+                if (onErrorCallback != null) {
+                    onErrorCallback.onError(errorMsg);
+                }
+                future.completeExceptionally(ex);
+            }
+
+            public CompletableFuture<Void> sendLogin() throws InterruptedException {
+
+                return CompletableFuture.runAsync(() -> {
+                   
+                    // Send login message
+                    try {
+                        synchronized (requestEncoder) {
+                            requestEncoder.begin(MessageTypes.LOGIN, 74, System.currentTimeMillis())
+                                    .field(67, userId);
+                            if (apiKey != null && !apiKey.trim().isEmpty()) {
+                                requestEncoder.field(68, apiKey).field(401, 2);
+                            } else {
+                                requestEncoder.field(68, "");
+                            }
+                            sendRequest(requestEncoder);
+                        }
+                    } catch (IOException e) {
+                        if (onErrorCallback != null) {
+                            onErrorCallback.onError("Error sending login message: " + e.getMessage());
+                        }
+                    }
+                });
+            
+            }
+        };
+
+        webSocketClient.connect();
+    }
+
+    // public void disconnect() throws InterruptedException, IOException {
+    // if (session != null && session.isOpen()) {
+    // session.close();
+    // }
+    // }
+
+    public void disconnect() throws InterruptedException {
+        closeRequested = true;
+        ReconnectEngine engine = reconnectEngine;
+        if (engine != null) {
+            engine.cancel();
+        }
+        if (webSocketClient != null && webSocketClient.isOpen()) {
+            webSocketClient.closeBlocking();
+        }
+    }
+
+   
+    /**
+     * Subscribe to touchline data with mode and snapshot options
+     * 
+     * @param tokenList  List of tokens in format "MarketSegmentID_Token"
+     * @param mode       Mode "0" or "1"
+     * @param isSnapshot Whether to get snapshot data
+     */
+    public CompletableFuture<Void> subscribeTouchlineold(List<String> tokenList, String mode) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
         if (tokenList == null || tokenList.isEmpty()) {
             if (onErrorCallback != null) {
                 onErrorCallback.onError("Token list cannot be null or empty.");
@@ -509,13 +1162,11 @@ public class ODINMarketFeedClient  {
 
         if (strTokenToSubscribe.length() > 0) {
             try {
-                String currentTime = formatTime(new Date());
+                String currentTime = formatTime(System.currentTimeMillis());
                 String subscribeFlag = "230=1";
                 String touchlineRequest = String.format("63=FT3.0|64=348|65=84|66=%s|%s%s", currentTime,
                         strTokenToSubscribe.toString(), subscribeFlag);
                 sendMessage(touchlineRequest);
-                System.out
-                        .println(String.format("Subscribed to touchline for tokens: %s", String.join(", ", tokenList)));
                 future.complete(null);
             } catch (Exception e) {
                 if (onErrorCallback != null) {
@@ -551,60 +1202,9 @@ public class ODINMarketFeedClient  {
             throw new Exception("Invalid response type");
         }
 
-        StringBuilder strTokenToSubscribe = new StringBuilder();
-
-        // Process each token
-        for (String item : tokenList) {
-            if (isNullOrWhiteSpace(item)) {
-                continue;
-            }
-
-            String[] parts = item.split("_");
-            if (parts.length != 2) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError(String.format(
-                            "Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.", item));
-                }
-                continue;
-            }
-
-            try {
-                int marketSegmentID = Integer.parseInt(parts[0]);
-                int token = Integer.parseInt(parts[1]);
-                strTokenToSubscribe.append(String.format("1=%d$7=%d|", marketSegmentID, token));
-            } catch (NumberFormatException e) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError(String.format(
-                            "Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.", item));
-                }
-                continue;
-            }
-        }
-
-        // Build response type string
-        String strResponseType = "";
-        if (responseType.equals("1")) {
-            strResponseType = "49=1";
-        }
-
-        // Build LTP change only string
-        String sLTChangeOnly = ltpChangeOnly ? "200=1" : "200=0";
-
         // Build and send request if we have valid tokens
-        if (strTokenToSubscribe.length() > 0) {
-            String currentTime = formatTime(Date.from(Instant.now()));
-            String tlRequest;
-
-            if (!strResponseType.isEmpty()) {
-                tlRequest = String.format("63=FT3.0|64=206|65=84|66=%s|%s|%s|%s230=1",
-                        currentTime, strResponseType, sLTChangeOnly, strTokenToSubscribe.toString());
-            } else {
-                tlRequest = String.format("63=FT3.0|64=206|65=84|66=%s|%s|%s230=1",
-                        currentTime, sLTChangeOnly, strTokenToSubscribe.toString());
-            }
-
-            sendMessage(tlRequest);
-            System.out.printf("Subscribed to touchline tokens: %s%n", String.join(", ", tokenList));
+        if (sendInstrumentRequest(SubscriptionManager.Stream.TOUCHLINE, tokenList, true, responseType,
+                ltpChangeOnly)) {
             return;
         }
 
@@ -632,60 +1232,23 @@ public class ODINMarketFeedClient  {
             return future;
         }
 
-        StringBuilder strTokenToSubscribe = new StringBuilder();
-
-        for (String item : tokenList) {
-            if (isNullOrWhiteSpace(item)) {
-                continue;
-            }
-
-            String[] parts = item.split("_");
-
-            if (parts.length != 2) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError(String.format(
-                            "Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.", item));
-                }
-                continue;
-            }
-
-            try {
-                int marketSegmentId = Integer.parseInt(parts[0]);
-                int token = Integer.parseInt(parts[1]);
-
-                strTokenToSubscribe.append(String.format("1=%d$7=%d|", marketSegmentId, token));
-            } catch (NumberFormatException e) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError(String.format(
-                            "Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.", item));
-                }
-                continue;
-            }
-        }
-
-        if (strTokenToSubscribe.length() > 0) {
-            try {
-                String currentTime = formatTime(new Date());
-                String touchlineRequest = String.format(
-                        "63=FT3.0|64=206|65=84|66=%s|%s230=2",
-                        currentTime, strTokenToSubscribe.toString());
-                sendMessage(touchlineRequest);
-                System.out.println(String.format("Unsubscribed from touchline for tokens: %s",
-                        String.join(", ", tokenList)));
+        try {
+            if (sendInstrumentRequest(SubscriptionManager.Stream.TOUCHLINE, tokenList, false, "0", false)) {
                 future.complete(null);
-            } catch (Exception e) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError("Touchline unsubscription failed: " + e.getMessage());
-                }
-                future.completeExceptionally(e);
+                return future;
             }
-        } else {
+        } catch (Exception e) {
             if (onErrorCallback != null) {
-                onErrorCallback.onError("No valid tokens found to unsubscribe.");
+                onErrorCallback.onError("Touchline unsubscription failed: " + e.getMessage());
             }
-            future.completeExceptionally(new IllegalArgumentException("No valid tokens found to unsubscribe."));
+            future.completeExceptionally(e);
+            return future;
         }
 
+        if (onErrorCallback != null) {
+            onErrorCallback.onError("No valid tokens found to unsubscribe.");
+        }
+        future.completeExceptionally(new IllegalArgumentException("No valid tokens found to unsubscribe."));
         return future;
     }
 
@@ -707,13 +1270,12 @@ public class ODINMarketFeedClient  {
         }
 
         try {
-            String currentTime = formatTime(new Date());
-            String bestFiveRequest = String.format(
-                    "63=FT3.0|64=127|65=84|66=%s|1=%d|7=%s|230=1",
-                    currentTime, marketSegmentId, token);
-            sendMessage(bestFiveRequest);
-            System.out.println(String.format("Subscribed to best five for token: %s (segment: %d)",
-                    token, marketSegmentId));
+            synchronized (requestEncoder) {
+                requestEncoder.begin(MessageTypes.BEST_FIVE, 84, System.currentTimeMillis());
+                writeToken(requestEncoder, marketSegmentId, token).field(230, 1);
+                sendRequest(requestEncoder);
+            }
+            subscriptions.recordBestFive(marketSegmentId, token, true);
             future.complete(null);
         } catch (Exception e) {
             if (onErrorCallback != null) {
@@ -743,13 +1305,12 @@ public class ODINMarketFeedClient  {
         }
 
         try {
-            String currentTime = formatTime(new Date());
-            String bestFiveRequest = String.format(
-                    "63=FT3.0|64=127|65=84|66=%s|1=%d|7=%s|230=2",
-                    currentTime, marketSegmentId, token);
-            sendMessage(bestFiveRequest);
-            System.out.println(String.format("Unsubscribed from best five for token: %s (segment: %d)",
-                    token, marketSegmentId));
+            synchronized (requestEncoder) {
+                requestEncoder.begin(MessageTypes.BEST_FIVE, 84, System.currentTimeMillis());
+                writeToken(requestEncoder, marketSegmentId, token).field(230, 2);
+                sendRequest(requestEncoder);
+            }
+            subscriptions.recordBestFive(marketSegmentId, token, false);
             future.complete(null);
         } catch (Exception e) {
             if (onErrorCallback != null) {
@@ -772,59 +1333,23 @@ public class ODINMarketFeedClient  {
             return future;
         }
 
-        StringBuilder strTokenToSubscribe = new StringBuilder();
-
-        for (String item : tokenList) {
-            if (isNullOrWhiteSpace(item)) {
-                continue;
-            }
-
-            String[] parts = item.split("_");
-
-            if (parts.length != 2) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError(String.format(
-                            "Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.", item));
-                }
-                continue;
-            }
-
-            try {
-                int marketSegmentId = Integer.parseInt(parts[0]);
-                int token = Integer.parseInt(parts[1]);
-
-                strTokenToSubscribe.append(String.format("1=%d$7=%d|", marketSegmentId, token));
-            } catch (NumberFormatException e) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError(String.format(
-                            "Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.", item));
-                }
-                continue;
-            }
-        }
-
-        if (strTokenToSubscribe.length() > 0) {
-            try {
-                String currentTime = formatTime(new Date());
-                String tlRequest = String.format(
-                        "63=FT3.0|64=347|65=84|66=%s|%s230=1",
-                        currentTime, strTokenToSubscribe.toString());
-                sendMessage(tlRequest);
-                System.out.println("Subscribed to LTP touchline tokens: " + String.join(", ", tokenList));
+        try {
+            if (sendInstrumentRequest(SubscriptionManager.Stream.LTP_TOUCHLINE, tokenList, true, "0", false)) {
                 future.complete(null);
-            } catch (Exception e) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError("Subscription failed: " + e.getMessage());
-                }
-                future.completeExceptionally(e);
+                return future;
             }
-        } else {
+        } catch (Exception e) {
             if (onErrorCallback != null) {
-                onErrorCallback.onError("No valid tokens found to subscribe.");
+                onErrorCallback.onError("Subscription failed: " + e.getMessage());
             }
-            future.completeExceptionally(new IllegalArgumentException("No valid tokens found to subscribe."));
+            future.completeExceptionally(e);
+            return future;
         }
 
+        if (onErrorCallback != null) {
+            onErrorCallback.onError("No valid tokens found to subscribe.");
+        }
+        future.completeExceptionally(new IllegalArgumentException("No valid tokens found to subscribe."));
         return future;
     }
 
@@ -839,59 +1364,23 @@ public class ODINMarketFeedClient  {
             return future;
         }
 
-        StringBuilder strTokenToSubscribe = new StringBuilder();
-
-        for (String item : tokenList) {
-            if (isNullOrWhiteSpace(item)) {
-                continue;
-            }
-
-            String[] parts = item.split("_");
-
-            if (parts.length != 2) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError(String.format(
-                            "Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.", item));
-                }
-                continue;
-            }
-
-            try {
-                int marketSegmentId = Integer.parseInt(parts[0]);
-                int token = Integer.parseInt(parts[1]);
-
-                strTokenToSubscribe.append(String.format("1=%d$7=%d|", marketSegmentId, token));
-            } catch (NumberFormatException e) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError(String.format(
-                            "Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.", item));
-                }
-                continue;
-            }
-        }
-
-        if (strTokenToSubscribe.length() > 0) {
-            try {
-                String currentTime = formatTime(new Date());
-                String tlRequest = String.format(
-                        "63=FT3.0|64=347|65=84|66=%s|%s230=2",
-                        currentTime, strTokenToSubscribe.toString());
-                sendMessage(tlRequest);
-                System.out.println("Unsubscribed from LTP touchline tokens: " + String.join(", ", tokenList));
+        try {
+            if (sendInstrumentRequest(SubscriptionManager.Stream.LTP_TOUCHLINE, tokenList, false, "0", false)) {
                 future.complete(null);
-            } catch (Exception e) {
-                if (onErrorCallback != null) {
-                    onErrorCallback.onError("Unsubscription failed: " + e.getMessage());
-                }
-                future.completeExceptionally(e);
+                return future;
             }
-        } else {
+        } catch (Exception e) {
             if (onErrorCallback != null) {
-                onErrorCallback.onError("No valid tokens found to unsubscribe.");
+                onErrorCallback.onError("Unsubscription failed: " + e.getMessage());
             }
-            future.completeExceptionally(new IllegalArgumentException("No valid tokens found to unsubscribe."));
+            future.completeExceptionally(e);
+            return future;
         }
 
+        if (onErrorCallback != null) {
+            onErrorCallback.onError("No valid tokens found to unsubscribe.");
+        }
+        future.completeExceptionally(new IllegalArgumentException("No valid tokens found to unsubscribe."));
         return future;
     }
 
@@ -906,14 +1395,12 @@ public class ODINMarketFeedClient  {
         CompletableFuture<Void> future = new CompletableFuture<>();
 
         try {
-            String sIsPause = isPause ? "230=1" : "230=2";
-            String currentTime = formatTime(new Date());
-            String tlRequest = String.format(
-                    "63=FT3.0|64=106|65=84|66=%s|%s",
-                    currentTime, sIsPause);
-
-            sendMessage(tlRequest);
-            System.out.println((isPause ? "Pause " : "Resume ") + "request sent");
+            synchronized (requestEncoder) {
+                requestEncoder.begin(MessageTypes.PAUSE_RESUME, 84, System.currentTimeMillis())
+                        .field(230, isPause ? 1 : 2);
+                sendRequest(requestEncoder);
+            }
+            subscriptions.recordPaused(isPause);
             future.complete(null);
         } catch (Exception e) {
             if (onErrorCallback != null) {
@@ -930,109 +1417,451 @@ public class ODINMarketFeedClient  {
         return str == null || str.trim().isEmpty();
     }
 
-    private String formatTime(Date date) {
-        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss");
-        return sdf.format(date);
+    private String formatTime(long epochMillis) {
+        synchronized (requestTimeCodec) {
+            return requestTimeCodec.formatTime(epochMillis);
+        }
     }
 
-    private String formatDate(Date date) {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HHmmss");
-        return sdf.format(date);
+    public void sendMessage(String message) throws IOException {
+        synchronized (requestEncoder) {
+            sendRequest(requestEncoder.raw(message));
+        }
     }
 
-    public void sendMessage(String message) throws IOException {
-        if (webSocketClient == null || !webSocketClient.isOpen()) {
+    RequestEncoder requestEncoder() {
+        return requestEncoder;
+    }
+
+    // Frames and sends the request held by the encoder; the caller holds its lock.
+    // The socket copies the frame before send() returns, so the buffer can be reused.
+    void sendRequest(RequestEncoder encoder) throws IOException {
+        WebSocketClient socket = webSocketClient;
+        if (socket == null || !socket.isOpen()) {
             throw new IllegalStateException("WebSocket is not connected");
         }
+        ByteBuffer frame = encoder.frame();
+        int frameLength = frame.remaining();
+        socket.send(frame);
+        FeedMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.messageSent(frameLength);
+        }
+    }
 
-        System.out.println("Sending Message: " + message);
-        byte[] packet = fragHandler.fragmentData(message.getBytes(StandardCharsets.US_ASCII));
-        webSocketClient.send(packet);
+    // Sends a touchline or LTP (un)subscription for the well-formed entries of tokenList and
+    // records it; returns false without sending if there are none. Malformed entries are reported.
+    private boolean sendInstrumentRequest(SubscriptionManager.Stream stream, List<String> tokenList,
+            boolean subscribe, String responseType, boolean ltpChangeOnly) throws Exception {
+        int malformed = 0;
+        try {
+            synchronized (requestEncoder) {
+                int count = parseInstruments(tokenList);
+                malformed = malformedEntries;
+                if (count == 0) {
+                    return false;
+                }
+                int options = 0;
+                requestEncoder.begin(stream.getMessageType(), 84, System.currentTimeMillis());
+                if (stream == SubscriptionManager.Stream.TOUCHLINE && subscribe) {
+                    if (responseType.equals("1")) {
+                        requestEncoder.field(49, 1);
+                    }
+                    requestEncoder.field(200, ltpChangeOnly ? 1 : 0);
+                    options = SubscriptionManager.touchlineOptions(responseType, ltpChangeOnly);
+                }
+                requestEncoder.instruments(requestKeys, count)
+                        .field(230, subscribe ? 1 : 2);
+                sendRequest(requestEncoder);
+                subscriptions.record(stream, requestKeys, count, subscribe, options);
+                return true;
+            }
+        } finally {
+            // Reported outside the lock, since the error callback may send requests itself
+            if (malformed > 0) {
+                reportMalformedInstruments(tokenList);
+            }
+        }
     }
 
-    private void responseReceived(byte[] data) {
+    // Parses tokenList into requestKeys and returns the count, skipping blank entries and
+    // counting malformed ones in malformedEntries. Call with requestEncoder held.
+    private int parseInstruments(List<String> tokenList) {
+        if (requestKeys.length < tokenList.size()) {
+            requestKeys = new long[tokenList.size()];
+        }
+        int count = 0;
+        int malformed = 0;
+        for (String item : tokenList) {
+            if (isNullOrWhiteSpace(item)) {
+                continue;
+            }
+            if (parseInstrument(item, requestKeys, count)) {
+                count++;
+            } else {
+                malformed++;
+            }
+        }
+        malformedEntries = malformed;
+        return count;
+    }
+
+    private void reportMalformedInstruments(List<String> tokenList) {
+        if (onErrorCallback == null) {
+            return;
+        }
+        long[] ignored = new long[1];
+        for (String item : tokenList) {
+            if (!isNullOrWhiteSpace(item) && !parseInstrument(item, ignored, 0)) {
+                onErrorCallback.onError(String.format(
+                        "Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.", item));
+            }
+        }
+    }
+
+    // Parses "MarketSegmentID_Token" into keys[index]; returns false if it is malformed
+    private static boolean parseInstrument(String item, long[] keys, int index) {
+        int separator = item.indexOf('_');
+        if (separator > 0 && separator == item.lastIndexOf('_')) {
+            try {
+                keys[index] = InstrumentIndex.key(Integer.parseInt(item, 0, separator, 10),
+                        Integer.parseInt(item, separator + 1, item.length(), 10));
+                return true;
+            } catch (NumberFormatException e) {
+                // malformed
+            }
+        }
+        return false;
+    }
+
+    // Best-five token as 1=seg|7=token; tokens that are not numeric are sent as given
+    private RequestEncoder writeToken(RequestEncoder encoder, int marketSegmentId, String token) {
         try {
-            List<byte[]> arrData = fragHandler.defragment(data);
+            return encoder.instrumentFields(marketSegmentId, Integer.parseInt(token));
+        } catch (NumberFormatException e) {
+            return encoder.field(1, marketSegmentId).field(7, token);
+        }
+    }
 
-            for (byte[] packet : arrData) {
-                String strMsg = new String(packet, StandardCharsets.US_ASCII);
+    // Drops a partially received frame; FeedReplayer calls it where one recorded session ends
+    void resetReassembly() {
+        fragHandler.reset();
+    }
 
-                if (strMsg.indexOf("|50=") >= 0) {
-                    int dataIndex = strMsg.indexOf("|50=") + 4;
-                    StringBuilder strNewMsg = new StringBuilder(strMsg.substring(0, strMsg.indexOf("|50=") + 1));
+    // Entry point for every received frame; package-private so FeedReplayer and the
+    // benchmarks can drive it without a socket. Must only be called from one thread at a time.
+    void responseReceived(ByteBuffer data) {
+        if (latencyRecorder != null) {
+            frameReceivedNanos = System.nanoTime();
+        }
+        FeedMetrics metrics = this.metrics;
+        try {
+            if (metrics != null) {
+                metrics.frameReceived(data.remaining());
+            }
+            fragHandler.defragment(data, packetConsumer);
+        } catch (Exception error) {
+            if (metrics != null) {
+                metrics.decodeError();
+            }
+            System.err.println("Error processing response: " + error.getMessage());
+        }
+    }
 
-                    ByteBuffer buffer = ByteBuffer.wrap(packet).order(java.nio.ByteOrder.LITTLE_ENDIAN);
-                    buffer.position(dataIndex);
+    private void packetReceived(byte[] packet, int offset, int length) {
+        DispatchEvent event = directEvent;
+        int messageType;
+        boolean isTouchline;
+        long instrumentKey = -1;
+        // Only decoding failures count as decode errors; callback failures are reported below
+        try {
+            // Peek at the header; everything below works off the 64= type
+            messageType = FeedProtocol.messageType(packet, offset, length);
+            FeedMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.packetReceived(messageType);
+            }
+            event.wrap(packet, offset, length, messageType);
 
-                    int mktSegId = buffer.getInt();
-                    strNewMsg.append("1=").append(mktSegId).append("|");
+            DepthBook book = messageType == MessageTypes.BEST_FIVE ? depthBook : null;
+            if (book != null) {
+                applyDepth(book, event);
+            }
 
-                    int token = buffer.getInt();
-                    strNewMsg.append("7=").append(token).append("|");
+            isTouchline = (lastValueCache != null || conflatingQueue != null || tickStore != null
+                    || barBuilder != null || topMovers != null)
+                    && touchline.wrap(packet, offset, length, messageType);
 
-                    int lutSeconds = buffer.getInt();
-                    Date lutDate = new Date(dteNSE.getTimeInMillis() + lutSeconds * 1000L);
-                    String lut = formatDate(lutDate);
-                    strNewMsg.append("74=").append(lut).append("|");
+            if (subscriptions.isAwaitingFirstTick() && messageType != MessageTypes.BEST_FIVE) {
+                instrumentKey = FeedProtocol.instrumentKey(packet, offset, length, messageType, touchline);
+            }
+        } catch (Exception error) {
+            FeedMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.decodeError();
+            }
+            System.err.println("Error decoding packet: " + error.getMessage());
+            return;
+        }
 
-                    int lttSeconds = buffer.getInt();
-                    Date lttDate = new Date(dteNSE.getTimeInMillis() + lttSeconds * 1000L);
-                    String ltt = formatDate(lttDate);
-                    strNewMsg.append("73=").append(ltt).append("|");
+        try {
+            if (isTouchline) {
+                updateTouchlineConsumers();
+            }
 
-                    int ltp = buffer.getInt();
-                    strNewMsg.append("8=").append(ltp).append("|");
+            if (instrumentKey != -1) {
+                subscriptions.onInstrumentData(instrumentKey, System.nanoTime());
+            }
 
-                    int bQty = buffer.getInt();
-                    strNewMsg.append("2=").append(bQty).append("|");
+            LatencyRecorder latency = latencyRecorder;
+            if (latency != null && frameReceivedNanos != 0) {
+                stampLatency(latency, event);
+            }
 
-                    int bPrice = buffer.getInt();
-                    strNewMsg.append("3=").append(bPrice).append("|");
+            // Drop the packet if no callback wants this type
+            if (!event.hasDepth && !isWanted(messageType)) {
+                return;
+            }
 
-                    int sQty = buffer.getInt();
-                    strNewMsg.append("5=").append(sQty).append("|"); // Note: Original uses bQty
+            PacketDispatcher ring = dispatcher;
+            if (ring != null) {
+                if (ring.publish(event)) {
+                    dispatcherFullReported = false;
+                } else if (!dispatcherFullReported) {
+                    // Report once per overflow episode instead of once per packet
+                    dispatcherFullReported = true;
+                    reportError("Dispatcher queue is full or closed, rejecting packets (" + ring.getCapacity() + " slots)");
+                }
+            } else {
+                deliver(event, deliveredTouchline);
+            }
+        } catch (Exception error) {
+            reportCallbackError(error);
+        }
+    }
+
+    // Feeds the wrapped touchline to the enabled caches, stores and indexes
+    private void updateTouchlineConsumers() {
+        LastValueCache cache = lastValueCache;
+        if (cache != null) {
+            updateLastValueCache(cache);
+        }
+        TickStore store = tickStore;
+        if (store != null) {
+            storeTick(store);
+        }
+        BarBuilder bars = barBuilder;
+        if (bars != null && !bars.update(touchline) && !barBuilderFullReported) {
+            barBuilderFullReported = true;
+            reportError("Bar builder is full (" + bars.capacity() + " instruments)");
+        }
+        TopMoversIndex movers = topMovers;
+        if (movers != null && !movers.update(touchline) && !topMoversFullReported) {
+            topMoversFullReported = true;
+            reportError("Top movers index is full (" + movers.capacity() + " instruments)");
+        }
+        ConflatingTouchlineQueue conflation = conflatingQueue;
+        if (conflation != null && !conflation.offer(touchline) && !conflationFullReported) {
+            conflationFullReported = true;
+            reportError("Conflating queue is full (" + conflation.getValues().capacity() + " instruments)");
+        }
+    }
+
+    // Marks the end of decoding; the segment and LUT are kept for the callback stages
+    private void stampLatency(LatencyRecorder latency, DispatchEvent event) {
+        int segment = LatencyRecorder.NO_SEGMENT;
+        long exchangeMillis = -1;
+        if (event.hasDepth) {
+            segment = event.mktSegId;
+        } else if (touchline.wrap(event.buffer, event.offset, event.length, event.messageType)) {
+            segment = touchline.getMktSegId();
+            exchangeMillis = touchline.getLutEpochMillis();
+        }
+        long decodedNanos = System.nanoTime();
+        event.stampLatency(frameReceivedNanos, decodedNanos, segment, exchangeMillis);
+        latency.record(LatencyRecorder.Stage.RECEIVE_TO_DECODE, event.messageType, segment,
+                decodedNanos - frameReceivedNanos);
+    }
 
-                    int sPrice = buffer.getInt();
-                    strNewMsg.append("6=").append(sPrice).append("|"); // Note: Original uses bPrice
+    private void recordCallbackLatency(LatencyRecorder latency, DispatchEvent event) {
+        latency.record(LatencyRecorder.Stage.DECODE_TO_CALLBACK, event.messageType, event.latencySegment,
+                System.nanoTime() - event.decodedNanos);
+        if (event.exchangeMillis >= 0) {
+            latency.record(LatencyRecorder.Stage.EXCHANGE_TO_CALLBACK, event.messageType, event.latencySegment,
+                    (System.currentTimeMillis() - event.exchangeMillis) * 1_000_000L);
+        }
+    }
 
-                    int oPrice = buffer.getInt();
-                    strNewMsg.append("75=").append(oPrice).append("|"); // Note: Original uses bQty
+    private boolean isWanted(int messageType) {
+        ListenerRegistry registry = listenerRegistry;
+        return (onPacketCallback != null && packetFilter.accepts(messageType))
+                || (onTickCallback != null && tickFilter.accepts(messageType))
+                || (onMessageCallback != null && messageFilter.accepts(messageType))
+                || (registry != null && registry.wants(messageType));
+    }
 
-                    int hPrice = buffer.getInt();
-                    strNewMsg.append("77=").append(hPrice).append("|"); // Note: Original uses bPrice
+    // Runs the user callbacks for one packet, on the read thread or the dispatcher thread
+    private void deliver(DispatchEvent event, TouchlineFlyweight deliveredTouchline) {
+        byte[] packet = event.buffer;
+        int offset = event.offset;
+        int length = event.length;
+        int messageType = event.messageType;
 
-                    int lPrice = buffer.getInt();
-                    strNewMsg.append("78=").append(lPrice).append("|"); // Note: Original uses bQty
+        LatencyRecorder latency = latencyRecorder;
+        if (latency != null && event.decodedNanos != 0) {
+            recordCallbackLatency(latency, event);
+        }
 
-                    int cPrice = buffer.getInt();
-                    strNewMsg.append("76=").append(cPrice).append("|"); // Note: Original uses bPrice
+        OnDepthCallback depthCallback = onDepthCallback;
+        if (event.hasDepth && depthCallback != null) {
+            depthCallback.onDepth(event.mktSegId, event.token, event.changedBidLevels, event.changedAskLevels,
+                    event.depth);
+        }
 
-                    int decLocator = buffer.getInt();
-                    strNewMsg.append("399=").append(decLocator).append("|");
+        OnPacketCallback packetCallback = onPacketCallback;
+        OnTickCallback tickCallback = onTickCallback;
+        OnMessageCallback messageCallback = onMessageCallback;
+        boolean wantPacket = packetCallback != null && packetFilter.accepts(messageType);
+        boolean wantTick = tickCallback != null && tickFilter.accepts(messageType);
+        boolean wantMessage = messageCallback != null && messageFilter.accepts(messageType);
 
-                    int prvClosePrice = buffer.getInt();
-                    strNewMsg.append("250=").append(prvClosePrice).append("|");
+        if (wantPacket) {
+            packetCallback.onPacket(packet, offset, length);
+        }
 
-                    int indicativeClosePrice = buffer.getInt();
-                    strNewMsg.append("88=").append(indicativeClosePrice).append("|");
+        boolean isTouchline = (wantTick || wantMessage)
+                && deliveredTouchline.wrap(packet, offset, length, messageType);
 
-                    strMsg = strNewMsg.toString();
-                }
+        if (isTouchline && wantTick) {
+            tickCallback.onTick(deliveredTouchline);
+        }
 
-                if (onMessageCallback != null) {
-                    onMessageCallback.onMessage(strMsg);
-                }
+        ListenerRegistry registry = listenerRegistry;
+        if (registry != null) {
+            registry.routePacket(packet, offset, length, messageType);
+            if (registry.hasTickListeners()
+                    && (isTouchline || deliveredTouchline.wrap(packet, offset, length, messageType))) {
+                registry.routeTick(deliveredTouchline);
             }
-        } catch (Exception error) {
-            System.err.println("Error processing response: " + error.getMessage());
         }
+
+        if (wantMessage) {
+            String strMsg = isTouchline
+                    ? touchlineToString(packet, offset, deliveredTouchline)
+                    : new String(packet, offset, length, StandardCharsets.US_ASCII);
+            messageCallback.onMessage(strMsg);
+        }
+    }
+
+    private void applyDepth(DepthBook book, DispatchEvent event) {
+        int slot = book.apply(event.buffer, event.offset, event.length);
+        if (slot < 0) {
+            if (book.size() == book.capacity() && !depthBookFullReported) {
+                depthBookFullReported = true;
+                reportError("Depth book is full (" + book.capacity() + " instruments)");
+            }
+            return;
+        }
+        int changedBid = book.lastChangedBidLevels();
+        int changedAsk = book.lastChangedAskLevels();
+        if (onDepthCallback != null && (changedBid != 0 || changedAsk != 0)) {
+            event.setDepth(book.lastMktSegId(), book.lastToken(), changedBid, changedAsk);
+            book.copy(slot, event.depth);
+        }
+    }
+
+    private void updateLastValueCache(LastValueCache cache) {
+        if (cache.update(touchline) < 0 && !lastValueCacheFullReported) {
+            lastValueCacheFullReported = true;
+            reportError("Last value cache is full (" + cache.capacity() + " instruments)");
+        }
+    }
+
+    private void storeTick(TickStore store) {
+        String problem = null;
+        try {
+            // A store closed by disableTickStore while this tick was on its way is not an error
+            if (store.append(touchline) < 0 && !store.isClosed()) {
+                problem = "Tick store is full for the day";
+            }
+        } catch (IOException | RuntimeException e) {
+            problem = "Tick store write failed: " + e.getMessage();
+        }
+        if (problem != null && !tickStoreErrorReported) {
+            tickStoreErrorReported = true;
+            reportError(problem);
+        }
+    }
+
+    void reportCallbackError(Throwable error) {
+        System.err.println("Error processing response: " + error.getMessage());
+    }
+
+    void reportError(String errorMsg) {
+        System.err.println(errorMsg);
+        if (onErrorCallback != null) {
+            onErrorCallback.onError(errorMsg);
+        }
+    }
+
+    // Renders the binary touchline back into the "1=..|7=..|8=.." text form
+    private String touchlineToString(byte[] packet, int offset, TouchlineFlyweight tick) {
+        int headerLength = tick.headerEnd() - offset + 1;
+        StringBuilder strNewMsg = new StringBuilder(headerLength + 192);
+        strNewMsg.append(new String(packet, offset, headerLength, StandardCharsets.US_ASCII));
+
+        strNewMsg.append("1=").append(tick.getMktSegId()).append("|");
+        strNewMsg.append("7=").append(tick.getToken()).append("|");
+
+        strNewMsg.append("74=");
+        tick.timestampCodec().appendDateTime(tick.getLut(), strNewMsg).append("|");
+
+        strNewMsg.append("73=");
+        tick.timestampCodec().appendDateTime(tick.getLtt(), strNewMsg).append("|");
+
+        strNewMsg.append("8=").append(tick.getLtp()).append("|");
+        strNewMsg.append("2=").append(tick.getBuyQty()).append("|");
+        strNewMsg.append("3=").append(tick.getBuyPrice()).append("|");
+        strNewMsg.append("5=").append(tick.getSellQty()).append("|");
+        strNewMsg.append("6=").append(tick.getSellPrice()).append("|");
+        strNewMsg.append("75=").append(tick.getOpenPrice()).append("|");
+        strNewMsg.append("77=").append(tick.getHighPrice()).append("|");
+        strNewMsg.append("78=").append(tick.getLowPrice()).append("|");
+        strNewMsg.append("76=").append(tick.getClosePrice()).append("|");
+        strNewMsg.append("399=").append(tick.getDecimalLocator()).append("|");
+        strNewMsg.append("250=").append(tick.getPrevClosePrice()).append("|");
+        strNewMsg.append("88=").append(tick.getIndicativeClosePrice()).append("|");
+
+        return strNewMsg.toString();
     }
 
     public void dispose() {
         if (!isDisposed) {
+            closeRequested = true;
+            disableAutoReconnect();
             if (webSocketClient != null) {
                 webSocketClient.close();
             }
+            fragHandler.dispose();
+            subscriptions.shutdown();
+            FeedMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.stop();
+            }
+            disableCapture();
+            disableTickStore();
+            disableBars();
+            synchronized (requestEncoder) {
+                requestEncoder.end();
+            }
+            PacketDispatcher ring = dispatcher;
+            if (ring != null) {
+                try {
+                    ring.close(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
             isDisposed = true;
         }
     }
@@ -0,0 +1,13 @@
+package com.trading;
+
+// Stage that takes decoded packets off the socket read thread and runs the callbacks elsewhere.
+interface PacketDispatcher {
+    /**
+     * Copies the event and queues it. Returns false if it was rejected.
+     */
+    boolean publish(DispatchEvent event);
+
+    int getCapacity();
+
+    void close(long timeoutMillis) throws InterruptedException;
+}
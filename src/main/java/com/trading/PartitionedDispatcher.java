@@ -0,0 +1,94 @@
+package com.trading;
+
+/**
+ * Runs callbacks on N single-threaded lanes, each with its own
+ * {@link RingBufferDispatcher}. Packets are routed by a hash of their
+ * (mktSegId, token), so every update of one instrument goes to the same lane and
+ * stays in order while different instruments are handled in parallel.
+ *
+ * Packets that carry no instrument (login replies and the like) always go to lane 0.
+ * Callbacks run concurrently across lanes and must be thread-safe.
+ * Enable it with {@link ODINMarketFeedClient#enablePartitionedDispatch}.
+ */
+public final class PartitionedDispatcher implements PacketDispatcher {
+    private final RingBufferDispatcher[] lanes;
+    // Used on the publishing thread only, to find the instrument of binary touchlines
+    private final TouchlineFlyweight keyReader = new TouchlineFlyweight(null);
+
+    PartitionedDispatcher(int laneCount, int capacityPerLane, RingBufferDispatcher.WaitStrategy waitStrategy,
+            RingBufferDispatcher.OverflowPolicy overflowPolicy, ODINMarketFeedClient owner) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("Lane count must be positive: " + laneCount);
+        }
+        this.lanes = new RingBufferDispatcher[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            RingBufferDispatcher.Handler handler = owner.newDeliveryHandler();
+            lanes[i] = new RingBufferDispatcher(capacityPerLane, waitStrategy, overflowPolicy, handler, owner,
+                    "odin-feed-lane-" + i);
+        }
+    }
+
+    @Override
+    public boolean publish(DispatchEvent event) {
+        return lanes[laneFor(event)].publish(event);
+    }
+
+    int laneFor(DispatchEvent event) {
+        if (lanes.length == 1) {
+            return 0;
+        }
+        if (event.hasDepth) {
+            return laneIndex(event.mktSegId, event.token);
+        }
+        long key = FeedProtocol.instrumentKey(event.buffer, event.offset, event.length, event.messageType, keyReader);
+        if (key == -1) {
+            return 0;
+        }
+        return Math.floorMod(InstrumentIndex.hash(key), lanes.length);
+    }
+
+    /**
+     * Lane that handles an instrument.
+     */
+    public int laneIndex(int mktSegId, int token) {
+        return Math.floorMod(InstrumentIndex.hash(InstrumentIndex.key(mktSegId, token)), lanes.length);
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    public RingBufferDispatcher getLane(int index) {
+        return lanes[index];
+    }
+
+    /**
+     * Total capacity across lanes.
+     */
+    @Override
+    public int getCapacity() {
+        int capacity = 0;
+        for (RingBufferDispatcher lane : lanes) {
+            capacity += lane.getCapacity();
+        }
+        return capacity;
+    }
+
+    /**
+     * Sum of the lanes' current queue depths.
+     */
+    public long getQueueDepth() {
+        long depth = 0;
+        for (RingBufferDispatcher lane : lanes) {
+            depth += lane.getQueueDepth();
+        }
+        return depth;
+    }
+
+    @Override
+    public void close(long timeoutMillis) throws InterruptedException {
+        for (RingBufferDispatcher lane : lanes) {
+            lane.close(timeoutMillis);
+        }
+    }
+}
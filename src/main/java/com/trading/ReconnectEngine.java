@@ -0,0 +1,149 @@
+package com.trading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Schedules reconnect attempts for one client after its socket drops, and times the
+// outage. State is restored by the client once the new socket is open.
+final class ReconnectEngine {
+    // A session that stays up this long ends the backoff; one that drops sooner counts
+    // as a failed attempt, so a gateway that accepts and then drops is not retried in a
+    // tight loop
+    static final long STABLE_SESSION_MILLIS = 10_000;
+
+    private final ODINMarketFeedClient client;
+    private final ReconnectPolicy policy;
+    private final ReconnectMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+
+    // Primary host first, then the failover hosts; guarded by this
+    private final List<ReconnectPolicy.Endpoint> endpoints = new ArrayList<>();
+    private int endpointIndex;
+    private int attempt;
+    private long openedNanos = -1;
+    private long outageStartNanos = -1;
+    private long recoveryStartNanos = -1;
+    private boolean active;
+
+    ReconnectEngine(ODINMarketFeedClient client, ReconnectPolicy policy, ReconnectMetrics metrics) {
+        this.client = client;
+        this.policy = policy;
+        this.metrics = metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "odin-feed-reconnect");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // The user connected explicitly; start over with this host as the primary
+    synchronized void connecting(ReconnectPolicy.Endpoint primary) {
+        endpoints.clear();
+        endpoints.add(primary);
+        endpoints.addAll(policy.getFailoverHosts());
+        endpointIndex = 0;
+        attempt = 0;
+        openedNanos = -1;
+        outageStartNanos = -1;
+        recoveryStartNanos = -1;
+        active = true;
+    }
+
+    synchronized boolean isInOutage() {
+        return outageStartNanos >= 0;
+    }
+
+    /**
+     * Called when a socket opened. Returns true if it ended an outage, in which case
+     * the login and subscriptions must be restored.
+     */
+    synchronized boolean onOpened(ReconnectPolicy.Endpoint endpoint) {
+        int index = endpoints.indexOf(endpoint);
+        endpointIndex = Math.max(index, 0);
+        openedNanos = System.nanoTime();
+        if (outageStartNanos < 0) {
+            metrics.connectedTo(endpoint.toString());
+            return false;
+        }
+        metrics.reconnected(millisSince(outageStartNanos), endpoint.toString());
+        recoveryStartNanos = outageStartNanos;
+        outageStartNanos = -1;
+        return true;
+    }
+
+    synchronized void onRestored() {
+        if (recoveryStartNanos >= 0) {
+            metrics.recovered(millisSince(recoveryStartNanos));
+            recoveryStartNanos = -1;
+        }
+    }
+
+    // Called for every unexpected close, including failed attempts
+    synchronized void onClosed(boolean wasOpen) {
+        if (!active || endpoints.isEmpty()) {
+            return;
+        }
+        if (wasOpen && openedNanos >= 0 && millisSince(openedNanos) >= STABLE_SESSION_MILLIS) {
+            attempt = 0;
+        }
+        openedNanos = -1;
+        if (outageStartNanos < 0) {
+            outageStartNanos = System.nanoTime();
+            recoveryStartNanos = -1;
+            metrics.disconnected();
+        } else if (!wasOpen) {
+            metrics.attemptFailed();
+        }
+
+        int maxAttempts = policy.getMaxAttempts();
+        if (maxAttempts > 0 && attempt >= maxAttempts) {
+            active = false;
+            client.reportError("Giving up reconnecting after " + attempt + " attempts.");
+            return;
+        }
+
+        ReconnectPolicy.Endpoint target = endpoints.get((endpointIndex + attempt) % endpoints.size());
+        long delay = policy.delayMillis(attempt);
+        attempt++;
+        try {
+            scheduler.schedule(() -> connect(target), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            active = false;
+        }
+    }
+
+    // The user disconnected; drop any pending attempt
+    synchronized void cancel() {
+        active = false;
+        outageStartNanos = -1;
+    }
+
+    void shutdown() {
+        cancel();
+        scheduler.shutdownNow();
+    }
+
+    private void connect(ReconnectPolicy.Endpoint target) {
+        synchronized (this) {
+            if (!active) {
+                return;
+            }
+        }
+        System.out.println("Reconnecting to " + target);
+        try {
+            client.openSocket(target, new CompletableFuture<>());
+        } catch (Exception e) {
+            client.reportError("Reconnect to " + target + " failed: " + e.getMessage());
+            onClosed(false);
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
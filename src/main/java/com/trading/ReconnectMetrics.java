@@ -0,0 +1,84 @@
+package com.trading;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters kept by the reconnect engine. An outage lasts from an unexpected close
+ * until a new socket is open; recovery lasts from the close until the login and the
+ * full subscription state have been sent again.
+ */
+public final class ReconnectMetrics {
+    private final AtomicLong disconnects = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong totalOutageMillis = new AtomicLong();
+    private final AtomicLong maxOutageMillis = new AtomicLong();
+    private volatile long lastOutageMillis = -1;
+    private volatile long lastRecoveryMillis = -1;
+    private volatile String currentEndpoint;
+
+    void disconnected() {
+        disconnects.incrementAndGet();
+    }
+
+    void attemptFailed() {
+        failedAttempts.incrementAndGet();
+    }
+
+    void reconnected(long outageMillis, String endpoint) {
+        reconnects.incrementAndGet();
+        totalOutageMillis.addAndGet(outageMillis);
+        maxOutageMillis.accumulateAndGet(outageMillis, Math::max);
+        lastOutageMillis = outageMillis;
+        currentEndpoint = endpoint;
+    }
+
+    void recovered(long recoveryMillis) {
+        lastRecoveryMillis = recoveryMillis;
+    }
+
+    void connectedTo(String endpoint) {
+        currentEndpoint = endpoint;
+    }
+
+    public long getDisconnectCount() {
+        return disconnects.get();
+    }
+
+    public long getReconnectCount() {
+        return reconnects.get();
+    }
+
+    public long getFailedAttemptCount() {
+        return failedAttempts.get();
+    }
+
+    public long getTotalOutageMillis() {
+        return totalOutageMillis.get();
+    }
+
+    public long getMaxOutageMillis() {
+        return maxOutageMillis.get();
+    }
+
+    /**
+     * @return duration of the most recent outage, or -1 if there was none
+     */
+    public long getLastOutageMillis() {
+        return lastOutageMillis;
+    }
+
+    /**
+     * @return time from the most recent drop until state was restored, or -1
+     */
+    public long getLastRecoveryMillis() {
+        return lastRecoveryMillis;
+    }
+
+    /**
+     * @return "host:port" of the socket in use
+     */
+    public String getCurrentEndpoint() {
+        return currentEndpoint;
+    }
+}
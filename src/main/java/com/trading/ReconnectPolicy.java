@@ -0,0 +1,145 @@
+package com.trading;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Settings for {@link ODINMarketFeedClient#enableAutoReconnect(ReconnectPolicy)}.
+ *
+ * The first attempt after a drop is made against the host that was in use, after a
+ * random wait of up to {@code jitter * initialDelay}. Later attempts rotate through that
+ * host and the failover hosts, waiting {@code initialDelay * multiplier^(attempt - 1)},
+ * capped at {@code maxDelay}, with a random share of up to {@code jitter} taken off each
+ * wait, so that many clients dropped together do not all reconnect at the same moment.
+ * A session that opens but drops again within ten seconds counts as a failed attempt,
+ * so the waits keep growing while a gateway accepts connections and then closes them.
+ */
+public final class ReconnectPolicy {
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 100;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5000;
+    public static final double DEFAULT_MULTIPLIER = 2.0;
+    public static final double DEFAULT_JITTER = 0.5;
+
+    public static final class Endpoint {
+        private final String host;
+        private final int port;
+        private final boolean useSSL;
+
+        public Endpoint(String host, int port, boolean useSSL) {
+            if (host == null || host.trim().isEmpty()) {
+                throw new IllegalArgumentException("Host cannot be null or empty.");
+            }
+            if (port <= 0 || port > 65535) {
+                throw new IllegalArgumentException("Port must be between 1 and 65535.");
+            }
+            this.host = host;
+            this.port = port;
+            this.useSSL = useSSL;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public boolean isUseSSL() {
+            return useSSL;
+        }
+
+        String url() {
+            return String.format("%s://%s:%d", useSSL ? "wss" : "ws", host, port);
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final double jitter;
+    private final List<Endpoint> failoverHosts = new ArrayList<>();
+    private int maxAttempts;
+
+    public ReconnectPolicy() {
+        this(DEFAULT_INITIAL_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MULTIPLIER, DEFAULT_JITTER);
+    }
+
+    /**
+     * @param jitter share of each wait that is randomized, between 0 and 1
+     */
+    public ReconnectPolicy(long initialDelayMillis, long maxDelayMillis, double multiplier, double jitter) {
+        if (initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Delays must satisfy 0 <= initialDelay <= maxDelay.");
+        }
+        if (multiplier < 1.0) {
+            throw new IllegalArgumentException("Multiplier must be at least 1: " + multiplier);
+        }
+        if (jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1: " + jitter);
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Adds a host to try when the current one cannot be reached.
+     */
+    public ReconnectPolicy addFailoverHost(String host, int port, boolean useSSL) {
+        failoverHosts.add(new Endpoint(host, port, useSSL));
+        return this;
+    }
+
+    /**
+     * Gives up after this many consecutive failed attempts; 0 (the default) never gives up.
+     */
+    public ReconnectPolicy setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 0) {
+            throw new IllegalArgumentException("Max attempts cannot be negative: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public List<Endpoint> getFailoverHosts() {
+        return Collections.unmodifiableList(failoverHosts);
+    }
+
+    // Wait before the given attempt (0-based) of one outage
+    long delayMillis(int attempt) {
+        if (attempt == 0) {
+            return (long) (initialDelayMillis * jitter * ThreadLocalRandom.current().nextDouble());
+        }
+        double base = Math.min(maxDelayMillis, initialDelayMillis * Math.pow(multiplier, attempt - 1));
+        return (long) (base - base * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+}
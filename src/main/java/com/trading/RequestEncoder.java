@@ -0,0 +1,206 @@
+package com.trading;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+// Builds outbound FT3.0 requests as ASCII bytes in a reusable buffer, then compresses
+// them straight into a reusable frame buffer behind the [flag][5 digit length] header.
+// Nothing is allocated once the buffers have grown to the largest request sent.
+//
+// Fields are written as "|tag=value", so a request reads
+//   63=FT3.0|64=<type>|65=<code>|66=HH:mm:ss|tag=value|...
+// Not thread-safe: callers hold the encoder's lock from begin() until the frame is sent.
+final class RequestEncoder {
+    private static final byte COMPRESSION_FLAG = 5;
+    private static final int HEADER_LENGTH = 6;
+    private static final int MAX_COMPRESSED_LENGTH = 99_999;
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+
+    private static final byte[] PREFIX = "63=FT3.0|64=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REQUEST_CODE_TAG = "|65=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TIME_TAG = "|66=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MKT_SEG_ID_TAG = "|1=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LIST_TOKEN_TAG = "$7=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOKEN_TAG = "|7=".getBytes(StandardCharsets.US_ASCII);
+
+    private final NseTimestampCodec timeCodec = new NseTimestampCodec();
+    private final Deflater deflater = new Deflater();
+    private byte[] body = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+    private byte[] frame = new byte[INITIAL_BUFFER_SIZE];
+    private ByteBuffer frameView = ByteBuffer.wrap(frame);
+    private boolean ended;
+
+    /**
+     * Starts a new request; {@code requestCode} is the 65= value (84 for broadcast
+     * requests, 74 for login).
+     */
+    RequestEncoder begin(int messageType, int requestCode, long epochMillis) {
+        length = 0;
+        put(PREFIX);
+        putNumber(messageType);
+        put(REQUEST_CODE_TAG);
+        putNumber(requestCode);
+        put(TIME_TAG);
+        ensureCapacity(8);
+        length = timeCodec.writeTime(epochMillis, body, length);
+        return this;
+    }
+
+    RequestEncoder field(int tag, int value) {
+        putTag(tag);
+        putNumber(value);
+        return this;
+    }
+
+    // Values are written as ASCII; anything outside it becomes '?'
+    RequestEncoder field(int tag, CharSequence value) {
+        putTag(tag);
+        int count = value.length();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            char c = value.charAt(i);
+            body[length++] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        return this;
+    }
+
+    /**
+     * Token list entry as used by touchline and LTP requests: {@code |1=seg$7=token}.
+     */
+    RequestEncoder instrument(int mktSegId, int token) {
+        put(MKT_SEG_ID_TAG);
+        putNumber(mktSegId);
+        put(LIST_TOKEN_TAG);
+        putNumber(token);
+        return this;
+    }
+
+    /**
+     * Writes one token list entry per {@link InstrumentIndex#key} in {@code keys[0..count)}.
+     */
+    RequestEncoder instruments(long[] keys, int count) {
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            instrument(InstrumentIndex.mktSegId(key), InstrumentIndex.token(key));
+        }
+        return this;
+    }
+
+    /**
+     * Single instrument as separate fields, as used by best-five requests:
+     * {@code |1=seg|7=token}.
+     */
+    RequestEncoder instrumentFields(int mktSegId, int token) {
+        put(MKT_SEG_ID_TAG);
+        putNumber(mktSegId);
+        put(TOKEN_TAG);
+        putNumber(token);
+        return this;
+    }
+
+    /**
+     * Replaces the request with {@code message} as is.
+     */
+    RequestEncoder raw(CharSequence message) {
+        length = 0;
+        int count = message.length();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            char c = message.charAt(i);
+            body[length++] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        return this;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Compresses the request into the frame buffer and returns a view of the complete
+     * frame. The view and its contents stay valid until the next call.
+     */
+    ByteBuffer frame() throws IOException {
+        if (ended) {
+            throw new IOException("Encoder has been disposed");
+        }
+        int count = 0;
+        try {
+            deflater.setInput(body, 0, length);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (HEADER_LENGTH + count == frame.length) {
+                    frame = Arrays.copyOf(frame, frame.length << 1);
+                    frameView = ByteBuffer.wrap(frame);
+                }
+                count += deflater.deflate(frame, HEADER_LENGTH + count, frame.length - HEADER_LENGTH - count);
+            }
+        } finally {
+            deflater.reset();
+        }
+        if (count > MAX_COMPRESSED_LENGTH) {
+            throw new IOException("Request too large: " + count + " compressed bytes");
+        }
+
+        frame[0] = COMPRESSION_FLAG;
+        for (int i = HEADER_LENGTH - 1, value = count; i > 0; i--, value /= 10) {
+            frame[i] = (byte) ('0' + value % 10);
+        }
+        frameView.clear().limit(HEADER_LENGTH + count);
+        return frameView;
+    }
+
+    void end() {
+        if (!ended) {
+            ended = true;
+            deflater.end();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(body, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    private void putTag(int tag) {
+        ensureCapacity(1);
+        body[length++] = '|';
+        putNumber(tag);
+        ensureCapacity(1);
+        body[length++] = '=';
+    }
+
+    private void put(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, body, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void putNumber(int number) {
+        ensureCapacity(11);
+        long value = number;
+        if (value < 0) {
+            body[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            body[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > body.length) {
+            body = Arrays.copyOf(body, Math.max(body.length << 1, length + extra));
+        }
+    }
+}
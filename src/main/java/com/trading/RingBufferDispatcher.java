@@ -0,0 +1,211 @@
+package com.trading;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Hands decoded packets from the socket read thread to a dedicated callback thread
+ * through a preallocated single-producer ring, so a slow handler no longer stalls
+ * socket reads.
+ *
+ * Each slot owns a reusable byte buffer; publishing copies the packet into it and
+ * allocates only if a packet is larger than anything the slot has held before.
+ * Enable it with {@link ODINMarketFeedClient#enableDispatcher}.
+ */
+public final class RingBufferDispatcher implements PacketDispatcher {
+
+    /**
+     * How the callback thread waits for work, and how a blocked publisher waits for space.
+     */
+    public enum WaitStrategy {
+        /** Lowest latency, burns a core. */
+        BUSY_SPIN,
+        /** Spins with {@link Thread#yield()} between checks. */
+        YIELD,
+        /** Sleeps for a short interval between checks; cheapest on CPU. */
+        PARK
+    }
+
+    /**
+     * What the read thread does when the ring is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait for the callback thread to free a slot. */
+        BLOCK,
+        /** Discard the oldest packet that has not been handed to a callback yet. */
+        DROP_OLDEST,
+        /** Reject the new packet and report an error. */
+        FAIL
+    }
+
+    interface Handler {
+        void onEvent(DispatchEvent event);
+    }
+
+    private static final long PARK_NANOS = 50_000L;
+    private static final LongBinaryOperator MAX = Math::max;
+
+    private final DispatchEvent[] events;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    private final Handler handler;
+    private final ODINMarketFeedClient owner;
+    private final Thread consumer;
+
+    // Sequences: published > head >= released. Slots below released may be reused.
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+
+    private volatile long highWaterMark;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean running = true;
+
+    RingBufferDispatcher(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy,
+            Handler handler, ODINMarketFeedClient owner, String threadName) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.events = new DispatchEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            events[i] = DispatchEvent.preallocated();
+        }
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+        this.overflowPolicy = overflowPolicy;
+        this.handler = handler;
+        this.owner = owner;
+        this.consumer = new Thread(this::consume, threadName);
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Copies the event into the next free slot. Must only be called from one thread.
+     *
+     * @return false if the event was rejected because the ring is full and the policy is
+     *         {@link OverflowPolicy#FAIL}, or because the dispatcher is closed
+     */
+    @Override
+    public boolean publish(DispatchEvent source) {
+        // The callback thread exits once the ring is drained, so nothing may be added after close
+        if (!running) {
+            return false;
+        }
+        long sequence = published.get();
+        while (sequence - released.get() >= events.length) {
+            if (!running) {
+                return false;
+            }
+            if (overflowPolicy == OverflowPolicy.FAIL) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                // Only drop when the callback thread is not in the middle of the oldest slot
+                long oldest = head.get();
+                if (oldest == released.get() && head.compareAndSet(oldest, oldest + 1)) {
+                    released.accumulateAndGet(oldest + 1, MAX);
+                    dropped.incrementAndGet();
+                    continue;
+                }
+            }
+            idle();
+        }
+
+        events[(int) sequence & mask].copyFrom(source);
+        published.lazySet(sequence + 1);
+
+        long depth = sequence + 1 - head.get();
+        if (depth > highWaterMark) {
+            highWaterMark = depth;
+        }
+        return true;
+    }
+
+    private void consume() {
+        while (running || head.get() < published.get()) {
+            long next = head.get();
+            if (next < published.get()) {
+                if (head.compareAndSet(next, next + 1)) {
+                    try {
+                        handler.onEvent(events[(int) next & mask]);
+                    } catch (Throwable error) {
+                        owner.reportCallbackError(error);
+                    }
+                    released.accumulateAndGet(next + 1, MAX);
+                }
+            } else {
+                idle();
+            }
+        }
+    }
+
+    private void idle() {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                LockSupport.parkNanos(PARK_NANOS);
+                break;
+        }
+    }
+
+    /**
+     * Stops accepting packets, lets the callback thread drain what is queued and waits
+     * up to {@code timeoutMillis} for it to finish.
+     */
+    @Override
+    public void close(long timeoutMillis) throws InterruptedException {
+        running = false;
+        if (Thread.currentThread() != consumer) {
+            consumer.join(timeoutMillis);
+        }
+    }
+
+    /**
+     * Packets published but not yet handed to a callback.
+     */
+    public long getQueueDepth() {
+        return Math.max(0, published.get() - head.get());
+    }
+
+    /**
+     * Largest queue depth observed since the dispatcher started.
+     */
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    @Override
+    public int getCapacity() {
+        return events.length;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
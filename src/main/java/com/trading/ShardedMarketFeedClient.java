@@ -0,0 +1,387 @@
+package com.trading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.trading.callback.OnCloseCallback;
+import com.trading.callback.OnDepthCallback;
+import com.trading.callback.OnErrorCallback;
+import com.trading.callback.OnMessageCallback;
+import com.trading.callback.OnOpenCallback;
+import com.trading.callback.OnTickCallback;
+
+/**
+ * Spreads subscriptions over several {@link ODINMarketFeedClient} sessions opened
+ * with the same credentials, so inflating and decoding run on one read thread per
+ * session instead of a single one.
+ *
+ * Every instrument is assigned to a shard by hashing its (segment, token), so all of
+ * its updates arrive on one session and stay in order. Callbacks from all shards are
+ * merged into one stream; by default deliveries are serialized so handlers never run
+ * concurrently. Call {@link #setSerializedDelivery(boolean)} with false to let shards
+ * call thread-safe handlers in parallel.
+ */
+public class ShardedMarketFeedClient {
+    private final ODINMarketFeedClient[] shards;
+    private final Object deliveryLock = new Object();
+    // 1 for each shard whose socket is open; a shard whose connect failed closes
+    // without having opened, so only open shards are counted down
+    private final AtomicIntegerArray shardOpen;
+    private final AtomicInteger openShards = new AtomicInteger();
+    private volatile boolean serializedDelivery = true;
+
+    private OnOpenCallback onOpenCallback;
+    private OnMessageCallback onMessageCallback;
+    private OnTickCallback onTickCallback;
+    private OnDepthCallback onDepthCallback;
+    private OnErrorCallback onErrorCallback;
+    private OnCloseCallback onCloseCallback;
+
+    public ShardedMarketFeedClient(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive.");
+        }
+        this.shards = new ODINMarketFeedClient[shardCount];
+        this.shardOpen = new AtomicIntegerArray(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            ODINMarketFeedClient shard = new ODINMarketFeedClient();
+            int index = i;
+            shard.setOnOpen(() -> shardOpened(index));
+            shard.setOnError(this::shardError);
+            shard.setOnClose((code, reason) -> shardClosed(index, code, reason));
+            shards[i] = shard;
+        }
+    }
+
+    public void setSerializedDelivery(boolean serializedDelivery) {
+        this.serializedDelivery = serializedDelivery;
+    }
+
+    /**
+     * Called once all shards are connected.
+     */
+    public void setOnOpen(OnOpenCallback callback) {
+        this.onOpenCallback = callback;
+    }
+
+    public void setOnMessage(OnMessageCallback callback, int... messageTypes) {
+        this.onMessageCallback = callback;
+        for (ODINMarketFeedClient shard : shards) {
+            shard.setOnMessage(callback == null ? null : this::deliverMessage, messageTypes);
+        }
+    }
+
+    public void setOnTick(OnTickCallback callback, int... messageTypes) {
+        this.onTickCallback = callback;
+        for (ODINMarketFeedClient shard : shards) {
+            shard.setOnTick(callback == null ? null : this::deliverTick, messageTypes);
+        }
+    }
+
+    /**
+     * Each shard keeps its own {@link DepthBook}; the callback receives a snapshot from
+     * the shard that owns the instrument.
+     */
+    public void setOnDepth(OnDepthCallback callback, int capacityPerShard) {
+        this.onDepthCallback = callback;
+        for (ODINMarketFeedClient shard : shards) {
+            if (callback != null && shard.getDepthBook() == null) {
+                shard.enableDepthBook(capacityPerShard);
+            }
+            shard.setOnDepth(callback == null ? null : this::deliverDepth);
+        }
+    }
+
+    public void setOnError(OnErrorCallback callback) {
+        this.onErrorCallback = callback;
+    }
+
+    public void setOnClose(OnCloseCallback callback) {
+        this.onCloseCallback = callback;
+    }
+
+    public CompletableFuture<Void> connect(String host, int port, boolean useSSL,
+            String userId, String apiKey) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            futures[i] = shards[i].connect(host, port, useSSL, userId, apiKey);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Each shard reconnects and restores its own subscriptions independently.
+     */
+    public void enableAutoReconnect(ReconnectPolicy policy) {
+        for (ODINMarketFeedClient shard : shards) {
+            shard.enableAutoReconnect(policy);
+        }
+    }
+
+    public void disconnect() throws InterruptedException {
+        for (ODINMarketFeedClient shard : shards) {
+            shard.disconnect();
+        }
+    }
+
+    public void dispose() {
+        for (ODINMarketFeedClient shard : shards) {
+            shard.dispose();
+        }
+    }
+
+    /**
+     * Subscribes each shard to the instruments it owns. Blank entries are skipped and
+     * malformed ones reported once through the error callback; shards that own none of
+     * the valid instruments are not called.
+     */
+    public void subscribeTouchline(List<String> tokenList, String responseType, boolean ltpChangeOnly)
+            throws Exception {
+        if (!"0".equals(responseType) && !"1".equals(responseType)) {
+            shardError("Invalid response type passed. Valid values are 0 or 1");
+            throw new IllegalArgumentException("Invalid response type");
+        }
+        List<List<String>> partitions = partition(tokenList, "subscribe");
+        Exception failure = null;
+        for (int i = 0; i < shards.length; i++) {
+            if (partitions.get(i).isEmpty()) {
+                continue;
+            }
+            // Keep going so one failing shard does not leave the others unsubscribed
+            try {
+                shards[i].subscribeTouchline(partitions.get(i), responseType, ltpChangeOnly);
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public CompletableFuture<Void> unsubscribeTouchline(List<String> tokenList) {
+        List<List<String>> partitions;
+        try {
+            partitions = partition(tokenList, "unsubscribe");
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            if (!partitions.get(i).isEmpty()) {
+                futures.add(shards[i].unsubscribeTouchline(partitions.get(i)));
+            }
+        }
+        return allOf(futures);
+    }
+
+    public CompletableFuture<Void> subscribeLTPTouchline(List<String> tokenList) {
+        List<List<String>> partitions;
+        try {
+            partitions = partition(tokenList, "subscribe");
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            if (!partitions.get(i).isEmpty()) {
+                futures.add(shards[i].subscribeLTPTouchline(partitions.get(i)));
+            }
+        }
+        return allOf(futures);
+    }
+
+    public CompletableFuture<Void> unsubscribeLTPTouchline(List<String> tokenList) {
+        List<List<String>> partitions;
+        try {
+            partitions = partition(tokenList, "unsubscribe");
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            if (!partitions.get(i).isEmpty()) {
+                futures.add(shards[i].unsubscribeLTPTouchline(partitions.get(i)));
+            }
+        }
+        return allOf(futures);
+    }
+
+    public CompletableFuture<Void> subscribeBestFive(String token, int marketSegmentId) {
+        return shardFor(marketSegmentId, token).subscribeBestFive(token, marketSegmentId);
+    }
+
+    public CompletableFuture<Void> unsubscribeBestFive(String token, int marketSegmentId) {
+        return shardFor(marketSegmentId, token).unsubscribeBestFive(token, marketSegmentId);
+    }
+
+    public CompletableFuture<Void> subscribePauseResume(boolean isPause) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (ODINMarketFeedClient shard : shards) {
+            futures.add(shard.subscribePauseResume(isPause));
+        }
+        return allOf(futures);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public ODINMarketFeedClient getShard(int index) {
+        return shards[index];
+    }
+
+    /**
+     * Index of the shard that owns an instrument.
+     */
+    public int shardIndex(int mktSegId, int token) {
+        int hash = InstrumentIndex.hash(InstrumentIndex.key(mktSegId, token));
+        return Math.floorMod(hash, shards.length);
+    }
+
+    private ODINMarketFeedClient shardFor(int marketSegmentId, String token) {
+        try {
+            return shards[shardIndex(marketSegmentId, Integer.parseInt(token.trim()))];
+        } catch (RuntimeException e) {
+            // Let the first shard validate and report the bad token
+            return shards[0];
+        }
+    }
+
+    // Splits "MarketSegmentID_Token" entries by owning shard. Null and blank entries are
+    // dropped and malformed ones reported together; like the single client, an empty
+    // list or one without a valid entry is rejected.
+    private List<List<String>> partition(List<String> tokenList, String action) {
+        if (tokenList == null || tokenList.isEmpty()) {
+            shardError("Token list cannot be null or empty.");
+            throw new IllegalArgumentException("Token list cannot be null or empty.");
+        }
+        List<List<String>> partitions = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        List<String> malformed = null;
+        int valid = 0;
+        for (String item : tokenList) {
+            if (item == null || item.trim().isEmpty()) {
+                continue;
+            }
+            String entry = item.trim();
+            int shard = shardOf(entry);
+            if (shard < 0) {
+                if (malformed == null) {
+                    malformed = new ArrayList<>();
+                }
+                malformed.add(entry);
+                continue;
+            }
+            partitions.get(shard).add(entry);
+            valid++;
+        }
+        if (malformed != null) {
+            shardError(String.format("Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.",
+                    String.join("', '", malformed)));
+        }
+        if (valid == 0) {
+            String error = "No valid tokens found to " + action + ".";
+            shardError(error);
+            throw new IllegalArgumentException(error);
+        }
+        return partitions;
+    }
+
+    // Owning shard of a "MarketSegmentID_Token" entry, or -1 if it is malformed
+    private int shardOf(String entry) {
+        int separator = entry.indexOf('_');
+        if (separator <= 0 || separator != entry.lastIndexOf('_')) {
+            return -1;
+        }
+        try {
+            return shardIndex(Integer.parseInt(entry, 0, separator, 10),
+                    Integer.parseInt(entry, separator + 1, entry.length(), 10));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static CompletableFuture<Void> allOf(List<CompletableFuture<Void>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void deliverMessage(String message) {
+        OnMessageCallback callback = onMessageCallback;
+        if (callback == null) {
+            return;
+        }
+        if (serializedDelivery) {
+            synchronized (deliveryLock) {
+                callback.onMessage(message);
+            }
+        } else {
+            callback.onMessage(message);
+        }
+    }
+
+    private void deliverTick(MarketData tick) {
+        OnTickCallback callback = onTickCallback;
+        if (callback == null) {
+            return;
+        }
+        if (serializedDelivery) {
+            synchronized (deliveryLock) {
+                callback.onTick(tick);
+            }
+        } else {
+            callback.onTick(tick);
+        }
+    }
+
+    private void deliverDepth(int mktSegId, int token, int changedBidLevels, int changedAskLevels, DepthSnapshot depth) {
+        OnDepthCallback callback = onDepthCallback;
+        if (callback == null) {
+            return;
+        }
+        if (serializedDelivery) {
+            synchronized (deliveryLock) {
+                callback.onDepth(mktSegId, token, changedBidLevels, changedAskLevels, depth);
+            }
+        } else {
+            callback.onDepth(mktSegId, token, changedBidLevels, changedAskLevels, depth);
+        }
+    }
+
+    private void shardOpened(int index) {
+        if (!shardOpen.compareAndSet(index, 0, 1)) {
+            return;
+        }
+        if (openShards.incrementAndGet() == shards.length && onOpenCallback != null) {
+            onOpenCallback.onOpen();
+        }
+    }
+
+    private void shardError(String error) {
+        if (onErrorCallback != null) {
+            synchronized (deliveryLock) {
+                onErrorCallback.onError(error);
+            }
+        }
+    }
+
+    private void shardClosed(int index, int code, String reason) {
+        if (shardOpen.compareAndSet(index, 1, 0)) {
+            openShards.decrementAndGet();
+        }
+        if (onCloseCallback != null) {
+            synchronized (deliveryLock) {
+                onCloseCallback.onClose(code, reason);
+            }
+        }
+    }
+}
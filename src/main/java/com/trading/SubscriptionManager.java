@@ -0,0 +1,516 @@
+package com.trading;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of which instruments a client is subscribed to and sends bulk
+ * (un)subscriptions as a paced series of smaller requests.
+ *
+ * Requests are diffed against the registry so only additions and removals go out,
+ * split into batches of {@link #setBatchSize} tokens and sent from a background
+ * thread at most once per {@link #setBatchInterval}. Each batch gets its own
+ * future. Subscriptions and pause/resume requests made through the client's own
+ * methods are recorded here as well, so the whole state can be replayed after a
+ * reconnect.
+ *
+ * For every touchline or LTP instrument the time from sending its batch to its first
+ * packet is measured ({@link #getTimeToFirstTickNanos}).
+ *
+ * Obtain it with {@link ODINMarketFeedClient#getSubscriptionManager()}.
+ */
+public final class SubscriptionManager {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final long DEFAULT_BATCH_INTERVAL_MILLIS = 100;
+
+    public enum Stream {
+        TOUCHLINE(MessageTypes.TOUCHLINE),
+        LTP_TOUCHLINE(MessageTypes.LTP_TOUCHLINE),
+        /** Sent one instrument per request, as the protocol requires. */
+        BEST_FIVE(MessageTypes.BEST_FIVE);
+
+        private final int messageType;
+
+        Stream(int messageType) {
+            this.messageType = messageType;
+        }
+
+        public int getMessageType() {
+            return messageType;
+        }
+    }
+
+    // Touchline request options, kept with each subscription so a replay sends what was sent
+    private static final int RESPONSE_TYPE_1 = 1;
+    private static final int LTP_CHANGE_ONLY = 2;
+
+    private final ODINMarketFeedClient client;
+
+    // Instrument keys per stream with their request options, updated as soon as a request
+    // is accepted; guarded by this
+    private final Map<Stream, SubscriptionTable> active = new EnumMap<>(Stream.class);
+
+    // Batch send time of instruments that have not ticked yet, and the measured delays
+    private final ConcurrentHashMap<Long, Long> firstTickPending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> timeToFirstTick = new ConcurrentHashMap<>();
+    private final AtomicInteger awaitingFirstTick = new AtomicInteger();
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long batchIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BATCH_INTERVAL_MILLIS);
+    private int touchlineOptions;
+
+    private boolean paused;
+
+    private ScheduledExecutorService pacer;
+    private long nextSendNanos;
+    // Futures of batches queued on the pacer and not yet sent
+    private final Set<CompletableFuture<Void>> pending = ConcurrentHashMap.newKeySet();
+
+    SubscriptionManager(ODINMarketFeedClient client) {
+        this.client = client;
+        for (Stream stream : Stream.values()) {
+            active.put(stream, new SubscriptionTable());
+        }
+    }
+
+    /**
+     * Maximum number of tokens per request.
+     */
+    public synchronized void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Minimum gap between two requests sent by this manager.
+     */
+    public synchronized void setBatchInterval(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Batch interval cannot be negative: " + millis);
+        }
+        this.batchIntervalNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Options used for {@link Stream#TOUCHLINE} subscriptions sent by this manager, as in
+     * {@link ODINMarketFeedClient#subscribeTouchline(List, String, boolean)}. Every
+     * subscription keeps the options it was sent with and is replayed with them.
+     */
+    public synchronized void setTouchlineOptions(String responseType, boolean ltpChangeOnly) {
+        if (!"0".equals(responseType) && !"1".equals(responseType)) {
+            throw new IllegalArgumentException("Invalid response type passed. Valid values are 0 or 1");
+        }
+        this.touchlineOptions = touchlineOptions(responseType, ltpChangeOnly);
+    }
+
+    /**
+     * Subscribes to the tokens ("MarketSegmentID_Token") that are not already active.
+     *
+     * @return one future per request sent, empty if nothing was missing
+     */
+    public List<CompletableFuture<Void>> subscribe(Stream stream, Collection<String> tokenList) {
+        long[] keys = parseTokens(tokenList);
+        synchronized (this) {
+            SubscriptionTable current = active.get(stream);
+            int options = optionsFor(stream);
+            int added = 0;
+            for (long key : keys) {
+                if (!current.contains(key)) {
+                    current.put(key, options);
+                    keys[added++] = key;
+                }
+            }
+            return schedule(stream, keys, added, true, options);
+        }
+    }
+
+    /**
+     * Unsubscribes from the tokens that are currently active.
+     *
+     * @return one future per request sent, empty if none was active
+     */
+    public List<CompletableFuture<Void>> unsubscribe(Stream stream, Collection<String> tokenList) {
+        long[] keys = parseTokens(tokenList);
+        synchronized (this) {
+            SubscriptionTable current = active.get(stream);
+            int removed = 0;
+            for (long key : keys) {
+                if (current.remove(key) != SubscriptionTable.ABSENT) {
+                    keys[removed++] = key;
+                }
+            }
+            return schedule(stream, keys, removed, false, 0);
+        }
+    }
+
+    /**
+     * Makes {@code tokenList} the complete set of subscriptions for the stream, sending
+     * the removals first and then the additions.
+     */
+    public List<CompletableFuture<Void>> update(Stream stream, Collection<String> tokenList) {
+        long[] desiredKeys = parseTokens(tokenList);
+        SubscriptionTable desired = new SubscriptionTable();
+        for (long key : desiredKeys) {
+            desired.put(key, 0);
+        }
+        synchronized (this) {
+            SubscriptionTable current = active.get(stream);
+            long[] removed = new long[current.size()];
+            int removedCount = 0;
+            for (int i = 0; i < current.tableSize(); i++) {
+                if (current.occupied(i) && !desired.contains(current.keyAt(i))) {
+                    removed[removedCount++] = current.keyAt(i);
+                }
+            }
+            int options = optionsFor(stream);
+            int added = 0;
+            for (long key : desiredKeys) {
+                if (!current.contains(key)) {
+                    current.put(key, options);
+                    desiredKeys[added++] = key;
+                }
+            }
+            for (int i = 0; i < removedCount; i++) {
+                current.remove(removed[i]);
+            }
+
+            List<CompletableFuture<Void>> futures = schedule(stream, removed, removedCount, false, 0);
+            futures.addAll(schedule(stream, desiredKeys, added, true, options));
+            return futures;
+        }
+    }
+
+    /**
+     * @return the active tokens of the stream as "MarketSegmentID_Token"
+     */
+    public synchronized Set<String> getActive(Stream stream) {
+        SubscriptionTable current = active.get(stream);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (int i = 0; i < current.tableSize(); i++) {
+            if (current.occupied(i)) {
+                tokens.add(tokenString(current.keyAt(i)));
+            }
+        }
+        return tokens;
+    }
+
+    public synchronized int getActiveCount(Stream stream) {
+        return active.get(stream).size();
+    }
+
+    public synchronized boolean isActive(Stream stream, int mktSegId, int token) {
+        return active.get(stream).contains(InstrumentIndex.key(mktSegId, token));
+    }
+
+    /**
+     * @return true if the last pause/resume request sent was a pause
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * @return nanoseconds from sending the instrument's subscription to its first
+     *         packet, or -1 if it has not ticked yet
+     */
+    public long getTimeToFirstTickNanos(int mktSegId, int token) {
+        Long nanos = timeToFirstTick.get(InstrumentIndex.key(mktSegId, token));
+        return nanos != null ? nanos : -1;
+    }
+
+    /**
+     * @return time to first tick in nanoseconds of every instrument that has ticked
+     */
+    public Map<String, Long> getTimeToFirstTick() {
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<Long, Long> entry : timeToFirstTick.entrySet()) {
+            result.put(tokenString(entry.getKey()), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * @return number of subscribed instruments that have not ticked yet
+     */
+    public int getAwaitingFirstTickCount() {
+        return awaitingFirstTick.get();
+    }
+
+    /**
+     * Request options of a touchline subscription, for {@link #record}.
+     */
+    static int touchlineOptions(String responseType, boolean ltpChangeOnly) {
+        return ("1".equals(responseType) ? RESPONSE_TYPE_1 : 0) | (ltpChangeOnly ? LTP_CHANGE_ONLY : 0);
+    }
+
+    // Called by the client after it sent a request on its own for keys[0..count); options as
+    // sent, see touchlineOptions. Only instruments new to the registry start a first-tick
+    // clock, so re-sending a known list allocates nothing here.
+    synchronized void record(Stream stream, long[] keys, int count, boolean subscribe, int options) {
+        SubscriptionTable current = active.get(stream);
+        if (subscribe) {
+            long sentNanos = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                if (current.put(keys[i], options) == SubscriptionTable.ABSENT) {
+                    startFirstTickClock(stream, keys[i], sentNanos);
+                }
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                current.remove(keys[i]);
+            }
+            stopFirstTickClock(stream, keys, count);
+        }
+    }
+
+    void recordBestFive(int mktSegId, String token, boolean subscribe) {
+        try {
+            long key = InstrumentIndex.key(mktSegId, Integer.parseInt(token.trim()));
+            record(Stream.BEST_FIVE, new long[] { key }, 1, subscribe, 0);
+        } catch (NumberFormatException e) {
+            // Not a numeric token, so it cannot be replayed
+        }
+    }
+
+    synchronized void recordPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * Sends every active subscription again with the options it was sent with, followed
+     * by a pause request if the feed was paused. Used after a reconnect; the registry
+     * itself is left unchanged.
+     */
+    synchronized List<CompletableFuture<Void>> replay() {
+        nextSendNanos = 0;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Stream stream : Stream.values()) {
+            SubscriptionTable current = active.get(stream);
+            long[] keys = new long[current.size()];
+            for (int options = 0; options <= (RESPONSE_TYPE_1 | LTP_CHANGE_ONLY); options++) {
+                int count = 0;
+                for (int i = 0; i < current.tableSize(); i++) {
+                    if (current.occupied(i) && current.optionsAt(i) == options) {
+                        keys[count++] = current.keyAt(i);
+                    }
+                }
+                futures.addAll(schedule(stream, keys, count, true, options));
+            }
+        }
+        if (paused) {
+            CompletableFuture<Void> future = newBatchFuture();
+            pacer().schedule(() -> {
+                try {
+                    RequestEncoder encoder = client.requestEncoder();
+                    synchronized (encoder) {
+                        encoder.begin(MessageTypes.PAUSE_RESUME, 84, System.currentTimeMillis()).field(230, 1);
+                        client.sendRequest(encoder);
+                    }
+                    future.complete(null);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }, nextDelayNanos(), TimeUnit.NANOSECONDS);
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    // Read thread: cheap check before looking for the instrument of a packet
+    boolean isAwaitingFirstTick() {
+        return awaitingFirstTick.get() > 0;
+    }
+
+    void onInstrumentData(long key, long nowNanos) {
+        Long sentNanos = firstTickPending.remove(key);
+        if (sentNanos != null) {
+            timeToFirstTick.put(key, nowNanos - sentNanos);
+            awaitingFirstTick.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops the pacer. Batches that have not been sent yet are dropped and their
+     * futures completed with a {@link CancellationException}.
+     */
+    synchronized void shutdown() {
+        if (pacer != null) {
+            pacer.shutdownNow();
+            pacer = null;
+        }
+        for (CompletableFuture<Void> future : pending) {
+            future.completeExceptionally(new CancellationException("Subscription manager was shut down"));
+        }
+    }
+
+    // Splits keys[0..count) into batches and queues them behind the ones already scheduled
+    private List<CompletableFuture<Void>> schedule(Stream stream, long[] keys, int count, boolean subscribe,
+            int options) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        int size = stream == Stream.BEST_FIVE ? 1 : batchSize;
+        for (int from = 0; from < count; from += size) {
+            long[] batch = Arrays.copyOfRange(keys, from, Math.min(count, from + size));
+            CompletableFuture<Void> future = newBatchFuture();
+            pacer().schedule(() -> send(stream, batch, subscribe, options, future),
+                    nextDelayNanos(), TimeUnit.NANOSECONDS);
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    private CompletableFuture<Void> newBatchFuture() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        pending.add(future);
+        future.whenComplete((ignored, error) -> pending.remove(future));
+        return future;
+    }
+
+    private long nextDelayNanos() {
+        long now = System.nanoTime();
+        long delay = Math.max(0, nextSendNanos - now);
+        nextSendNanos = now + delay + batchIntervalNanos;
+        return delay;
+    }
+
+    private void send(Stream stream, long[] batch, boolean subscribe, int options,
+            CompletableFuture<Void> future) {
+        try {
+            RequestEncoder encoder = client.requestEncoder();
+            synchronized (encoder) {
+                encodeRequest(encoder, stream, batch, subscribe, options);
+                client.sendRequest(encoder);
+            }
+            if (subscribe) {
+                startFirstTickClock(stream, batch, batch.length, System.nanoTime());
+            } else {
+                stopFirstTickClock(stream, batch, batch.length);
+            }
+            future.complete(null);
+        } catch (Exception e) {
+            // The registry already counted these; undo so a retry sends them again.
+            // With auto reconnect the registry is kept, since it is replayed on reconnect.
+            if (!client.isAutoReconnectEnabled()) {
+                synchronized (this) {
+                    SubscriptionTable current = active.get(stream);
+                    for (long key : batch) {
+                        if (subscribe) {
+                            current.remove(key);
+                        } else {
+                            current.put(key, options);
+                        }
+                    }
+                }
+            }
+            client.reportError((subscribe ? "Subscription" : "Unsubscription") + " batch of " + batch.length
+                    + " tokens failed: " + e.getMessage());
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void encodeRequest(RequestEncoder encoder, Stream stream, long[] batch, boolean subscribe,
+            int options) {
+        encoder.begin(stream.messageType, 84, System.currentTimeMillis());
+        if (stream == Stream.BEST_FIVE) {
+            long key = batch[0];
+            encoder.instrumentFields(InstrumentIndex.mktSegId(key), InstrumentIndex.token(key));
+        } else {
+            if (stream == Stream.TOUCHLINE && subscribe) {
+                if ((options & RESPONSE_TYPE_1) != 0) {
+                    encoder.field(49, 1);
+                }
+                encoder.field(200, (options & LTP_CHANGE_ONLY) != 0 ? 1 : 0);
+            }
+            encoder.instruments(batch, batch.length);
+        }
+        encoder.field(230, subscribe ? 1 : 2);
+    }
+
+    // Depth packets do not count as ticks, so best-five instruments are not timed
+    private void startFirstTickClock(Stream stream, long[] keys, int count, long sentNanos) {
+        for (int i = 0; i < count; i++) {
+            startFirstTickClock(stream, keys[i], sentNanos);
+        }
+    }
+
+    private void startFirstTickClock(Stream stream, long key, long sentNanos) {
+        if (stream == Stream.BEST_FIVE) {
+            return;
+        }
+        timeToFirstTick.remove(key);
+        if (firstTickPending.put(key, sentNanos) == null) {
+            awaitingFirstTick.incrementAndGet();
+        }
+    }
+
+    private void stopFirstTickClock(Stream stream, long[] keys, int count) {
+        if (stream == Stream.BEST_FIVE) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (firstTickPending.remove(keys[i]) != null) {
+                awaitingFirstTick.decrementAndGet();
+            }
+        }
+    }
+
+    // Duplicates are kept; callers skip them through the registry
+    private long[] parseTokens(Collection<String> tokenList) {
+        if (tokenList == null) {
+            throw new IllegalArgumentException("Token list cannot be null.");
+        }
+        long[] keys = new long[tokenList.size()];
+        int count = 0;
+        for (String item : tokenList) {
+            if (item == null || item.trim().isEmpty()) {
+                continue;
+            }
+            String[] parts = item.split("_");
+            try {
+                if (parts.length != 2) {
+                    throw new NumberFormatException();
+                }
+                keys[count++] = InstrumentIndex.key(Integer.parseInt(parts[0].trim()),
+                        Integer.parseInt(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                client.reportError(String.format(
+                        "Invalid token format: '%s'. Expected format: 'MarketSegmentID_Token'.", item));
+            }
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    private static String tokenString(long key) {
+        return InstrumentIndex.mktSegId(key) + "_" + InstrumentIndex.token(key);
+    }
+
+    private int optionsFor(Stream stream) {
+        return stream == Stream.TOUCHLINE ? touchlineOptions : 0;
+    }
+
+    private ScheduledExecutorService pacer() {
+        if (pacer == null) {
+            pacer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "odin-subscription-pacer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pacer;
+    }
+}
@@ -0,0 +1,137 @@
+package com.trading;
+
+import java.util.Arrays;
+
+// Open-addressing map from a packed (mktSegId, token) key to the request options it was
+// subscribed with, so recording a subscription does not box. Grows as needed; callers
+// synchronize.
+//
+// Options are never negative, so an option of -1 marks an empty bucket and every long is
+// a valid key. Removal shifts the following entries back instead of leaving tombstones.
+final class SubscriptionTable {
+    static final int ABSENT = -1;
+
+    private static final int INITIAL_SIZE = 16;
+
+    private long[] keys;
+    private int[] options;
+    private int mask;
+    private int size;
+
+    SubscriptionTable() {
+        allocate(INITIAL_SIZE);
+    }
+
+    /**
+     * Adds {@code key} or replaces its options.
+     *
+     * @return the previous options, or {@link #ABSENT}
+     */
+    int put(long key, int value) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            rehash(keys.length * 2);
+        }
+        int position = InstrumentIndex.hash(key) & mask;
+        while (options[position] != ABSENT) {
+            if (keys[position] == key) {
+                int previous = options[position];
+                options[position] = value;
+                return previous;
+            }
+            position = (position + 1) & mask;
+        }
+        keys[position] = key;
+        options[position] = value;
+        size++;
+        return ABSENT;
+    }
+
+    /**
+     * @return the options of {@code key}, or {@link #ABSENT}
+     */
+    int get(long key) {
+        int position = find(key);
+        return position < 0 ? ABSENT : options[position];
+    }
+
+    boolean contains(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return the options {@code key} had, or {@link #ABSENT} if it was not present
+     */
+    int remove(long key) {
+        int position = find(key);
+        if (position < 0) {
+            return ABSENT;
+        }
+        int removed = options[position];
+        int hole = position;
+        int next = (hole + 1) & mask;
+        while (options[next] != ABSENT) {
+            // An entry may fill the hole if the hole lies between its home bucket and it
+            int home = InstrumentIndex.hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                options[hole] = options[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        options[hole] = ABSENT;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Iteration: positions 0..tableSize()-1 that are occupied
+    int tableSize() {
+        return keys.length;
+    }
+
+    boolean occupied(int position) {
+        return options[position] != ABSENT;
+    }
+
+    long keyAt(int position) {
+        return keys[position];
+    }
+
+    int optionsAt(int position) {
+        return options[position];
+    }
+
+    private int find(long key) {
+        int position = InstrumentIndex.hash(key) & mask;
+        while (options[position] != ABSENT) {
+            if (keys[position] == key) {
+                return position;
+            }
+            position = (position + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int tableSize) {
+        long[] oldKeys = keys;
+        int[] oldOptions = options;
+        allocate(tableSize);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldOptions[i] != ABSENT) {
+                put(oldKeys[i], oldOptions[i]);
+            }
+        }
+    }
+
+    private void allocate(int tableSize) {
+        keys = new long[tableSize];
+        options = new int[tableSize];
+        Arrays.fill(options, ABSENT);
+        mask = tableSize - 1;
+    }
+}
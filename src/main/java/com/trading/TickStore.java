@@ -0,0 +1,419 @@
+package com.trading;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Appends decoded touchline ticks to per-day columnar files. Enable with
+ * {@link ODINMarketFeedClient#enableTickStore}; read with {@link TickStoreReader}.
+ *
+ * Each trading day, taken from the tick's LUT, gets a directory {@code yyyyMMdd} under
+ * the root with one file per {@link Column}. Every column is a fixed-width array of
+ * little-endian ints, one per tick, so row {@code r} of every file is the same tick.
+ * A hidden {@code next} column links each tick to the same instrument's following
+ * tick, and {@code index.idx} holds the first and last row and tick count of each
+ * instrument, so one token's history is read without touching other rows.
+ *
+ * Files are memory-mapped and grow in chunks of {@value #CHUNK_ROWS} rows; the chunk
+ * being written and the one after it are faulted in on the "odin-tick-store" thread,
+ * so the feed thread does not stall on page faults. A tick is
+ * written column by column and becomes visible when the row count in the index header
+ * is advanced with a release store; a crash loses at most the tick being written.
+ * Reopening a day that was not closed cleanly rebuilds the instrument links from the
+ * committed rows.
+ *
+ * Only the feed thread may append. {@link #close()} may be called from any thread; it
+ * waits for a tick being written to finish, and later appends are ignored.
+ */
+public final class TickStore implements AutoCloseable {
+    /**
+     * The stored touchline fields. Prices are in paise, as sent; divide by the
+     * decimal locator to display them.
+     */
+    public enum Column {
+        MKT_SEG_ID,
+        TOKEN,
+        LUT,
+        LTT,
+        LTP,
+        BUY_QTY,
+        BUY_PRICE,
+        SELL_QTY,
+        SELL_PRICE,
+        OPEN_PRICE,
+        HIGH_PRICE,
+        LOW_PRICE,
+        CLOSE_PRICE,
+        DECIMAL_LOCATOR;
+
+        String fileName() {
+            return name().toLowerCase(Locale.ROOT) + ".col";
+        }
+    }
+
+    static final int CHUNK_SHIFT = 20;
+    static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    static final long CHUNK_BYTES = (long) CHUNK_ROWS * Integer.BYTES;
+    static final String NEXT_FILE = "next.col";
+    static final String INDEX_FILE = "index.idx";
+    static final int INDEX_MAGIC = 0x4F545331; // "OTS1"
+    static final int INDEX_VERSION = 1;
+    // Header: magic, version, row count, instrument count, instrument capacity
+    static final int INDEX_HEADER_LENGTH = 32;
+    static final int ROW_COUNT_OFFSET = 8;
+    static final int INSTRUMENT_COUNT_OFFSET = 12;
+    static final int CAPACITY_OFFSET = 16;
+    // Entry: mktSegId, token, first row, last row, tick count
+    static final int ENTRY_LENGTH = 20;
+    static final int NO_ROW = -1;
+    private static final int PAGE_SIZE = 4096;
+    private static final int IDLE = 0;
+    private static final int APPENDING = 1;
+    private static final int CLOSED = 2;
+
+    static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final LocalDate NSE_EPOCH = LocalDate.of(1980, 1, 1);
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final Column[] COLUMNS = Column.values();
+    private static final VarHandle INT_LE =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path root;
+    private final int instrumentCapacity;
+    private final NseTimestampCodec codec = new NseTimestampCodec();
+    private final ExecutorService prefaulter;
+
+    // Written by the feed thread only
+    private volatile Day day;
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder ticksDropped = new LongAdder();
+    // IDLE -> APPENDING -> IDLE around each append; close() moves IDLE -> CLOSED, so the
+    // files are never forced or released while a tick is being written
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    /**
+     * @param instrumentCapacity most instruments per day; ticks for further instruments
+     *                           are dropped
+     */
+    TickStore(Path root, int instrumentCapacity) throws IOException {
+        if (instrumentCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + instrumentCapacity);
+        }
+        this.root = root;
+        this.instrumentCapacity = instrumentCapacity;
+        Files.createDirectories(root);
+        this.prefaulter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "odin-tick-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Appends the tick to its day's columns.
+     *
+     * @return the tick's row in that day, or -1 if it was dropped or the store is closed
+     */
+    public int append(MarketData tick) throws IOException {
+        if (!state.compareAndSet(IDLE, APPENDING)) {
+            return -1;
+        }
+        try {
+            return write(tick);
+        } finally {
+            state.setRelease(IDLE);
+        }
+    }
+
+    private int write(MarketData tick) throws IOException {
+        int lut = (int) tick.getLut();
+        // Ticks without an update time are filed under today
+        long seconds = lut > 0 ? lut : codec.toNseSeconds(System.currentTimeMillis());
+        long dayIndex = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        // Only move forward, so a late tick from the previous day lands in the current one
+        Day current = day;
+        if (current == null || dayIndex > current.dayIndex) {
+            current = openDay(dayIndex);
+        }
+        int row = current.append(tick, lut);
+        if (row < 0) {
+            ticksDropped.increment();
+        } else {
+            rowsWritten.increment();
+        }
+        return row;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the directory of the day being written, or null before the first tick
+     */
+    public Path getCurrentDay() {
+        Day current = day;
+        return current != null ? current.directory : null;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    /**
+     * @return ticks not stored because the day's instrument capacity was reached
+     */
+    public long getTicksDropped() {
+        return ticksDropped.sum();
+    }
+
+    boolean isClosed() {
+        return state.get() == CLOSED;
+    }
+
+    /**
+     * Forces the current day's files to disk. Call it from the feed thread; {@link #close()}
+     * flushes too.
+     */
+    public void flush() {
+        Day current = day;
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        while (!state.compareAndSet(IDLE, CLOSED)) {
+            if (state.get() == CLOSED) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        prefaulter.shutdownNow();
+        flush();
+        day = null;
+    }
+
+    static String dayName(long dayIndex) {
+        return NSE_EPOCH.plusDays(dayIndex).format(DAY_FORMAT);
+    }
+
+    private Day openDay(long dayIndex) throws IOException {
+        Day previous = day;
+        if (previous != null) {
+            previous.force();
+        }
+        day = new Day(root.resolve(dayName(dayIndex)), dayIndex, instrumentCapacity, prefaulter);
+        return day;
+    }
+
+    static MappedByteBuffer map(Path file, long position, long size, boolean write) throws IOException {
+        StandardOpenOption[] options = write
+                ? new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[] {StandardOpenOption.READ};
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            buffer = channel.map(write ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                    position, size);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    // One day's files. Column chunks are mapped on first use.
+    private static final class Day {
+        final Path directory;
+        final long dayIndex;
+        final int capacity;
+        final InstrumentIndex instruments;
+        final ExecutorService prefaulter;
+        final MappedByteBuffer index;
+        // [column][chunk]; the last entry is the next-row column
+        final List<List<MappedByteBuffer>> chunks = new ArrayList<>();
+        final Path[] files;
+        // Chunks holding rowCount, one per column, so appends skip the list lookups
+        final MappedByteBuffer[] tail;
+        int tailChunk = -1;
+        int rowCount;
+
+        Day(Path directory, long dayIndex, int requestedCapacity, ExecutorService prefaulter) throws IOException {
+            this.directory = directory;
+            this.dayIndex = dayIndex;
+            this.prefaulter = prefaulter;
+            Files.createDirectories(directory);
+
+            Path indexFile = directory.resolve(INDEX_FILE);
+            boolean existing = Files.exists(indexFile) && Files.size(indexFile) >= INDEX_HEADER_LENGTH;
+            int storedCapacity = requestedCapacity;
+            if (existing) {
+                MappedByteBuffer header = map(indexFile, 0, INDEX_HEADER_LENGTH, false);
+                if (header.getInt(0) != INDEX_MAGIC || header.getInt(4) != INDEX_VERSION) {
+                    throw new IOException("Not a tick store index: " + indexFile);
+                }
+                storedCapacity = header.getInt(CAPACITY_OFFSET);
+            }
+            this.capacity = storedCapacity;
+            this.index = map(indexFile, 0, INDEX_HEADER_LENGTH + (long) capacity * ENTRY_LENGTH, true);
+            this.instruments = new InstrumentIndex(capacity);
+
+            files = new Path[COLUMNS.length + 1];
+            for (Column column : COLUMNS) {
+                files[column.ordinal()] = directory.resolve(column.fileName());
+                chunks.add(new ArrayList<>());
+            }
+            files[COLUMNS.length] = directory.resolve(NEXT_FILE);
+            chunks.add(new ArrayList<>());
+            tail = new MappedByteBuffer[files.length];
+
+            if (existing) {
+                recover();
+            } else {
+                index.putInt(0, INDEX_MAGIC);
+                index.putInt(4, INDEX_VERSION);
+                index.putInt(CAPACITY_OFFSET, capacity);
+            }
+        }
+
+        int append(MarketData tick, int lut) throws IOException {
+            int slot = instruments.getOrInsert(InstrumentIndex.key(tick.getMktSegId(), tick.getToken()));
+            if (slot < 0) {
+                return -1;
+            }
+            int row = rowCount;
+            if (row == Integer.MAX_VALUE) {
+                return -1;
+            }
+            if (row >>> CHUNK_SHIFT != tailChunk) {
+                moveTail(row);
+            }
+            int at = (row & (CHUNK_ROWS - 1)) << 2;
+            MappedByteBuffer[] columns = tail;
+            columns[Column.MKT_SEG_ID.ordinal()].putInt(at, tick.getMktSegId());
+            columns[Column.TOKEN.ordinal()].putInt(at, tick.getToken());
+            columns[Column.LUT.ordinal()].putInt(at, lut);
+            columns[Column.LTT.ordinal()].putInt(at, (int) tick.getLtt());
+            columns[Column.LTP.ordinal()].putInt(at, tick.getLtp());
+            columns[Column.BUY_QTY.ordinal()].putInt(at, tick.getBuyQty());
+            columns[Column.BUY_PRICE.ordinal()].putInt(at, tick.getBuyPrice());
+            columns[Column.SELL_QTY.ordinal()].putInt(at, tick.getSellQty());
+            columns[Column.SELL_PRICE.ordinal()].putInt(at, tick.getSellPrice());
+            columns[Column.OPEN_PRICE.ordinal()].putInt(at, tick.getOpenPrice());
+            columns[Column.HIGH_PRICE.ordinal()].putInt(at, tick.getHighPrice());
+            columns[Column.LOW_PRICE.ordinal()].putInt(at, tick.getLowPrice());
+            columns[Column.CLOSE_PRICE.ordinal()].putInt(at, tick.getClosePrice());
+            columns[Column.DECIMAL_LOCATOR.ordinal()].putInt(at, tick.getDecimalLocator());
+            link(slot, row, tick.getMktSegId(), tick.getToken());
+
+            rowCount = row + 1;
+            INT_LE.setRelease(index, ROW_COUNT_OFFSET, rowCount);
+            return row;
+        }
+
+        private void link(int slot, int row, int mktSegId, int token) throws IOException {
+            int entry = INDEX_HEADER_LENGTH + slot * ENTRY_LENGTH;
+            put(COLUMNS.length, row, NO_ROW);
+            if (slot == index.getInt(INSTRUMENT_COUNT_OFFSET)) {
+                index.putInt(entry, mktSegId);
+                index.putInt(entry + 4, token);
+                index.putInt(entry + 8, row);
+                index.putInt(entry + 16, 0);
+                INT_LE.setRelease(index, INSTRUMENT_COUNT_OFFSET, slot + 1);
+            } else {
+                put(COLUMNS.length, index.getInt(entry + 12), row);
+            }
+            index.putInt(entry + 12, row);
+            index.putInt(entry + 16, index.getInt(entry + 16) + 1);
+        }
+
+        // Rebuilds the instrument entries and links from the committed rows, dropping
+        // anything written after the last committed row
+        private void recover() throws IOException {
+            int committed = index.getInt(ROW_COUNT_OFFSET);
+            index.putInt(INSTRUMENT_COUNT_OFFSET, 0);
+            for (int row = 0; row < committed; row++) {
+                int mktSegId = get(Column.MKT_SEG_ID.ordinal(), row);
+                int token = get(Column.TOKEN.ordinal(), row);
+                int slot = instruments.getOrInsert(InstrumentIndex.key(mktSegId, token));
+                if (slot < 0) {
+                    throw new IOException("Tick store index is full: " + directory);
+                }
+                link(slot, row, mktSegId, token);
+            }
+            rowCount = committed;
+        }
+
+        private void moveTail(int row) throws IOException {
+            for (int column = 0; column < tail.length; column++) {
+                tail[column] = chunk(column, row);
+            }
+            tailChunk = row >>> CHUNK_SHIFT;
+            prefault(tailChunk);
+            prefault(tailChunk + 1);
+        }
+
+        private void prefault(int chunk) {
+            try {
+                prefaulter.execute(() -> {
+                    try {
+                        for (Path file : files) {
+                            MappedByteBuffer pages = map(file, chunk * CHUNK_BYTES, CHUNK_BYTES, true);
+                            // Writes 0 only where the value is still 0, so a tick the feed
+                            // thread has already written is never touched
+                            for (int offset = 0; offset < CHUNK_BYTES; offset += PAGE_SIZE) {
+                                INT_LE.compareAndSet(pages, offset, 0, 0);
+                            }
+                        }
+                    } catch (IOException e) {
+                        // The feed thread maps the chunk itself and takes the faults
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Closing
+            }
+        }
+
+        private void put(int column, int row, int value) throws IOException {
+            chunk(column, row).putInt((row & (CHUNK_ROWS - 1)) << 2, value);
+        }
+
+        private int get(int column, int row) throws IOException {
+            return chunk(column, row).getInt((row & (CHUNK_ROWS - 1)) << 2);
+        }
+
+        private MappedByteBuffer chunk(int column, int row) throws IOException {
+            List<MappedByteBuffer> mapped = chunks.get(column);
+            int chunk = row >>> CHUNK_SHIFT;
+            while (mapped.size() <= chunk) {
+                mapped.add(map(files[column], mapped.size() * CHUNK_BYTES, CHUNK_BYTES, true));
+            }
+            return mapped.get(chunk);
+        }
+
+        void force() {
+            index.force();
+            for (List<MappedByteBuffer> column : chunks) {
+                for (MappedByteBuffer chunk : column) {
+                    chunk.force();
+                }
+            }
+        }
+    }
+}
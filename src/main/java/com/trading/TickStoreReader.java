@@ -0,0 +1,221 @@
+package com.trading;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Reads one day written by {@link TickStore}, column by column or one instrument at a
+ * time. Safe to use while the day is still being written: rows past
+ * {@link #getRowCount()} are ignored, and {@link #refresh()} picks up newer rows and
+ * instruments.
+ *
+ * <pre>
+ *   TickStoreReader day = new TickStoreReader(root.resolve("20240105"));
+ *   day.scan(1, 22, row -&gt; process(day.getInt(Column.LUT, row), day.getInt(Column.LTP, row)));
+ * </pre>
+ *
+ * A reader is not thread-safe; use one per thread.
+ */
+public final class TickStoreReader {
+    private static final VarHandle INT_LE =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int COLUMN_COUNT = TickStore.Column.values().length;
+
+    private final Path directory;
+    private final MappedByteBuffer index;
+    private final InstrumentIndex instruments;
+    // [column][chunk]; the last entry is the next-row column
+    private final List<List<IntBuffer>> chunks = new ArrayList<>();
+    private final Path[] files;
+    private int rowCount;
+
+    public TickStoreReader(Path dayDirectory) throws IOException {
+        this.directory = dayDirectory;
+        Path indexFile = dayDirectory.resolve(TickStore.INDEX_FILE);
+        MappedByteBuffer header = TickStore.map(indexFile, 0, TickStore.INDEX_HEADER_LENGTH, false);
+        if (header.getInt(0) != TickStore.INDEX_MAGIC || header.getInt(4) != TickStore.INDEX_VERSION) {
+            throw new IOException("Not a tick store index: " + indexFile);
+        }
+        int capacity = header.getInt(TickStore.CAPACITY_OFFSET);
+        this.index = TickStore.map(indexFile, 0,
+                TickStore.INDEX_HEADER_LENGTH + (long) capacity * TickStore.ENTRY_LENGTH, false);
+        this.instruments = new InstrumentIndex(capacity);
+
+        files = new Path[COLUMN_COUNT + 1];
+        for (TickStore.Column column : TickStore.Column.values()) {
+            files[column.ordinal()] = dayDirectory.resolve(column.fileName());
+            chunks.add(new ArrayList<>());
+        }
+        files[COLUMN_COUNT] = dayDirectory.resolve(TickStore.NEXT_FILE);
+        chunks.add(new ArrayList<>());
+        refresh();
+    }
+
+    /**
+     * @return the day directories under {@code root}, oldest first
+     */
+    public static List<Path> days(Path root) throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            for (Path day : stream) {
+                if (Files.isRegularFile(day.resolve(TickStore.INDEX_FILE))) {
+                    found.add(day);
+                }
+            }
+        }
+        // yyyyMMdd names sort in date order
+        Collections.sort(found);
+        return found;
+    }
+
+    /**
+     * Picks up rows and instruments committed since the last refresh.
+     *
+     * @return the row count
+     */
+    public int refresh() {
+        rowCount = (int) INT_LE.getAcquire(index, TickStore.ROW_COUNT_OFFSET);
+        int known = instruments.size();
+        int count = (int) INT_LE.getAcquire(index, TickStore.INSTRUMENT_COUNT_OFFSET);
+        for (int slot = known; slot < count; slot++) {
+            int entry = entry(slot);
+            instruments.getOrInsert(InstrumentIndex.key(index.getInt(entry), index.getInt(entry + 4)));
+        }
+        return rowCount;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return committed rows as of the last {@link #refresh()}
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getInstrumentCount() {
+        return instruments.size();
+    }
+
+    /**
+     * @return {@code column} of tick {@code row}
+     */
+    public int getInt(TickStore.Column column, int row) throws IOException {
+        checkRow(row);
+        return chunk(column.ordinal(), row).get(row & (TickStore.CHUNK_ROWS - 1));
+    }
+
+    /**
+     * Copies {@code length} consecutive values of {@code column}, starting at
+     * {@code fromRow}, into {@code dst}.
+     */
+    public void getInts(TickStore.Column column, int fromRow, int[] dst, int offset, int length)
+            throws IOException {
+        if (length < 0 || fromRow < 0 || fromRow > rowCount - length) {
+            throw new IndexOutOfBoundsException("Rows " + fromRow + ".." + (fromRow + length)
+                    + " outside 0.." + rowCount);
+        }
+        int row = fromRow;
+        int end = fromRow + length;
+        while (row < end) {
+            int within = row & (TickStore.CHUNK_ROWS - 1);
+            int run = Math.min(end - row, TickStore.CHUNK_ROWS - within);
+            IntBuffer values = chunk(column.ordinal(), row).duplicate();
+            values.position(within);
+            values.get(dst, offset, run);
+            offset += run;
+            row += run;
+        }
+    }
+
+    /**
+     * @return the instrument's first row, or -1 if it has no ticks
+     */
+    public int firstRow(int mktSegId, int token) {
+        int slot = instruments.get(InstrumentIndex.key(mktSegId, token));
+        if (slot < 0) {
+            return TickStore.NO_ROW;
+        }
+        int row = index.getInt(entry(slot) + 8);
+        return row < rowCount ? row : TickStore.NO_ROW;
+    }
+
+    /**
+     * @return the same instrument's row after {@code row}, or -1 if there is none yet
+     */
+    public int nextRow(int row) throws IOException {
+        checkRow(row);
+        int next = chunk(COLUMN_COUNT, row).get(row & (TickStore.CHUNK_ROWS - 1));
+        // Links to a row still being written are not followed
+        return next >= 0 && next < rowCount ? next : TickStore.NO_ROW;
+    }
+
+    /**
+     * Calls {@code rows} with each of the instrument's rows, oldest first.
+     *
+     * @return number of rows visited
+     */
+    public int scan(int mktSegId, int token, IntConsumer rows) throws IOException {
+        int visited = 0;
+        for (int row = firstRow(mktSegId, token); row != TickStore.NO_ROW; row = nextRow(row)) {
+            rows.accept(row);
+            visited++;
+        }
+        return visited;
+    }
+
+    /**
+     * @return the instrument's tick count from the index, which may include a tick
+     * being written
+     */
+    public int getTickCount(int mktSegId, int token) {
+        int slot = instruments.get(InstrumentIndex.key(mktSegId, token));
+        return slot < 0 ? 0 : index.getInt(entry(slot) + 16);
+    }
+
+    /**
+     * @return the {@code (mktSegId, token)} of every instrument in the day, packed
+     * as {@code mktSegId << 32 | token}, in order of first tick
+     */
+    public long[] instruments() {
+        long[] keys = new long[instruments.size()];
+        for (int slot = 0; slot < keys.length; slot++) {
+            keys[slot] = instruments.keyAt(slot);
+        }
+        return keys;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " outside 0.." + rowCount);
+        }
+    }
+
+    private static int entry(int slot) {
+        return TickStore.INDEX_HEADER_LENGTH + slot * TickStore.ENTRY_LENGTH;
+    }
+
+    // Only chunks holding committed rows are mapped; the writer has already sized them
+    private IntBuffer chunk(int column, int row) throws IOException {
+        List<IntBuffer> mapped = chunks.get(column);
+        int chunk = row >>> TickStore.CHUNK_SHIFT;
+        while (mapped.size() <= chunk) {
+            mapped.add(TickStore.map(files[column], mapped.size() * TickStore.CHUNK_BYTES,
+                    TickStore.CHUNK_BYTES, false).asIntBuffer());
+        }
+        return mapped.get(chunk);
+    }
+}
@@ -0,0 +1,348 @@
+package com.trading;
+
+import java.util.Arrays;
+
+/**
+ * Ranks instruments by percent change of LTP against the previous close, and by
+ * activity, per market segment, updated tick by tick.
+ *
+ * Each segment keeps three indexed binary heaps of instrument slots: gainers (largest
+ * change on top), losers (smallest change on top) and most active (most trades on
+ * top). Every slot remembers its position in each heap, so a tick moves the
+ * instrument up or down in O(log n) instead of re-sorting the universe. A top-N
+ * query walks the heap best-first from the root with a small candidate heap, in
+ * O(N log N) whatever the number of instruments; asking for
+ * {@link #ALL_SEGMENTS} merges the segments in the same walk.
+ *
+ * A trade is a touchline whose LTT or LTP differs from the instrument's previous
+ * one; the touchline carries no traded quantity. Instruments without a previous
+ * close are ranked by activity only.
+ *
+ * Updates and queries are synchronized, so the feed thread and any number of
+ * readers can share one index.
+ */
+public final class TopMoversIndex {
+    /** Segment argument selecting every segment. */
+    public static final int ALL_SEGMENTS = -1;
+
+    private static final int GAINERS = 0;
+    private static final int LOSERS = 1;
+    private static final int ACTIVE = 2;
+    private static final int RANKINGS = 3;
+    private static final int INITIAL_HEAP_SIZE = 64;
+
+    private final InstrumentIndex index;
+    // Per instrument slot
+    private final int[] segmentOf;
+    private final int[] ltp;
+    private final int[] prevClose;
+    private final int[] lastLtt;
+    private final long[] changePpm;
+    private final long[] trades;
+    // [ranking][slot]: position in the segment's heap, or -1
+    private final int[][] positions;
+
+    private int[] segmentIds = new int[4];
+    // [segment][ranking]
+    private int[][][] heaps = new int[4][][];
+    private int[][] heapSizes = new int[4][];
+    private int segmentCount;
+
+    // Best-first query scratch: (segment << 32 | heap position) candidates
+    private long[] candidates = new long[64];
+
+    public TopMoversIndex(int capacity) {
+        this.index = new InstrumentIndex(capacity);
+        this.segmentOf = new int[capacity];
+        this.ltp = new int[capacity];
+        this.prevClose = new int[capacity];
+        this.lastLtt = new int[capacity];
+        this.changePpm = new long[capacity];
+        this.trades = new long[capacity];
+        this.positions = new int[RANKINGS][capacity];
+        for (int[] position : positions) {
+            Arrays.fill(position, -1);
+        }
+    }
+
+    /**
+     * Applies a touchline.
+     *
+     * @return false if the instrument did not fit
+     */
+    public synchronized boolean update(MarketData tick) {
+        int price = tick.getLtp();
+        if (price <= 0) {
+            return true;
+        }
+        int mktSegId = tick.getMktSegId();
+        int size = index.size();
+        int slot = index.getOrInsert(InstrumentIndex.key(mktSegId, tick.getToken()));
+        if (slot < 0) {
+            return false;
+        }
+        if (slot == size) {
+            segmentOf[slot] = segment(mktSegId);
+        }
+        int segment = segmentOf[slot];
+
+        int ltt = (int) tick.getLtt();
+        if (ltt != lastLtt[slot] || price != ltp[slot]) {
+            lastLtt[slot] = ltt;
+            trades[slot]++;
+            upsert(segment, ACTIVE, slot);
+        }
+        ltp[slot] = price;
+
+        int close = tick.getPrevClosePrice();
+        prevClose[slot] = close;
+        if (close > 0) {
+            long change = (price - (long) close) * 1_000_000L / close;
+            if (change != changePpm[slot] || positions[GAINERS][slot] < 0) {
+                changePpm[slot] = change;
+                upsert(segment, GAINERS, slot);
+                upsert(segment, LOSERS, slot);
+            }
+        } else if (positions[GAINERS][slot] >= 0) {
+            remove(segment, GAINERS, slot);
+            remove(segment, LOSERS, slot);
+        }
+        return true;
+    }
+
+    /**
+     * Fills {@code out} with up to {@code n} instruments of {@code mktSegId} (or
+     * {@link #ALL_SEGMENTS}) with the largest percent change.
+     *
+     * @return number of entries filled
+     */
+    public synchronized int topGainers(int mktSegId, int n, MoverList out) {
+        return top(GAINERS, mktSegId, n, out);
+    }
+
+    /**
+     * Like {@link #topGainers} for the smallest (most negative) percent change.
+     */
+    public synchronized int topLosers(int mktSegId, int n, MoverList out) {
+        return top(LOSERS, mktSegId, n, out);
+    }
+
+    /**
+     * Like {@link #topGainers} for the most trades.
+     */
+    public synchronized int mostActive(int mktSegId, int n, MoverList out) {
+        return top(ACTIVE, mktSegId, n, out);
+    }
+
+    /**
+     * Number of instruments seen so far.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public int capacity() {
+        return index.capacity();
+    }
+
+    private int top(int ranking, int mktSegId, int n, MoverList out) {
+        int limit = Math.min(n, out.capacity());
+        out.size = 0;
+        if (limit <= 0) {
+            return 0;
+        }
+        // Children pushed per pop are at most two, so the candidates never outgrow this
+        int needed = segmentCount + 2 * limit;
+        if (candidates.length < needed) {
+            candidates = new long[Integer.highestOneBit(needed - 1) << 1];
+        }
+        int count = 0;
+        for (int segment = 0; segment < segmentCount; segment++) {
+            if ((mktSegId == ALL_SEGMENTS || segmentIds[segment] == mktSegId) && heapSizes[segment][ranking] > 0) {
+                count = pushCandidate(ranking, candidate(segment, 0), count);
+            }
+        }
+        int filled = 0;
+        while (filled < limit && count > 0) {
+            long best = candidates[0];
+            count = popCandidate(ranking, count);
+            int segment = (int) (best >>> 32);
+            int position = (int) best;
+            int slot = heaps[segment][ranking][position];
+            long key = index.keyAt(slot);
+            out.mktSegIds[filled] = InstrumentIndex.mktSegId(key);
+            out.tokens[filled] = InstrumentIndex.token(key);
+            out.ltps[filled] = ltp[slot];
+            out.prevClosePrices[filled] = prevClose[slot];
+            out.changePpm[filled] = changePpm[slot];
+            out.trades[filled] = trades[slot];
+            filled++;
+            int size = heapSizes[segment][ranking];
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                count = pushCandidate(ranking, candidate(segment, child), count);
+            }
+        }
+        out.size = filled;
+        return filled;
+    }
+
+    private static long candidate(int segment, int position) {
+        return ((long) segment << 32) | position;
+    }
+
+    private int candidateSlot(int ranking, long candidate) {
+        return heaps[(int) (candidate >>> 32)][ranking][(int) candidate];
+    }
+
+    private int pushCandidate(int ranking, long candidate, int count) {
+        long[] heap = candidates;
+        int i = count;
+        int slot = candidateSlot(ranking, candidate);
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(ranking, slot, candidateSlot(ranking, heap[parent]))) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = candidate;
+        return count + 1;
+    }
+
+    private int popCandidate(int ranking, int count) {
+        long[] heap = candidates;
+        long last = heap[--count];
+        int slot = candidateSlot(ranking, last);
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count
+                    && before(ranking, candidateSlot(ranking, heap[child + 1]), candidateSlot(ranking, heap[child]))) {
+                child++;
+            }
+            if (!before(ranking, candidateSlot(ranking, heap[child]), slot)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return count;
+    }
+
+    // True if slot a ranks ahead of slot b; ties go to the instrument seen first
+    private boolean before(int ranking, int a, int b) {
+        long scoreA;
+        long scoreB;
+        if (ranking == GAINERS) {
+            scoreA = changePpm[a];
+            scoreB = changePpm[b];
+        } else if (ranking == LOSERS) {
+            scoreA = -changePpm[a];
+            scoreB = -changePpm[b];
+        } else {
+            scoreA = trades[a];
+            scoreB = trades[b];
+        }
+        return scoreA != scoreB ? scoreA > scoreB : a < b;
+    }
+
+    private void upsert(int segment, int ranking, int slot) {
+        int position = positions[ranking][slot];
+        if (position < 0) {
+            int size = heapSizes[segment][ranking];
+            int[] heap = heaps[segment][ranking];
+            if (size == heap.length) {
+                heap = heaps[segment][ranking] = Arrays.copyOf(heap, size * 2);
+            }
+            heapSizes[segment][ranking] = size + 1;
+            siftUp(segment, ranking, size, slot);
+        } else if (!siftUp(segment, ranking, position, slot)) {
+            siftDown(segment, ranking, position, slot);
+        }
+    }
+
+    private void remove(int segment, int ranking, int slot) {
+        int position = positions[ranking][slot];
+        positions[ranking][slot] = -1;
+        int size = --heapSizes[segment][ranking];
+        if (position == size) {
+            return;
+        }
+        int moved = heaps[segment][ranking][size];
+        if (!siftUp(segment, ranking, position, moved)) {
+            siftDown(segment, ranking, position, moved);
+        }
+    }
+
+    // Places slot at or above position; returns true if it moved up
+    private boolean siftUp(int segment, int ranking, int position, int slot) {
+        int[] heap = heaps[segment][ranking];
+        int[] where = positions[ranking];
+        int i = position;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int above = heap[parent];
+            if (!before(ranking, slot, above)) {
+                break;
+            }
+            heap[i] = above;
+            where[above] = i;
+            i = parent;
+        }
+        heap[i] = slot;
+        where[slot] = i;
+        return i != position;
+    }
+
+    private void siftDown(int segment, int ranking, int position, int slot) {
+        int[] heap = heaps[segment][ranking];
+        int[] where = positions[ranking];
+        int size = heapSizes[segment][ranking];
+        int i = position;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(ranking, heap[child + 1], heap[child])) {
+                child++;
+            }
+            int below = heap[child];
+            if (!before(ranking, below, slot)) {
+                break;
+            }
+            heap[i] = below;
+            where[below] = i;
+            i = child;
+        }
+        heap[i] = slot;
+        where[slot] = i;
+    }
+
+    // Segments are few, so a linear scan beats hashing
+    private int segment(int mktSegId) {
+        for (int i = 0; i < segmentCount; i++) {
+            if (segmentIds[i] == mktSegId) {
+                return i;
+            }
+        }
+        if (segmentCount == segmentIds.length) {
+            segmentIds = Arrays.copyOf(segmentIds, segmentCount * 2);
+            heaps = Arrays.copyOf(heaps, segmentCount * 2);
+            heapSizes = Arrays.copyOf(heapSizes, segmentCount * 2);
+        }
+        int[][] rankings = new int[RANKINGS][];
+        for (int ranking = 0; ranking < RANKINGS; ranking++) {
+            rankings[ranking] = new int[INITIAL_HEAP_SIZE];
+        }
+        segmentIds[segmentCount] = mktSegId;
+        heaps[segmentCount] = rankings;
+        heapSizes[segmentCount] = new int[RANKINGS];
+        return segmentCount++;
+    }
+}
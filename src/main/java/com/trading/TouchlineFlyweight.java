@@ -0,0 +1,177 @@
+package com.trading;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+// MarketData view over the little-endian block that follows "|50=" in a touchline packet.
+// wrap() only records where the block starts; getters read the packet bytes directly.
+final class TouchlineFlyweight implements MarketData {
+    static final int MKT_SEG_ID_OFFSET = 0;
+    static final int TOKEN_OFFSET = 4;
+    static final int LUT_OFFSET = 8;
+    static final int LTT_OFFSET = 12;
+    static final int LTP_OFFSET = 16;
+    static final int BUY_QTY_OFFSET = 20;
+    static final int BUY_PRICE_OFFSET = 24;
+    static final int SELL_QTY_OFFSET = 28;
+    static final int SELL_PRICE_OFFSET = 32;
+    static final int OPEN_PRICE_OFFSET = 36;
+    static final int HIGH_PRICE_OFFSET = 40;
+    static final int LOW_PRICE_OFFSET = 44;
+    static final int CLOSE_PRICE_OFFSET = 48;
+    static final int DECIMAL_LOCATOR_OFFSET = 52;
+    static final int PREV_CLOSE_PRICE_OFFSET = 56;
+    static final int INDICATIVE_CLOSE_PRICE_OFFSET = 60;
+    static final int BLOCK_LENGTH = 64;
+
+    private static final VarHandle INT_LE =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final NseTimestampCodec timestampCodec;
+    private byte[] buffer;
+    private int offset;
+    private int messageType;
+
+    TouchlineFlyweight(NseTimestampCodec timestampCodec) {
+        this.timestampCodec = timestampCodec;
+    }
+
+    /**
+     * Points the flyweight at a touchline packet.
+     *
+     * @return false if the packet has no complete {@code |50=} block
+     */
+    boolean wrap(byte[] packet, int packetOffset, int packetLength) {
+        return wrap(packet, packetOffset, packetLength, FeedProtocol.messageType(packet, packetOffset, packetLength));
+    }
+
+    /**
+     * Same as {@link #wrap(byte[], int, int)} for callers that already peeked the
+     * {@code 64=} message type.
+     */
+    boolean wrap(byte[] packet, int packetOffset, int packetLength, int messageType) {
+        int tag = FeedProtocol.indexOf(packet, packetOffset, packetLength, FeedProtocol.BINARY_TOUCHLINE_TAG);
+        if (tag < 0) {
+            return false;
+        }
+        int blockStart = tag + FeedProtocol.BINARY_TOUCHLINE_TAG.length;
+        if (packetOffset + packetLength - blockStart < BLOCK_LENGTH) {
+            return false;
+        }
+        this.buffer = packet;
+        this.offset = blockStart;
+        this.messageType = messageType;
+        return true;
+    }
+
+    NseTimestampCodec timestampCodec() {
+        return timestampCodec;
+    }
+
+    /**
+     * Offset of the first byte of the {@code |50=} tag, i.e. where the text header ends.
+     */
+    int headerEnd() {
+        return offset - FeedProtocol.BINARY_TOUCHLINE_TAG.length;
+    }
+
+    private int readInt(int fieldOffset) {
+        return (int) INT_LE.get(buffer, offset + fieldOffset);
+    }
+
+    @Override
+    public int getMessageType() {
+        return messageType;
+    }
+
+    @Override
+    public int getMktSegId() {
+        return readInt(MKT_SEG_ID_OFFSET);
+    }
+
+    @Override
+    public int getToken() {
+        return readInt(TOKEN_OFFSET);
+    }
+
+    @Override
+    public long getLut() {
+        return readInt(LUT_OFFSET);
+    }
+
+    @Override
+    public long getLtt() {
+        return readInt(LTT_OFFSET);
+    }
+
+    @Override
+    public long getLutEpochMillis() {
+        return timestampCodec.toEpochMillis(getLut());
+    }
+
+    @Override
+    public long getLttEpochMillis() {
+        return timestampCodec.toEpochMillis(getLtt());
+    }
+
+    @Override
+    public int getLtp() {
+        return readInt(LTP_OFFSET);
+    }
+
+    @Override
+    public int getBuyQty() {
+        return readInt(BUY_QTY_OFFSET);
+    }
+
+    @Override
+    public int getBuyPrice() {
+        return readInt(BUY_PRICE_OFFSET);
+    }
+
+    @Override
+    public int getSellQty() {
+        return readInt(SELL_QTY_OFFSET);
+    }
+
+    @Override
+    public int getSellPrice() {
+        return readInt(SELL_PRICE_OFFSET);
+    }
+
+    @Override
+    public int getOpenPrice() {
+        return readInt(OPEN_PRICE_OFFSET);
+    }
+
+    @Override
+    public int getHighPrice() {
+        return readInt(HIGH_PRICE_OFFSET);
+    }
+
+    @Override
+    public int getLowPrice() {
+        return readInt(LOW_PRICE_OFFSET);
+    }
+
+    @Override
+    public int getClosePrice() {
+        return readInt(CLOSE_PRICE_OFFSET);
+    }
+
+    @Override
+    public int getDecimalLocator() {
+        return readInt(DECIMAL_LOCATOR_OFFSET);
+    }
+
+    @Override
+    public int getPrevClosePrice() {
+        return readInt(PREV_CLOSE_PRICE_OFFSET);
+    }
+
+    @Override
+    public int getIndicativeClosePrice() {
+        return readInt(INDICATIVE_CLOSE_PRICE_OFFSET);
+    }
+}
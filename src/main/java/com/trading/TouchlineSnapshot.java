@@ -0,0 +1,117 @@
+package com.trading;
+
+/**
+ * Owned copy of a touchline, filled by {@link LastValueCache#read}. Reuse one
+ * instance per reader thread to keep reads allocation-free.
+ */
+public final class TouchlineSnapshot implements MarketData {
+    final int[] fields = new int[LastValueCache.FIELD_COUNT];
+    long version;
+    private NseTimestampCodec timestampCodec;
+
+    void setTimestampCodec(NseTimestampCodec timestampCodec) {
+        this.timestampCodec = timestampCodec;
+    }
+
+    /**
+     * Number of updates applied to this instrument when the snapshot was taken.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int getMessageType() {
+        return fields[LastValueCache.MESSAGE_TYPE];
+    }
+
+    @Override
+    public int getMktSegId() {
+        return fields[LastValueCache.MKT_SEG_ID];
+    }
+
+    @Override
+    public int getToken() {
+        return fields[LastValueCache.TOKEN];
+    }
+
+    @Override
+    public long getLut() {
+        return fields[LastValueCache.LUT];
+    }
+
+    @Override
+    public long getLtt() {
+        return fields[LastValueCache.LTT];
+    }
+
+    @Override
+    public long getLutEpochMillis() {
+        return timestampCodec.toEpochMillis(getLut());
+    }
+
+    @Override
+    public long getLttEpochMillis() {
+        return timestampCodec.toEpochMillis(getLtt());
+    }
+
+    @Override
+    public int getLtp() {
+        return fields[LastValueCache.LTP];
+    }
+
+    @Override
+    public int getBuyQty() {
+        return fields[LastValueCache.BUY_QTY];
+    }
+
+    @Override
+    public int getBuyPrice() {
+        return fields[LastValueCache.BUY_PRICE];
+    }
+
+    @Override
+    public int getSellQty() {
+        return fields[LastValueCache.SELL_QTY];
+    }
+
+    @Override
+    public int getSellPrice() {
+        return fields[LastValueCache.SELL_PRICE];
+    }
+
+    @Override
+    public int getOpenPrice() {
+        return fields[LastValueCache.OPEN_PRICE];
+    }
+
+    @Override
+    public int getHighPrice() {
+        return fields[LastValueCache.HIGH_PRICE];
+    }
+
+    @Override
+    public int getLowPrice() {
+        return fields[LastValueCache.LOW_PRICE];
+    }
+
+    @Override
+    public int getClosePrice() {
+        return fields[LastValueCache.CLOSE_PRICE];
+    }
+
+    @Override
+    public int getDecimalLocator() {
+        return fields[LastValueCache.DECIMAL_LOCATOR];
+    }
+
+    @Override
+    public int getPrevClosePrice() {
+        return fields[LastValueCache.PREV_CLOSE_PRICE];
+    }
+
+    @Override
+    public int getIndicativeClosePrice() {
+        return fields[LastValueCache.INDICATIVE_CLOSE_PRICE];
+    }
+}
@@ -0,0 +1,13 @@
+package com.trading.callback;
+
+import com.trading.Bar;
+
+@FunctionalInterface
+public interface OnBarCallback {
+    /**
+     * Called on the thread feeding the {@link com.trading.BarBuilder} when a bar closes.
+     *
+     * @param bar reused flyweight; copy any field you need after returning
+     */
+    void onBar(Bar bar);
+}
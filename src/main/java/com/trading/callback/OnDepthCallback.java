@@ -0,0 +1,17 @@
+package com.trading.callback;
+
+import com.trading.DepthSnapshot;
+
+@FunctionalInterface
+public interface OnDepthCallback {
+    /**
+     * Called after a best-five update has been applied to the book.
+     *
+     * @param changedBidLevels bit {@code i} is set if bid level {@code i} changed
+     * @param changedAskLevels bit {@code i} is set if ask level {@code i} changed
+     * @param depth            the instrument's levels as of this update, copied on the
+     *                         read thread so they match the masks even when a
+     *                         dispatcher runs the callback; reused, so copy what you keep
+     */
+    void onDepth(int mktSegId, int token, int changedBidLevels, int changedAskLevels, DepthSnapshot depth);
+}
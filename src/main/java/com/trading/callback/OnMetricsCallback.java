@@ -0,0 +1,11 @@
+package com.trading.callback;
+
+import com.trading.FeedMetricsSnapshot;
+
+@FunctionalInterface
+public interface OnMetricsCallback {
+    /**
+     * Called on the metrics reporter thread once per reporting interval.
+     */
+    void onMetrics(FeedMetricsSnapshot snapshot);
+}
@@ -0,0 +1,10 @@
+package com.trading.callback;
+
+@FunctionalInterface
+public interface OnPacketCallback {
+    /**
+     * Raw, inflated FT3.0 packet. The buffer is reused once the callback returns,
+     * so copy {@code buffer[offset, offset + length)} if you need to keep it.
+     */
+    void onPacket(byte[] buffer, int offset, int length);
+}
@@ -0,0 +1,11 @@
+package com.trading.callback;
+
+import com.trading.MarketData;
+
+@FunctionalInterface
+public interface OnTickCallback {
+    /**
+     * @param tick reused flyweight; copy any field you need after returning
+     */
+    void onTick(MarketData tick);
+}
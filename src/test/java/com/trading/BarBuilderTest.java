@@ -0,0 +1,173 @@
+package com.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class BarBuilderTest {
+    // A multiple of every interval used below
+    private static final int BASE = 1_000_000_200;
+
+    private final Touchlines touchlines = new Touchlines();
+
+    @Test
+    void barsMatchAReferenceBuiltFromEveryTrade() {
+        int[] intervals = {1, 60, 300};
+        BarBuilder bars = new BarBuilder(1000, intervals, 1);
+        List<String> emitted = new ArrayList<>();
+        bars.addListener(bar -> emitted.add(describe(bar.getToken(), bar.getIntervalSeconds(), bar.getStartTime(),
+                bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getTickVolume())));
+
+        // token:interval:start -> open, high, low, close, ticks
+        Map<String, int[]> reference = new HashMap<>();
+        Map<Integer, int[]> lastTrade = new HashMap<>();
+        Random random = new Random(3);
+        int clock = BASE;
+        for (int i = 0; i < 100_000; i++) {
+            if (random.nextInt(10) == 0) {
+                clock++;
+            }
+            int token = 1 + random.nextInt(200);
+            // Up to a second behind the clock, but never behind the instrument's last trade
+            int ltt = clock - (random.nextInt(4) == 0 ? 1 : 0);
+            int[] last = lastTrade.get(token);
+            if (last != null) {
+                ltt = Math.max(ltt, last[0]);
+            }
+            int ltp = 1000 + random.nextInt(100);
+            assertTrue(bars.update(touchlines.trade(1, token, ltt, ltp)));
+
+            // A repeated touchline with the same LTT and LTP is not a new trade
+            if (last != null && last[0] == ltt && last[1] == ltp) {
+                continue;
+            }
+            lastTrade.put(token, new int[] {ltt, ltp});
+            for (int interval : intervals) {
+                int[] bar = reference.get(token + ":" + interval + ":" + (ltt - ltt % interval));
+                if (bar == null) {
+                    reference.put(token + ":" + interval + ":" + (ltt - ltt % interval), new int[] {ltp, ltp, ltp, ltp, 1});
+                } else {
+                    bar[1] = Math.max(bar[1], ltp);
+                    bar[2] = Math.min(bar[2], ltp);
+                    bar[3] = ltp;
+                    bar[4]++;
+                }
+            }
+        }
+        bars.flush();
+
+        Set<String> expected = new HashSet<>();
+        for (Map.Entry<String, int[]> entry : reference.entrySet()) {
+            String[] key = entry.getKey().split(":");
+            int[] bar = entry.getValue();
+            expected.add(describe(Integer.parseInt(key[0]), Integer.parseInt(key[1]), Long.parseLong(key[2]),
+                    bar[0], bar[1], bar[2], bar[3], bar[4]));
+        }
+        assertEquals(0, bars.getLateTrades());
+        assertEquals(emitted.size(), new HashSet<>(emitted).size(), "a bar was emitted twice");
+        assertEquals(expected, new HashSet<>(emitted));
+    }
+
+    @Test
+    void barExpiresOnceTheClockPassesItsEndPlusTheTolerance() {
+        BarBuilder bars = new BarBuilder(10, new int[] {60}, 2);
+        List<Long> starts = new ArrayList<>();
+        bars.addListener(bar -> starts.add(bar.getStartTime()));
+
+        bars.update(touchlines.trade(1, 1, BASE + 10, 500));
+        bars.advanceTo(BASE + 61);
+        assertTrue(starts.isEmpty(), "bar closed inside the tolerance");
+        bars.advanceTo(BASE + 62);
+        assertEquals(List.of((long) BASE), starts);
+        assertEquals(1, bars.getBarsCompleted());
+
+        // Another instrument's trade moves the clock too
+        bars.update(touchlines.trade(1, 1, BASE + 70, 501));
+        bars.update(touchlines.trade(1, 2, BASE + 122, 900));
+        assertEquals(List.of((long) BASE, (long) BASE + 60), starts);
+    }
+
+    @Test
+    void clockJumpingPastAWholeWheelTurnEmitsEveryOpenBar() {
+        BarBuilder bars = new BarBuilder(10, new int[] {1}, 0);
+        List<Integer> tokens = new ArrayList<>();
+        bars.addListener(bar -> tokens.add(bar.getToken()));
+
+        bars.update(touchlines.trade(1, 1, BASE, 500));
+        bars.update(touchlines.trade(1, 2, BASE, 600));
+        bars.advanceTo(BASE + 1_000);
+
+        assertEquals(2, tokens.size());
+        assertEquals(2, bars.size(), "instruments stay indexed after their bars close");
+        bars.flush();
+        assertEquals(2, tokens.size(), "flush emitted a closed bar again");
+    }
+
+    @Test
+    void tradesForEmittedBarsAreCountedAndDropped() {
+        BarBuilder bars = new BarBuilder(10, new int[] {1}, 0);
+        List<Integer> closes = new ArrayList<>();
+        bars.addListener(bar -> closes.add(bar.getClose()));
+
+        bars.update(touchlines.trade(1, 1, BASE + 10, 5));
+        bars.update(touchlines.trade(1, 2, BASE + 12, 5));
+        assertEquals(1, closes.size());
+
+        bars.update(touchlines.trade(1, 1, BASE + 10, 6));
+        assertEquals(1, bars.getLateTrades());
+        bars.advanceTo(BASE + 100);
+        assertEquals(List.of(5, 5), closes);
+    }
+
+    @Test
+    void idleClockContinuesFromTheLastTrade() {
+        BarBuilder bars = new BarBuilder(10, new int[] {1}, 1);
+        List<Long> starts = new ArrayList<>();
+        bars.addListener(bar -> starts.add(bar.getStartTime()));
+
+        bars.advanceIdle(System.nanoTime() + 5_000_000_000L);
+        assertEquals(0, bars.getClock(), "clock moved before the first trade");
+
+        bars.update(touchlines.trade(1, 1, BASE, 500));
+        long traded = System.nanoTime();
+        bars.advanceIdle(traded + 1_500_000_000L);
+        assertEquals(BASE + 1, bars.getClock());
+        assertTrue(starts.isEmpty());
+
+        // The half second left over is kept, so the clock does not fall behind
+        bars.advanceIdle(traded + 2_100_000_000L);
+        assertEquals(BASE + 2, bars.getClock());
+        assertEquals(List.of((long) BASE), starts);
+    }
+
+    @Test
+    void rejectsInvalidIntervals() {
+        assertThrows(IllegalArgumentException.class, () -> new BarBuilder(10));
+        assertThrows(IllegalArgumentException.class, () -> new BarBuilder(10, 60, 60));
+        assertThrows(IllegalArgumentException.class, () -> new BarBuilder(10, 0));
+    }
+
+    @Test
+    void dropsInstrumentsBeyondCapacity() {
+        BarBuilder bars = new BarBuilder(1, 60);
+        assertTrue(bars.update(touchlines.trade(1, 1, BASE, 1)));
+        assertFalse(bars.update(touchlines.trade(1, 2, BASE, 1)));
+        assertEquals(1, bars.size());
+    }
+
+    private static String describe(int token, int interval, long start, int open, int high, int low, int close,
+            int ticks) {
+        return token + ":" + interval + ":" + start + ":" + open + ":" + high + ":" + low + ":" + close + ":" + ticks;
+    }
+}
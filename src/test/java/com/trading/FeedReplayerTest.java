@@ -0,0 +1,70 @@
+package com.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FeedReplayerTest {
+    @TempDir
+    Path root;
+
+    private final ODINMarketFeedClient client = new ODINMarketFeedClient();
+    private final List<Integer> tokens = new ArrayList<>();
+    private final FragmentationHandler framer = new FragmentationHandler();
+
+    @Test
+    void replaysEveryFrameOfOneSession() throws IOException {
+        FrameJournal journal = new FrameJournal(root, 64 * 1024, 0);
+        byte[] frame = frame(1, 2);
+        // Cut mid-frame, as a WebSocket payload boundary may fall anywhere
+        journal.append(ByteBuffer.wrap(frame, 0, 10));
+        journal.append(ByteBuffer.wrap(frame, 10, frame.length - 10));
+        journal.append(ByteBuffer.wrap(frame(3)));
+        journal.close();
+
+        assertEquals(3, replay());
+        assertEquals(List.of(1, 2, 3), tokens);
+    }
+
+    @Test
+    void partialFrameAtTheEndOfASessionDoesNotCorruptTheNext() throws IOException {
+        FrameJournal first = new FrameJournal(root, 64 * 1024, 0);
+        first.append(ByteBuffer.wrap(frame(1)));
+        byte[] cut = frame(2);
+        first.append(ByteBuffer.wrap(Arrays.copyOf(cut, cut.length / 2)));
+        first.close();
+
+        FrameJournal second = new FrameJournal(root, 64 * 1024, 0);
+        second.append(ByteBuffer.wrap(frame(3, 4)));
+        second.close();
+
+        assertEquals(3, replay());
+        assertEquals(List.of(1, 3, 4), tokens);
+    }
+
+    private long replay() throws IOException {
+        client.setOnTick(tick -> tokens.add(tick.getToken()));
+        return new FeedReplayer(client, root).run();
+    }
+
+    // One outer frame holding a touchline packet per token
+    private byte[] frame(int... tokens) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(1024);
+        for (int token : tokens) {
+            byte[] packet = Touchlines.packet(1, token, 0, 0, 100 * token, 100);
+            byte[] header = String.format("%06d", packet.length).getBytes(StandardCharsets.US_ASCII);
+            header[0] = 5;
+            block.put(header).put(packet);
+        }
+        return framer.fragmentData(Arrays.copyOf(block.array(), block.position()));
+    }
+}
@@ -0,0 +1,173 @@
+package com.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Test;
+
+class FragmentationHandlerTest {
+    private final List<String> received = new ArrayList<>();
+    private final PacketConsumer consumer = (buffer, offset, length) ->
+            received.add(new String(buffer, offset, length, StandardCharsets.US_ASCII));
+
+    @Test
+    void blockSplitAtEveryByteBoundaryIsReassembled() {
+        List<String> packets = packets(0, 4);
+        byte[] frame = frame(packets);
+        for (int split = 1; split < frame.length; split++) {
+            FragmentationHandler handler = new FragmentationHandler();
+            received.clear();
+            handler.defragment(Arrays.copyOfRange(frame, 0, split), consumer);
+            handler.defragment(Arrays.copyOfRange(frame, split, frame.length), consumer);
+            assertEquals(packets, received, "split at " + split);
+        }
+    }
+
+    @Test
+    void blocksArrivingOneByteAtATimeAreReassembled() {
+        List<String> packets = packets(0, 3);
+        List<String> more = packets(3, 2);
+        byte[] frames = concat(frame(packets), frame(more));
+        FragmentationHandler handler = new FragmentationHandler();
+        for (int i = 0; i < frames.length; i++) {
+            handler.defragment(ByteBuffer.wrap(frames, i, 1), consumer);
+        }
+        List<String> expected = new ArrayList<>(packets);
+        expected.addAll(more);
+        assertEquals(expected, received);
+    }
+
+    @Test
+    void backToBackFramesInOnePayloadAreAllDelivered() {
+        List<String> expected = new ArrayList<>();
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        for (int block = 0; block < 5; block++) {
+            List<String> packets = packets(block * 10, 1 + block);
+            expected.addAll(packets);
+            byte[] frame = frame(packets);
+            payload.write(frame, 0, frame.length);
+        }
+        FragmentationHandler handler = new FragmentationHandler();
+        handler.defragment(ByteBuffer.wrap(payload.toByteArray()), consumer);
+        assertEquals(expected, received);
+    }
+
+    @Test
+    void innerLengthOverrunningTheBlockIsADecodeError() {
+        FeedMetrics metrics = new FeedMetrics();
+        FragmentationHandler handler = new FragmentationHandler();
+        handler.setMetrics(metrics);
+
+        // The second packet claims more bytes than the inflated block holds
+        String good = packets(0, 1).get(0);
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        writeInner(block, good, good.length());
+        writeInner(block, "63=FT3.0|64=209|short", 99_999);
+        handler.defragment(outer(deflate(block.toByteArray())), consumer);
+
+        assertEquals(List.of(good), received);
+        assertEquals(1, metrics.getDecodeErrors());
+
+        // The next frame is still parsed
+        List<String> next = packets(1, 2);
+        handler.defragment(frame(next), consumer);
+        assertEquals(3, received.size());
+        assertEquals(next, received.subList(1, 3));
+        assertEquals(1, metrics.getDecodeErrors());
+    }
+
+    @Test
+    void resetDiscardsAPartialFrame() {
+        FeedMetrics metrics = new FeedMetrics();
+        FragmentationHandler handler = new FragmentationHandler();
+        handler.setMetrics(metrics);
+
+        byte[] cut = frame(packets(0, 3));
+        handler.defragment(Arrays.copyOf(cut, cut.length / 2), consumer);
+        handler.reset();
+
+        List<String> packets = packets(10, 2);
+        handler.defragment(frame(packets), consumer);
+        assertEquals(packets, received);
+        assertEquals(0, metrics.getResyncBytesSkipped());
+        assertEquals(0, metrics.getDecodeErrors());
+    }
+
+    @Test
+    void bufferGrowsForFramesLargerThanItsInitialSize() {
+        // Random payloads barely compress, so the frame is over 64 KB but within the
+        // five-digit outer length
+        List<String> packets = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 30; i++) {
+            char[] chars = new char[3000];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) ('!' + random.nextInt(90));
+            }
+            packets.add(new String(chars));
+        }
+        byte[] frame = frame(packets);
+        FragmentationHandler handler = new FragmentationHandler();
+        handler.defragment(Arrays.copyOf(frame, 1000), consumer);
+        handler.defragment(Arrays.copyOfRange(frame, 1000, frame.length), consumer);
+        assertEquals(packets, received);
+    }
+
+    private static List<String> packets(int first, int count) {
+        List<String> packets = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            packets.add("63=FT3.0|64=209|65=84|66=10:00:00|1=1|7=" + (1000 + i) + "|8=" + (i * 37));
+        }
+        return packets;
+    }
+
+    // One outer frame: flag 5, five-digit compressed length, then the deflated inner packets
+    private static byte[] frame(List<String> packets) {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        for (String packet : packets) {
+            writeInner(block, packet, packet.length());
+        }
+        return outer(deflate(block.toByteArray()));
+    }
+
+    private static void writeInner(ByteArrayOutputStream block, String packet, int declaredLength) {
+        byte[] header = String.format("%06d", declaredLength).getBytes(StandardCharsets.US_ASCII);
+        header[0] = 5;
+        block.write(header, 0, header.length);
+        byte[] bytes = packet.getBytes(StandardCharsets.US_ASCII);
+        block.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] outer(byte[] compressed) {
+        byte[] header = String.format("%06d", compressed.length).getBytes(StandardCharsets.US_ASCII);
+        header[0] = 5;
+        return concat(header, compressed);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+}
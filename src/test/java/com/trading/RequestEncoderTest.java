@@ -0,0 +1,148 @@
+package com.trading;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// Every request must come out byte for byte as the String.format and fragmentData path
+// it replaced built it
+class RequestEncoderTest {
+    private static final long NOW = 1_700_000_000_123L;
+
+    private final RequestEncoder encoder = new RequestEncoder();
+    private final FragmentationHandler framer = new FragmentationHandler();
+    private final String time = new NseTimestampCodec().formatTime(NOW);
+
+    @AfterEach
+    void end() {
+        encoder.end();
+        framer.dispose();
+    }
+
+    @Test
+    void login() throws IOException {
+        encoder.begin(MessageTypes.LOGIN, 74, NOW).field(67, "user1").field(68, "");
+        assertEncodes(String.format("63=FT3.0|64=101|65=74|66=%s|67=%s|%s", time, "user1", "68="));
+
+        encoder.begin(MessageTypes.LOGIN, 74, NOW).field(67, "user1").field(68, "key-123").field(401, 2);
+        assertEncodes(String.format("63=FT3.0|64=101|65=74|66=%s|67=%s|%s", time, "user1",
+                String.format("68=%s|401=2", "key-123")));
+    }
+
+    @Test
+    void touchlineSubscribeWithTokenList() throws IOException {
+        long[] keys = {InstrumentIndex.key(1, 22), InstrumentIndex.key(2, 35003), InstrumentIndex.key(13, 7)};
+        encoder.begin(MessageTypes.TOUCHLINE, 84, NOW).field(49, 1).field(200, 1).instruments(keys, 3).field(230, 1);
+        assertEncodes(String.format("63=FT3.0|64=206|65=84|66=%s|%s|%s|%s230=1", time, "49=1", "200=1",
+                tokenList(keys)));
+
+        encoder.begin(MessageTypes.TOUCHLINE, 84, NOW).field(200, 0).instruments(keys, 2).field(230, 1);
+        assertEncodes(String.format("63=FT3.0|64=206|65=84|66=%s|%s|%s230=1", time, "200=0",
+                "1=1$7=22|1=2$7=35003|"));
+    }
+
+    @Test
+    void touchlineUnsubscribe() throws IOException {
+        long[] keys = {InstrumentIndex.key(1, 22), InstrumentIndex.key(1, 23)};
+        encoder.begin(MessageTypes.TOUCHLINE, 84, NOW).instruments(keys, 2).field(230, 2);
+        assertEncodes(String.format("63=FT3.0|64=206|65=84|66=%s|%s230=2", time, tokenList(keys)));
+    }
+
+    @Test
+    void ltpTouchline() throws IOException {
+        long[] keys = {InstrumentIndex.key(1, 22), InstrumentIndex.key(3, 1_234_567)};
+        encoder.begin(MessageTypes.LTP_TOUCHLINE, 84, NOW).instruments(keys, 2).field(230, 1);
+        assertEncodes(String.format("63=FT3.0|64=347|65=84|66=%s|%s230=1", time, tokenList(keys)));
+
+        encoder.begin(MessageTypes.LTP_TOUCHLINE, 84, NOW).instrument(1, 22).field(230, 2);
+        assertEncodes(String.format("63=FT3.0|64=347|65=84|66=%s|%s230=2", time, "1=1$7=22|"));
+    }
+
+    @Test
+    void bestFive() throws IOException {
+        encoder.begin(MessageTypes.BEST_FIVE, 84, NOW).instrumentFields(1, 22).field(230, 1);
+        assertEncodes(String.format("63=FT3.0|64=127|65=84|66=%s|1=%d|7=%s|230=1", time, 1, "22"));
+
+        // Tokens that are not numeric are sent as given
+        encoder.begin(MessageTypes.BEST_FIVE, 84, NOW).field(1, 2).field(7, "NIFTY").field(230, 2);
+        assertEncodes(String.format("63=FT3.0|64=127|65=84|66=%s|1=%d|7=%s|230=2", time, 2, "NIFTY"));
+    }
+
+    @Test
+    void pauseAndResume() throws IOException {
+        encoder.begin(MessageTypes.PAUSE_RESUME, 84, NOW).field(230, 1);
+        assertEncodes(String.format("63=FT3.0|64=106|65=84|66=%s|%s", time, "230=1"));
+
+        encoder.begin(MessageTypes.PAUSE_RESUME, 84, NOW).field(230, 2);
+        assertEncodes(String.format("63=FT3.0|64=106|65=84|66=%s|%s", time, "230=2"));
+    }
+
+    @Test
+    void rawMessageIsSentAsIs() throws IOException {
+        encoder.begin(MessageTypes.PAUSE_RESUME, 84, NOW).field(230, 1);
+        String message = "63=FT3.0|64=348|65=84|66=09:15:00|1=1$7=22|230=1";
+        encoder.raw(message);
+        assertEncodes(message);
+
+        // Characters outside ASCII become '?', as String.getBytes(US_ASCII) does
+        encoder.raw("67=usér");
+        assertEncodes("67=usér");
+    }
+
+    @Test
+    void negativeAndExtremeNumbers() throws IOException {
+        encoder.begin(MessageTypes.BEST_FIVE, 84, NOW).field(1, -1).field(7, Integer.MIN_VALUE)
+                .field(8, Integer.MAX_VALUE);
+        assertEncodes(String.format("63=FT3.0|64=127|65=84|66=%s|1=%d|7=%d|8=%d", time, -1,
+                Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void largeTokenListGrowsTheBuffers() throws IOException {
+        long[] keys = new long[5000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = InstrumentIndex.key(1 + i % 3, 10_000 + i);
+        }
+        encoder.begin(MessageTypes.TOUCHLINE, 84, NOW).instruments(keys, keys.length).field(230, 2);
+        assertEncodes(String.format("63=FT3.0|64=206|65=84|66=%s|%s230=2", time, tokenList(keys)));
+    }
+
+    @Test
+    void rejectsRequestsOverTheFiveDigitFrameLength() {
+        // Random text barely compresses, so this is well over 99,999 compressed bytes
+        Random random = new Random(1);
+        char[] chars = new char[200_000];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('!' + random.nextInt(90));
+        }
+        encoder.raw(new String(chars));
+        IOException error = assertThrows(IOException.class, encoder::frame);
+        assertTrue(error.getMessage().startsWith("Request too large"), error.getMessage());
+    }
+
+    // Baseline list format: "1=seg$7=token|" per instrument
+    private static String tokenList(long[] keys) {
+        StringBuilder list = new StringBuilder();
+        for (long key : keys) {
+            list.append(String.format("1=%d$7=%d|", InstrumentIndex.mktSegId(key), InstrumentIndex.token(key)));
+        }
+        return list.toString();
+    }
+
+    private void assertEncodes(String expected) throws IOException {
+        assertEquals(expected.replaceAll("[^\\x00-\\x7F]", "?"), encoder.toString());
+        ByteBuffer frame = encoder.frame();
+        byte[] actual = new byte[frame.remaining()];
+        frame.get(actual);
+        assertArrayEquals(framer.fragmentData(expected.getBytes(StandardCharsets.US_ASCII)), actual);
+    }
+}
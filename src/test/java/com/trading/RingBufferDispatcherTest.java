@@ -0,0 +1,76 @@
+package com.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class RingBufferDispatcherTest {
+    private final List<String> handled = new CopyOnWriteArrayList<>();
+
+    @Test
+    void queuedPacketsAreDrainedOnClose() throws InterruptedException {
+        RingBufferDispatcher dispatcher = dispatcher(RingBufferDispatcher.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(dispatcher.publish(event("packet " + i)));
+        }
+        dispatcher.close(5000);
+        assertEquals(100, handled.size());
+        assertEquals("packet 99", handled.get(99));
+    }
+
+    @Test
+    void publishAfterCloseIsRejected() throws InterruptedException {
+        RingBufferDispatcher dispatcher = dispatcher(RingBufferDispatcher.OverflowPolicy.BLOCK);
+        assertTrue(dispatcher.publish(event("before")));
+        dispatcher.close(5000);
+
+        assertFalse(dispatcher.publish(event("after")));
+        assertEquals(List.of("before"), handled);
+        assertEquals(1, dispatcher.getPublishedCount());
+    }
+
+    @Test
+    void fullRingRejectsWithFailPolicy() throws InterruptedException {
+        Object gate = new Object();
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(4, RingBufferDispatcher.WaitStrategy.PARK,
+                RingBufferDispatcher.OverflowPolicy.FAIL, event -> {
+                    synchronized (gate) {
+                        handled.add(text(event));
+                    }
+                }, new ODINMarketFeedClient(), "test-dispatch");
+        synchronized (gate) {
+            int accepted = 0;
+            for (int i = 0; i < 10; i++) {
+                if (dispatcher.publish(event("packet " + i))) {
+                    accepted++;
+                }
+            }
+            assertTrue(accepted >= 4 && accepted <= 5, "accepted " + accepted);
+            assertEquals(10 - accepted, dispatcher.getRejectedCount());
+        }
+        dispatcher.close(5000);
+        assertTrue(dispatcher.getHighWaterMark() >= 4);
+    }
+
+    private RingBufferDispatcher dispatcher(RingBufferDispatcher.OverflowPolicy policy) {
+        return new RingBufferDispatcher(8, RingBufferDispatcher.WaitStrategy.PARK, policy,
+                event -> handled.add(text(event)), new ODINMarketFeedClient(), "test-dispatch");
+    }
+
+    private static DispatchEvent event(String packet) {
+        DispatchEvent event = DispatchEvent.preallocated();
+        byte[] bytes = packet.getBytes(StandardCharsets.US_ASCII);
+        event.wrap(bytes, 0, bytes.length, 0);
+        return event;
+    }
+
+    private static String text(DispatchEvent event) {
+        return new String(event.buffer, event.offset, event.length, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,170 @@
+package com.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TickStoreTest {
+    private static final int TICKS = 20_000;
+    private static final int TOKENS = 300;
+
+    @TempDir
+    Path root;
+
+    private final Touchlines touchlines = new Touchlines();
+    private final int today = (int) new NseTimestampCodec().toNseSeconds(System.currentTimeMillis());
+
+    @Test
+    void readerSeesEachInstrumentsTicksInOrder() throws IOException {
+        TickStore store = new TickStore(root, 1000);
+        Map<Long, List<Integer>> expected = append(store, TICKS);
+
+        TickStoreReader reader = new TickStoreReader(store.getCurrentDay());
+        assertEquals(TICKS, reader.getRowCount());
+        assertEquals(expected.size(), reader.getInstrumentCount());
+        assertScans(reader, expected);
+
+        int[] ltp = new int[TICKS];
+        reader.getInts(TickStore.Column.LTP, 0, ltp, 0, TICKS);
+        for (int row = 0; row < TICKS; row++) {
+            assertEquals(row, ltp[row]);
+        }
+        store.close();
+    }
+
+    @Test
+    void reopenedDayContinuesAfterTheLastRow() throws IOException {
+        TickStore store = new TickStore(root, 1000);
+        Map<Long, List<Integer>> expected = append(store, TICKS);
+        store.close();
+
+        TickStore reopened = new TickStore(root, 1000);
+        assertEquals(TICKS, reopened.append(tick(1, 3, TICKS)));
+        expected.get(InstrumentIndex.key(1, 3)).add(TICKS);
+
+        assertScans(new TickStoreReader(reopened.getCurrentDay()), expected);
+        reopened.close();
+    }
+
+    @Test
+    void crashedDayIsRebuiltFromTheCommittedRows() throws IOException {
+        TickStore store = new TickStore(root, 1000);
+        Map<Long, List<Integer>> expected = append(store, TICKS);
+        Path day = store.getCurrentDay();
+        store.flush();
+
+        // A crash mid-append: the next row is half written and the index entries are
+        // stale, but the row count still covers only the committed rows
+        writeInt(day.resolve(TickStore.Column.MKT_SEG_ID.fileName()), (long) TICKS * Integer.BYTES, 1);
+        writeInt(day.resolve(TickStore.Column.TOKEN.fileName()), (long) TICKS * Integer.BYTES, 3);
+        writeInt(day.resolve(TickStore.NEXT_FILE), (long) TICKS * Integer.BYTES, 12345);
+        // First instrument's last row and tick count
+        writeInt(day.resolve(TickStore.INDEX_FILE), TickStore.INDEX_HEADER_LENGTH + 12, 0);
+        writeInt(day.resolve(TickStore.INDEX_FILE), TickStore.INDEX_HEADER_LENGTH + 16, 1);
+
+        // Never closed, as after a crash
+        TickStore recovered = new TickStore(root, 1000);
+        assertEquals(TICKS, recovered.append(tick(1, 3, TICKS)));
+        expected.get(InstrumentIndex.key(1, 3)).add(TICKS);
+
+        TickStoreReader reader = new TickStoreReader(day);
+        assertEquals(TICKS + 1, reader.getRowCount());
+        assertEquals(expected.size(), reader.getInstrumentCount());
+        assertScans(reader, expected);
+        recovered.close();
+    }
+
+    @Test
+    void lateTickFromThePreviousDayStaysInTheCurrentOne() throws IOException {
+        TickStore store = new TickStore(root, 10);
+        assertEquals(0, store.append(tick(1, 3, 1)));
+        assertEquals(0, store.append(touchlines.wrap(1, 3, today + 86_400, today + 86_400, 2, 2)));
+        assertEquals(1, store.append(tick(1, 3, 3)));
+        assertEquals(2, TickStoreReader.days(root).size());
+        store.close();
+    }
+
+    @Test
+    void closeFromAnotherThreadWaitsForTheTickBeingWritten() throws Exception {
+        TickStore store = new TickStore(root, 1000);
+        AtomicInteger written = new AtomicInteger();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread feed = new Thread(() -> {
+            Touchlines own = new Touchlines();
+            try {
+                int row;
+                while ((row = store.append(own.wrap(1, 3, today, today, written.get(), 0))) >= 0) {
+                    assertEquals(written.getAndIncrement(), row);
+                }
+            } catch (Exception | AssertionError e) {
+                failure.set(e instanceof Exception ? (Exception) e : new IllegalStateException(e));
+            }
+        });
+        feed.start();
+        while (written.get() < 10_000 && feed.isAlive()) {
+            Thread.onSpinWait();
+        }
+        store.close();
+        feed.join(5000);
+
+        assertNull(failure.get());
+        assertEquals(-1, store.append(tick(1, 3, 0)));
+        assertEquals(written.get(), store.getRowsWritten());
+        assertEquals(written.get(), new TickStoreReader(TickStoreReader.days(root).get(0)).getRowCount());
+    }
+
+    // Appends ticks whose LTP is their row, and returns each instrument's rows
+    private Map<Long, List<Integer>> append(TickStore store, int count) throws IOException {
+        Map<Long, List<Integer>> rows = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < count; i++) {
+            int token = 1 + random.nextInt(TOKENS);
+            int mktSegId = 1 + token % 3;
+            assertEquals(i, store.append(tick(mktSegId, token, i)));
+            rows.computeIfAbsent(InstrumentIndex.key(mktSegId, token), key -> new ArrayList<>()).add(i);
+        }
+        return rows;
+    }
+
+    private MarketData tick(int mktSegId, int token, int ltp) {
+        return touchlines.wrap(mktSegId, token, today, today - 1, ltp, ltp);
+    }
+
+    private static void assertScans(TickStoreReader reader, Map<Long, List<Integer>> expected) throws IOException {
+        for (Map.Entry<Long, List<Integer>> entry : expected.entrySet()) {
+            int mktSegId = InstrumentIndex.mktSegId(entry.getKey());
+            int token = InstrumentIndex.token(entry.getKey());
+            List<Integer> rows = new ArrayList<>();
+            reader.scan(mktSegId, token, rows::add);
+            assertEquals(entry.getValue(), rows, "rows of " + mktSegId + ":" + token);
+            assertEquals(rows.size(), reader.getTickCount(mktSegId, token));
+            for (int row : rows) {
+                assertEquals(row, reader.getInt(TickStore.Column.LTP, row));
+                assertEquals(token, reader.getInt(TickStore.Column.TOKEN, row));
+            }
+        }
+    }
+
+    private static void writeInt(Path file, long offset, int value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(buffer, offset);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.trading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TopMoversIndexTest {
+    private static final int GAINERS = 0;
+    private static final int LOSERS = 1;
+    private static final int MOST_ACTIVE = 2;
+    private static final int[] SEGMENTS = {1, 2, 13};
+    private static final int TOP = 50;
+
+    private final Touchlines touchlines = new Touchlines();
+
+    // What a full sort needs per instrument
+    private static final class Expected {
+        long changePpm;
+        long trades;
+        int ltt;
+        int ltp;
+        int prevClosePrice;
+    }
+
+    @Test
+    void rankingsMatchAFullSort() {
+        int instruments = 3000;
+        TopMoversIndex index = new TopMoversIndex(instruments);
+        Map<Long, Expected> expected = new HashMap<>();
+        MoverList out = new MoverList(TOP);
+        Random random = new Random(5);
+        for (int i = 0; i < 200_000; i++) {
+            int token = 1 + random.nextInt(instruments);
+            int mktSegId = SEGMENTS[token % SEGMENTS.length];
+            // Some instruments have no previous close and cannot be ranked by change
+            int prevClosePrice = random.nextInt(50) == 0 ? 0 : 10_000 + token;
+            int ltp = 5_000 + random.nextInt(10_000);
+            int ltt = 1000 + i / 100;
+            index.update(touchlines.wrap(mktSegId, token, ltt, ltt, ltp, prevClosePrice));
+
+            Expected state = expected.computeIfAbsent(InstrumentIndex.key(mktSegId, token), key -> new Expected());
+            if (ltt != state.ltt || ltp != state.ltp) {
+                state.trades++;
+                state.ltt = ltt;
+            }
+            state.ltp = ltp;
+            state.prevClosePrice = prevClosePrice;
+            if (prevClosePrice > 0) {
+                state.changePpm = (ltp - (long) prevClosePrice) * 1_000_000L / prevClosePrice;
+            }
+
+            if (i % 20_000 == 0) {
+                for (int segment : new int[] {1, 2, 13, TopMoversIndex.ALL_SEGMENTS}) {
+                    for (int ranking : new int[] {GAINERS, LOSERS, MOST_ACTIVE}) {
+                        check(index, expected, segment, ranking, out);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void queriesForFewerInstrumentsThanRequestedReturnAll() {
+        TopMoversIndex index = new TopMoversIndex(10);
+        index.update(touchlines.wrap(1, 1, 1000, 1000, 110, 100));
+        index.update(touchlines.wrap(1, 2, 1000, 1000, 90, 100));
+        MoverList out = new MoverList(TOP);
+
+        assertEquals(2, index.topGainers(TopMoversIndex.ALL_SEGMENTS, TOP, out));
+        assertEquals(1, out.getToken(0));
+        assertEquals(2, index.topLosers(1, TOP, out));
+        assertEquals(2, out.getToken(0));
+        assertEquals(0, index.topGainers(2, TOP, out));
+    }
+
+    private static void check(TopMoversIndex index, Map<Long, Expected> expected, int mktSegId, int ranking,
+            MoverList out) {
+        List<Long> keys = new ArrayList<>();
+        for (Map.Entry<Long, Expected> entry : expected.entrySet()) {
+            if (mktSegId != TopMoversIndex.ALL_SEGMENTS && InstrumentIndex.mktSegId(entry.getKey()) != mktSegId) {
+                continue;
+            }
+            if (ranking != MOST_ACTIVE && entry.getValue().prevClosePrice <= 0) {
+                continue;
+            }
+            keys.add(entry.getKey());
+        }
+        Comparator<Long> order = ranking == GAINERS ? Comparator.comparingLong(key -> -expected.get(key).changePpm)
+                : ranking == LOSERS ? Comparator.comparingLong(key -> expected.get(key).changePpm)
+                : Comparator.comparingLong(key -> -expected.get(key).trades);
+        keys.sort(order);
+
+        int count = ranking == GAINERS ? index.topGainers(mktSegId, TOP, out)
+                : ranking == LOSERS ? index.topLosers(mktSegId, TOP, out)
+                : index.mostActive(mktSegId, TOP, out);
+        String query = "segment " + mktSegId + ", ranking " + ranking;
+        assertEquals(Math.min(TOP, keys.size()), count, query);
+        for (int i = 0; i < count; i++) {
+            // Ties may come in any order, so compare scores and check each row's own score
+            Expected want = expected.get(keys.get(i));
+            Expected row = expected.get(InstrumentIndex.key(out.getMktSegId(i), out.getToken(i)));
+            long score = ranking == MOST_ACTIVE ? out.getTrades(i) : out.changePpm[i];
+            assertEquals(ranking == MOST_ACTIVE ? want.trades : want.changePpm, score, query + ", position " + i);
+            assertEquals(ranking == MOST_ACTIVE ? row.trades : row.changePpm, score, query + ", position " + i);
+            if (i > 0) {
+                long previous = ranking == MOST_ACTIVE ? out.getTrades(i - 1) : out.changePpm[i - 1];
+                assertTrue(ranking == LOSERS ? previous <= score : previous >= score, query + ", order at " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.trading;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// Builds touchline packets (message type 206) for tests and wraps them in a reused flyweight
+final class Touchlines {
+    private static final byte[] HEADER =
+            "63=FT3.0|64=206|65=84|66=10:00:00|50=".getBytes(StandardCharsets.US_ASCII);
+
+    private final TouchlineFlyweight tick = new TouchlineFlyweight(new NseTimestampCodec());
+
+    static byte[] packet(int mktSegId, int token, int lut, int ltt, int ltp, int prevClosePrice) {
+        ByteBuffer packet = ByteBuffer.allocate(HEADER.length + TouchlineFlyweight.BLOCK_LENGTH)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        packet.put(HEADER);
+        int block = HEADER.length;
+        packet.putInt(block + TouchlineFlyweight.MKT_SEG_ID_OFFSET, mktSegId);
+        packet.putInt(block + TouchlineFlyweight.TOKEN_OFFSET, token);
+        packet.putInt(block + TouchlineFlyweight.LUT_OFFSET, lut);
+        packet.putInt(block + TouchlineFlyweight.LTT_OFFSET, ltt);
+        packet.putInt(block + TouchlineFlyweight.LTP_OFFSET, ltp);
+        packet.putInt(block + TouchlineFlyweight.BUY_QTY_OFFSET, 100);
+        packet.putInt(block + TouchlineFlyweight.BUY_PRICE_OFFSET, ltp - 5);
+        packet.putInt(block + TouchlineFlyweight.SELL_QTY_OFFSET, 100);
+        packet.putInt(block + TouchlineFlyweight.SELL_PRICE_OFFSET, ltp + 5);
+        packet.putInt(block + TouchlineFlyweight.DECIMAL_LOCATOR_OFFSET, 100);
+        packet.putInt(block + TouchlineFlyweight.PREV_CLOSE_PRICE_OFFSET, prevClosePrice);
+        return packet.array();
+    }
+
+    MarketData wrap(int mktSegId, int token, int lut, int ltt, int ltp, int prevClosePrice) {
+        byte[] packet = packet(mktSegId, token, lut, ltt, ltp, prevClosePrice);
+        if (!tick.wrap(packet, 0, packet.length, 206)) {
+            throw new IllegalStateException("Touchline did not decode");
+        }
+        return tick;
+    }
+
+    MarketData trade(int mktSegId, int token, int ltt, int ltp) {
+        return wrap(mktSegId, token, ltt, ltt, ltp, ltp);
+    }
+}